@@ -0,0 +1,216 @@
+package graph;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Collects a batch of edge weight deltas and applies them to a graph in one
+ * pass.
+ *
+ * <p>Deltas are grouped by source as they are added, and deltas for the same
+ * edge are merged, so the graph sees each edge once. Applying a batch uses
+ * {@link WeightedGraph#addWeights(Map)}, which each graph implementation
+ * specializes, for example by pre-sizing new rows.
+ *
+ * @param <L> type of vertex labels, must be immutable
+ */
+public class BulkLoader<L> {
+
+    private final Map<L, Map<L, Integer>> deltas = new HashMap<>();
+    private int size = 0;
+
+    // Abstraction function:
+    //   AF(deltas) = the batch of edge deltas that adds deltas.get(s).get(t)
+    //                to the weight of the edge from s to t, for every entry
+    //
+    // Representation invariant:
+    //   size == total number of entries in the maps in deltas;
+    //   no map in deltas is empty
+    //
+    // Safety from rep exposure:
+    //   all fields are private; deltas is only passed to graphs being
+    //   loaded, whose addWeights() must not modify it.
+
+    /**
+     * Create an empty BulkLoader
+     */
+    public BulkLoader() {
+        checkRep();
+    }
+
+    // Check that the rep invariant is true
+    private void checkRep() {
+        assert size >= deltas.size();
+    }
+
+    /**
+     * Add a delta to the batch, merging it with any earlier delta for the same
+     * edge.
+     *
+     * @param source label of the source vertex
+     * @param target label of the target vertex
+     * @param delta amount to add to the weight of the edge; may be negative
+     */
+    public void add(L source, L target, int delta) {
+        Map<L, Integer> row = deltas.get(source);
+        if (row == null) {
+            row = new HashMap<>();
+            deltas.put(source, row);
+        }
+        Integer old = row.get(target);
+        if (old == null) {
+            row.put(target, delta);
+            size++;
+        }
+        else {
+            row.put(target, old + delta);
+        }
+        checkRep();
+    }
+
+    /**
+     * Add parallel arrays of deltas to the batch: the i-th delta adds
+     * deltas[i] to the weight of the edge from sources[i] to targets[i].
+     *
+     * @param sources labels of source vertices
+     * @param targets labels of target vertices, same length as sources
+     * @param deltas amounts to add, same length as sources
+     */
+    public void addAll(L[] sources, L[] targets, int[] deltas) {
+        if (sources.length != targets.length || sources.length != deltas.length) {
+            throw new IllegalArgumentException("arrays have different lengths");
+        }
+        for (int i = 0; i < sources.length; i++) {
+            add(sources[i], targets[i], deltas[i]);
+        }
+    }
+
+    /**
+     * Add a sequence of deltas to the batch.
+     *
+     * @param deltas deltas to add
+     */
+    public void addAll(Iterator<Delta<L>> deltas) {
+        while (deltas.hasNext()) {
+            Delta<L> delta = deltas.next();
+            add(delta.getSource(), delta.getTarget(), delta.getDelta());
+        }
+    }
+
+    /**
+     * Add every delta of another batch to this one.
+     *
+     * @param other batch to add; not modified, and must not be this batch
+     */
+    public void addAll(BulkLoader<L> other) {
+        for (Map.Entry<L, Map<L, Integer>> row : other.deltas.entrySet()) {
+            for (Map.Entry<L, Integer> delta : row.getValue().entrySet()) {
+                add(row.getKey(), delta.getKey(), delta.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return number of distinct edges in the batch
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check whether the batch can be applied to a graph.
+     *
+     * @param graph graph the batch would be applied to; not modified
+     * @return true if no edge weight would become negative
+     */
+    public boolean canApplyTo(Graph<L> graph) {
+        WeightedGraph<L> weighted = WeightedGraph.of(graph);
+        for (Map.Entry<L, Map<L, Integer>> row : deltas.entrySet()) {
+            for (Map.Entry<L, Integer> delta : row.getValue().entrySet()) {
+                if (delta.getValue() < 0 && weighted.weight(row.getKey(), delta.getKey()) + delta.getValue() < 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Apply the batch to a graph and empty the batch.
+     * Deltas that merged to zero do not create edges or vertices.
+     *
+     * @param graph graph to update
+     * @throws IllegalArgumentException if any new weight would be negative;
+     *         the graph may then have been partly updated, and the batch is
+     *         still emptied
+     */
+    public void applyTo(Graph<L> graph) {
+        try {
+            WeightedGraph.of(graph).addWeights(deltas);
+        } finally {
+            deltas.clear();
+            size = 0;
+            checkRep();
+        }
+    }
+
+    /**
+     * Immutable.
+     * A change to the weight of one edge.
+     *
+     * @param <L> type of vertex labels, must be immutable
+     */
+    public static final class Delta<L> {
+
+        private final L source;
+        private final L target;
+        private final int delta;
+
+        // Abstraction function:
+        //   AF(source, target, delta) = add delta to the edge source->target
+        // Representation invariant:
+        //   source != null, target != null
+        // Safety from rep exposure:
+        //   all fields are private, final and immutable
+
+        /**
+         * Create a Delta.
+         *
+         * @param source label of the source vertex
+         * @param target label of the target vertex
+         * @param delta amount to add to the weight of the edge
+         */
+        public Delta(L source, L target, int delta) {
+            this.source = source;
+            this.target = target;
+            this.delta = delta;
+            assert source != null && target != null;
+        }
+
+        /**
+         * @return label of the source vertex
+         */
+        public L getSource() {
+            return source;
+        }
+
+        /**
+         * @return label of the target vertex
+         */
+        public L getTarget() {
+            return target;
+        }
+
+        /**
+         * @return amount to add to the weight of the edge
+         */
+        public int getDelta() {
+            return delta;
+        }
+
+        @Override public String toString() {
+            return source + "->" + target + "(" + (delta < 0 ? "" : "+") + delta + ")";
+        }
+    }
+}
@@ -3,23 +3,29 @@
  */
 package graph;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.function.ObjIntConsumer;
 
 /**
  * An implementation of Graph.
  * 
  * <p>PS2 instructions: you MUST use the provided rep.
  */
-public class ConcreteEdgesGraph<L> implements Graph<L> {
+public class ConcreteEdgesGraph<L> implements WeightedGraph<L> {
     
     private final Set<L> vertices = new HashSet<>();
     private final List<Edge<L>> edges = new ArrayList<>();
+    private final boolean views;
     
     // Abstraction function:
     //   AF(vertices, edges) = a directed graph composed of distinct vertices
@@ -31,13 +37,30 @@ public class ConcreteEdgesGraph<L> implements Graph<L> {
     // Safety from rep exposure:
     //   all fields are private and final;
     //   vertices is a mutable Set, so vertices() make defensive copies 
-    //   to avoid sharing the rep with clients.
+    //   to avoid sharing the rep with clients;
+    //   if views is true, vertices(), sources() and targets() instead return
+    //   unmodifiable views, which only give out labels and Integers.
     
     // constructor
     /**
      * Create an empty ConcreteEdgesGraph
      */
     public ConcreteEdgesGraph() {
+        this(false);
+    }
+    
+    /**
+     * Create an empty ConcreteEdgesGraph, choosing what vertices(),
+     * sources() and targets() return.
+     * 
+     * @param views if true, they return unmodifiable live views of the graph,
+     *              which are O(1) to get and reflect later changes to it
+     *              (iterating one while the graph changes has undefined
+     *              results); the maps still scan every edge on each lookup.
+     *              If false, they return new copies, as Graph describes
+     */
+    public ConcreteEdgesGraph(boolean views) {
+        this.views = views;
         checkRep();
     }
     
@@ -91,6 +114,85 @@ public class ConcreteEdgesGraph<L> implements Graph<L> {
         return 0;
     }
     
+    @Override public int addWeight(L source, L target, int delta) {
+        // update or remove the edge in place, in a single scan
+        for (int i = 0; i < edges.size(); i++) {
+            Edge<L> edge = edges.get(i);
+            if (edge.getSource().equals(source) && 
+                edge.getTarget().equals(target)) {
+                int weight = checkWeight(source, target, edge.getWeight() + delta);
+                if (weight == 0) {
+                    edges.remove(i);
+                }
+                else {
+                    edges.set(i, new Edge<L>(source, target, weight));
+                }
+                checkRep();
+                return weight;
+            }
+        }
+        int weight = checkWeight(source, target, delta);
+        if (weight > 0) {
+            vertices.add(source);
+            vertices.add(target);
+            edges.add(new Edge<L>(source, target, weight));
+        }
+        checkRep();
+        return weight;
+    }
+    
+    @Override public void addWeights(Map<L, ? extends Map<L, Integer>> deltas) {
+        // copy the batch, so that deltas can be crossed off as edges are found
+        Map<L, Map<L, Integer>> pending = new HashMap<>();
+        for (Map.Entry<L, ? extends Map<L, Integer>> row : deltas.entrySet()) {
+            pending.put(row.getKey(), new HashMap<>(row.getValue()));
+        }
+        // first pass: compute every new weight, so that a negative one is
+        // found before the graph is modified
+        int[] weights = new int[edges.size()];
+        for (int i = 0; i < edges.size(); i++) {
+            Edge<L> edge = edges.get(i);
+            Map<L, Integer> row = pending.get(edge.getSource());
+            Integer delta = row == null ? null : row.remove(edge.getTarget());
+            weights[i] = delta == null ? edge.getWeight() 
+                                       : checkWeight(edge.getSource(), edge.getTarget(), edge.getWeight() + delta);
+        }
+        for (Map.Entry<L, Map<L, Integer>> row : pending.entrySet()) {
+            for (Map.Entry<L, Integer> delta : row.getValue().entrySet()) {
+                checkWeight(row.getKey(), delta.getKey(), delta.getValue());
+            }
+        }
+        // second pass: update edges in place, dropping those that reach zero
+        int kept = 0;
+        for (int i = 0; i < edges.size(); i++) {
+            Edge<L> edge = edges.get(i);
+            if (weights[i] > 0) {
+                edges.set(kept++, weights[i] == edge.getWeight() ? edge 
+                                  : new Edge<L>(edge.getSource(), edge.getTarget(), weights[i]));
+            }
+        }
+        edges.subList(kept, edges.size()).clear();
+        // then append the new edges
+        for (Map.Entry<L, Map<L, Integer>> row : pending.entrySet()) {
+            for (Map.Entry<L, Integer> delta : row.getValue().entrySet()) {
+                if (delta.getValue() > 0) {
+                    vertices.add(row.getKey());
+                    vertices.add(delta.getKey());
+                    edges.add(new Edge<L>(row.getKey(), delta.getKey(), delta.getValue()));
+                }
+            }
+        }
+        checkRep();
+    }
+    
+    // Check that an edge weight computed by addWeight is nonnegative
+    private static int checkWeight(Object source, Object target, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight of " + source + "->" + target + " would be " + weight);
+        }
+        return weight;
+    }
+    
     @Override public boolean remove(L vertex) {
         if (!vertices.contains(vertex)) {
             checkRep();
@@ -110,10 +212,16 @@ public class ConcreteEdgesGraph<L> implements Graph<L> {
     }
     
     @Override public Set<L> vertices() {
+        if (views) {
+            return Collections.unmodifiableSet(vertices);
+        }
         return new HashSet<L>(vertices);
     }
     
     @Override public Map<L, Integer> sources(L target) {
+        if (views) {
+            return new Row(target, true);
+        }
         Map<L, Integer> result = new HashMap<>();
         for (Edge<L> edge : edges) {
             if (edge.getTarget().equals(target)) {
@@ -124,6 +232,9 @@ public class ConcreteEdgesGraph<L> implements Graph<L> {
     }
     
     @Override public Map<L, Integer> targets(L source) {
+        if (views) {
+            return new Row(source, false);
+        }
         Map<L, Integer> result = new HashMap<>();
         for (Edge<L> edge : edges) {
             if (edge.getSource().equals(source)) {
@@ -133,12 +244,126 @@ public class ConcreteEdgesGraph<L> implements Graph<L> {
         return result;
     }
     
+    @Override public int weight(L source, L target) {
+        for (Edge<L> edge : edges) {
+            if (edge.getSource().equals(source) && edge.getTarget().equals(target)) {
+                return edge.getWeight();
+            }
+        }
+        return 0;
+    }
+    
+    @Override public void forEachTarget(L source, ObjIntConsumer<? super L> visitor) {
+        for (Edge<L> edge : edges) {
+            if (edge.getSource().equals(source)) {
+                visitor.accept(edge.getTarget(), edge.getWeight());
+            }
+        }
+    }
+    
+    @Override public void forEachSource(L target, ObjIntConsumer<? super L> visitor) {
+        for (Edge<L> edge : edges) {
+            if (edge.getTarget().equals(target)) {
+                visitor.accept(edge.getSource(), edge.getWeight());
+            }
+        }
+    }
+    
     @Override public String toString() {
-        String result = "";
+        StringBuilder result = new StringBuilder();
         for (Edge<L> edge : edges) {
-            result += edge.toString() + "\n"; 
+            result.append(edge).append("\n");
+        }
+        return result.toString();
+    }
+    
+    /**
+     * Immutable view.
+     * Read-only live view of the edges into or out of one vertex, from the
+     * neighbouring label to edge weight.
+     */
+    private class Row extends AbstractMap<L, Integer> {
+        
+        private final L vertex;
+        private final boolean incoming;
+        
+        // Abstraction function:
+        //   AF(vertex, incoming) = the map from the source of every edge into
+        //                          vertex to its weight if incoming, otherwise
+        //                          from the target of every edge out of vertex
+        // Representation invariant:
+        //   true
+        // Safety from rep exposure:
+        //   edges is only read; only labels and Integers are given out,
+        //   and entries are immutable
+        
+        Row(L vertex, boolean incoming) {
+            this.vertex = vertex;
+            this.incoming = incoming;
+        }
+        
+        // Find the edge with neighbour key in this row, or null if there is none
+        private Edge<L> find(Object key) {
+            for (Edge<L> edge : edges) {
+                if (incoming ? edge.getTarget().equals(vertex) && edge.getSource().equals(key)
+                             : edge.getSource().equals(vertex) && edge.getTarget().equals(key)) {
+                    return edge;
+                }
+            }
+            return null;
+        }
+        
+        @Override public boolean containsKey(Object key) {
+            return find(key) != null;
+        }
+        
+        @Override public Integer get(Object key) {
+            Edge<L> edge = find(key);
+            return edge == null ? null : edge.getWeight();
+        }
+        
+        @Override public Set<Map.Entry<L, Integer>> entrySet() {
+            return new AbstractSet<Map.Entry<L, Integer>>() {
+                @Override public int size() {
+                    int size = 0;
+                    for (Edge<L> edge : edges) {
+                        if ((incoming ? edge.getTarget() : edge.getSource()).equals(vertex)) {
+                            size++;
+                        }
+                    }
+                    return size;
+                }
+                
+                @Override public Iterator<Map.Entry<L, Integer>> iterator() {
+                    return new Iterator<Map.Entry<L, Integer>>() {
+                        private int next = advance(0);
+                        
+                        // index of the first edge of this row at or after i
+                        private int advance(int i) {
+                            while (i < edges.size()
+                                    && !(incoming ? edges.get(i).getTarget() : edges.get(i).getSource()).equals(vertex)) {
+                                i++;
+                            }
+                            return i;
+                        }
+                        
+                        @Override public boolean hasNext() {
+                            return next < edges.size();
+                        }
+                        
+                        @Override public Map.Entry<L, Integer> next() {
+                            if (next >= edges.size()) {
+                                throw new NoSuchElementException();
+                            }
+                            Edge<L> edge = edges.get(next);
+                            next = advance(next + 1);
+                            return new AbstractMap.SimpleImmutableEntry<>(
+                                    incoming ? edge.getSource() : edge.getTarget(), edge.getWeight());
+                        }
+                    };
+                }
+            };
         }
-        return result;
     }
     
 }
@@ -3,54 +3,95 @@
  */
 package graph;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.ObjIntConsumer;
 
 /**
  * An implementation of Graph.
  * 
  * <p>PS2 instructions: you MUST use the provided rep.
  */
-public class ConcreteVerticesGraph<L> implements Graph<L> {
+public class ConcreteVerticesGraph<L> implements WeightedGraph<L> {
     
     private final List<Vertex<L>> vertices = new ArrayList<>();
+    private final Map<L, Integer> index = new HashMap<>();
+    private final boolean views;
     
     // Abstraction function:
     //   AF(vertices) = a directed graph composed of distinct vertices
     //                  connected by weighted edges
     //
     // Representation invariant:
-    //   edges have positive weight
+    //   labels of vertices are distinct;
+    //   index maps the label of vertices.get(i) to i, for every i, and has
+    //   no other keys;
+    //   edges have positive weight, and each edge is recorded both in the
+    //   outEdges of its source and in the inEdges of its target
     //
     // Safety from rep exposure:
-    //   vertices field is private and final;
+    //   all fields are private and final;
     //   vertices is a mutable List, so vertices() make defensive copies 
-    //   to avoid sharing the rep with clients.
+    //   to avoid sharing the rep with clients;
+    //   if views is true, vertices(), sources() and targets() instead return
+    //   unmodifiable views, which only give out labels and Integers.
     
     // constructor
     /**
      * Create an empty ConcreteVerticesGraph
      */
     public ConcreteVerticesGraph() {
+        this(false);
+    }
+    
+    /**
+     * Create an empty ConcreteVerticesGraph, choosing what vertices(),
+     * sources() and targets() return.
+     * 
+     * @param views if true, they return unmodifiable live views of the graph,
+     *              which are O(1) to get and reflect later changes to it
+     *              (iterating one while the graph changes has undefined
+     *              results); if false, they return new copies, as Graph
+     *              describes
+     */
+    public ConcreteVerticesGraph(boolean views) {
+        this.views = views;
         checkRep();
     }
     
-    // Check that the rep invariant is true
+    // Check that the rep invariant is true of the whole graph
     private void checkRep() {
-        for (Vertex<L> vertex : vertices) {
-            Map<L, Integer> inEdges = vertex.getIncoming();
-            Map<L, Integer> outEdges = vertex.getOutcoming();
-            
-            for (Integer weight : inEdges.values()) {
-                assert weight > 0;
-            }
-            for (Integer weight : outEdges.values()) {
-                assert weight > 0;
-            }
+        assert index.size() == vertices.size();
+        for (int i = 0; i < vertices.size(); i++) {
+            assert index.get(vertices.get(i).getLabel()) == i;
+            checkRep(vertices.get(i).getLabel());
+        }
+    }
+    
+    // Check that the rep invariant is true of the edges of one vertex, in
+    // time proportional to its degree rather than to the size of the graph;
+    // mutators check only the vertices they touch
+    private void checkRep(L label) {
+        Vertex<L> vertex = lookUp(label);
+        if (vertex == null) {
+            return;
+        }
+        assert vertex.getLabel().equals(label);
+        for (Map.Entry<L, Integer> edge : vertex.getIncomingView().entrySet()) {
+            assert edge.getValue() > 0;
+            assert lookUp(edge.getKey()).getWeightTo(label) == edge.getValue();
+        }
+        for (Map.Entry<L, Integer> edge : vertex.getOutcomingView().entrySet()) {
+            assert edge.getValue() > 0;
+            assert lookUp(edge.getKey()).getIncomingView().get(label).equals(edge.getValue());
         }
     }
     
@@ -62,13 +103,12 @@ public class ConcreteVerticesGraph<L> implements Graph<L> {
      * @return Vertex with label as its name
      */
     private Vertex<L> findVertex(L label) {
-        for (Vertex<L> vertex: vertices) {
-            if (vertex.getLabel().equals(label)) {
-                return vertex;
-            }
-        }
+        Vertex<L> vertex = lookUp(label);
         // if vertex was not present, throw error
-        throw new AssertionError("Vertex not in graph");
+        if (vertex == null) {
+            throw new AssertionError("Vertex not in graph");
+        }
+        return vertex;
     }
     
     /**
@@ -76,23 +116,52 @@ public class ConcreteVerticesGraph<L> implements Graph<L> {
      * @return true if vertex is in the graph, false otherwise
      */
     private boolean inGraph(L label){
-        Set<L> set = new HashSet<>();
-        
-        for (Vertex<L> vertex: vertices){
-           set.add(vertex.getLabel());
+        return index.containsKey(label);
+    }
+    
+    /**
+     * Find a vertex in vertices through the index
+     * 
+     * @param label label of the vertex to find
+     * @return Vertex with label as its name, or null if there is none
+     */
+    private Vertex<L> lookUp(Object label) {
+        Integer position = index.get(label);
+        return position == null ? null : vertices.get(position);
+    }
+    
+    /**
+     * Add a new vertex to vertices
+     * 
+     * @param vertex vertex to add, MUST NOT be present in the graph
+     */
+    private void addVertex(Vertex<L> vertex) {
+        index.put(vertex.getLabel(), vertices.size());
+        vertices.add(vertex);
+    }
+    
+    /**
+     * Remove a vertex from vertices in O(1), by moving the last vertex into
+     * its place
+     * 
+     * @param label label of the vertex to remove, MUST BE present in the graph
+     */
+    private void removeVertex(L label) {
+        int position = index.remove(label);
+        Vertex<L> last = vertices.remove(vertices.size() - 1);
+        if (position < vertices.size()) {
+            vertices.set(position, last);
+            index.put(last.getLabel(), position);
         }
-        
-        return set.contains(label);
     }
 
     @Override public boolean add(L vertex) {
         if (inGraph(vertex)) {
-            checkRep();
             return false;
         }
         else {
-            vertices.add(new Vertex<>(vertex));
-            checkRep();
+            addVertex(new Vertex<>(vertex));
+            checkRep(vertex);
             return true;
         }
     }
@@ -106,7 +175,7 @@ public class ConcreteVerticesGraph<L> implements Graph<L> {
         else {
             srcVertex = new Vertex<>(source);
             if (weight > 0) {
-                vertices.add(srcVertex);
+                addVertex(srcVertex);
                 }
         }
         Vertex<L> trgVertex;
@@ -116,40 +185,106 @@ public class ConcreteVerticesGraph<L> implements Graph<L> {
         else {   
             trgVertex = new Vertex<>(target);
             if (weight > 0) {
-                vertices.add(trgVertex);
+                addVertex(trgVertex);
                 }
         }
         // if edge exists - update or remove it
-        Map<L, Integer> srcOutEdges = srcVertex.getOutcoming();
-        Map<L, Integer> trgInEdges = trgVertex.getIncoming();
+        Map<L, Integer> srcOutEdges = srcVertex.getOutcomingView();
+        Map<L, Integer> trgInEdges = trgVertex.getIncomingView();
         if (srcOutEdges.containsKey(target) && trgInEdges.containsKey(source)) {
             Integer oldWeight = srcOutEdges.get(target);
             if (weight == 0) {
                 srcVertex.removeOutcoming(trgVertex);
+                checkRep(source);
+                checkRep(target);
                 return oldWeight;
             }
             srcVertex.addOutcoming(trgVertex, weight);
+            checkRep(source);
+            checkRep(target);
             return oldWeight;
         }
         else {
             if (weight > 0) {
                 srcVertex.addOutcoming(trgVertex, weight);
+                checkRep(source);
+                checkRep(target);
                 return 0;
             }
         }
         return 0;
     }
     
+    @Override public int addWeight(L source, L target, int delta) {
+        int weight = addWeightUnchecked(source, target, delta);
+        checkRep(source);
+        checkRep(target);
+        return weight;
+    }
+    
+    @Override public void addWeights(Map<L, ? extends Map<L, Integer>> deltas) {
+        for (Map.Entry<L, ? extends Map<L, Integer>> batch : deltas.entrySet()) {
+            for (Map.Entry<L, Integer> delta : batch.getValue().entrySet()) {
+                addWeightUnchecked(batch.getKey(), delta.getKey(), delta.getValue());
+                checkRep(batch.getKey());
+                checkRep(delta.getKey());
+            }
+        }
+    }
+    
+    /**
+     * Add to the weight of an edge as addWeight() does, without checking
+     * the rep invariant afterwards
+     * 
+     * @return the new weight of the edge
+     */
+    private int addWeightUnchecked(L source, L target, int delta) {
+        Vertex<L> srcVertex = lookUp(source);
+        Vertex<L> trgVertex = lookUp(target);
+        int oldWeight = srcVertex == null || trgVertex == null ? 0 : srcVertex.getWeightTo(target);
+        int weight = oldWeight + delta;
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight of " + source + "->" + target + " would be " + weight);
+        }
+        if (weight == 0) {
+            if (oldWeight > 0) {
+                srcVertex.removeOutcoming(trgVertex);
+            }
+            return 0;
+        }
+        if (srcVertex == null) {
+            srcVertex = new Vertex<>(source);
+            addVertex(srcVertex);
+        }
+        if (trgVertex == null) {
+            trgVertex = source.equals(target) ? srcVertex : new Vertex<>(target);
+            if (trgVertex != srcVertex) {
+                addVertex(trgVertex);
+            }
+        }
+        srcVertex.addOutcoming(trgVertex, weight);
+        return weight;
+    }
+    
     @Override public boolean remove(L vertex) {
         if (inGraph(vertex)) {
             Vertex<L> vertexToRemove = findVertex(vertex);
-            // remove edges
-            for (Vertex<L> vertexTemp : vertices) {
-                vertexTemp.removeIncoming(vertexToRemove);
-                vertexTemp.removeOutcoming(vertexToRemove);
+            // remove edges, visiting only the actual neighbours
+            Set<L> sources = vertexToRemove.getIncoming().keySet();
+            Set<L> targets = vertexToRemove.getOutcoming().keySet();
+            for (L source : sources) {
+                findVertex(source).removeOutcoming(vertexToRemove);
+            }
+            for (L target : targets) {
+                findVertex(target).removeIncoming(vertexToRemove);
+            }
+            removeVertex(vertex);
+            for (L source : sources) {
+                checkRep(source);
+            }
+            for (L target : targets) {
+                checkRep(target);
             }
-            vertices.remove(vertexToRemove);
-            checkRep();
             return true;
         }
         else {
@@ -158,35 +293,122 @@ public class ConcreteVerticesGraph<L> implements Graph<L> {
     }
     
     @Override public Set<L> vertices() {
-        Set<L> result = new HashSet<>();
+        if (views) {
+            return Collections.unmodifiableSet(index.keySet());
+        }
+        Set<L> labels = new HashSet<>();
         for (Vertex<L> vertex : vertices) {
-            result.add(vertex.getLabel());
+            labels.add(vertex.getLabel());
         }
-        return result;
+        return labels;
     }
     
     @Override public Map<L, Integer> sources(L target) {
+        if (views) {
+            return new Row(target, true);
+        }
         if (inGraph(target)) {
-            Vertex<L> targetVertex = findVertex(target);
-            return targetVertex.getIncoming();
+            return findVertex(target).getIncoming();
         }
         return new HashMap<L, Integer>();
     }
     
     @Override public Map<L, Integer> targets(L source) {
+        if (views) {
+            return new Row(source, false);
+        }
         if (inGraph(source)) {
-            Vertex<L> sourceVertex = findVertex(source);
-            return sourceVertex.getOutcoming();
+            return findVertex(source).getOutcoming();
         }
         return new HashMap<L, Integer>();
     }
     
+    @Override public int weight(L source, L target) {
+        Vertex<L> sourceVertex = lookUp(source);
+        return sourceVertex == null ? 0 : sourceVertex.getWeightTo(target);
+    }
+    
+    @Override public void forEachTarget(L source, ObjIntConsumer<? super L> visitor) {
+        Vertex<L> sourceVertex = lookUp(source);
+        if (sourceVertex != null) {
+            sourceVertex.forEachOutcoming(visitor);
+        }
+    }
+    
+    @Override public void forEachSource(L target, ObjIntConsumer<? super L> visitor) {
+        Vertex<L> targetVertex = lookUp(target);
+        if (targetVertex != null) {
+            targetVertex.forEachIncoming(visitor);
+        }
+    }
+    
     @Override public String toString() {
-        String result = "";
+        StringBuilder result = new StringBuilder();
         for (Vertex<L> vertex : vertices) {
-            result += vertex.toString();
+            result.append(vertex);
+        }
+        return result.toString();
+    }
+    
+    /**
+     * Immutable view.
+     * Read-only live view of the edges into or out of one vertex, from the
+     * neighbouring label to edge weight. The vertex is looked up on every
+     * access, so the view follows it through remove() and add(), and is
+     * empty while it is not in the graph.
+     */
+    private class Row extends AbstractMap<L, Integer> {
+        
+        private final L vertex;
+        private final boolean incoming;
+        
+        // Abstraction function:
+        //   AF(vertex, incoming) = the incoming edges of the vertex labelled
+        //                          vertex if incoming, otherwise its
+        //                          outcoming edges; empty if there is none
+        // Representation invariant:
+        //   true
+        // Safety from rep exposure:
+        //   only the vertices' unmodifiable views are read, and only labels
+        //   and Integers are given out
+        
+        Row(L vertex, boolean incoming) {
+            this.vertex = vertex;
+            this.incoming = incoming;
+        }
+        
+        // Get the current edges of vertex
+        private Map<L, Integer> edges() {
+            Vertex<L> current = lookUp(vertex);
+            if (current == null) {
+                return Collections.emptyMap();
+            }
+            return incoming ? current.getIncomingView() : current.getOutcomingView();
+        }
+        
+        @Override public int size() {
+            return edges().size();
+        }
+        
+        @Override public boolean containsKey(Object key) {
+            return edges().containsKey(key);
+        }
+        
+        @Override public Integer get(Object key) {
+            return edges().get(key);
+        }
+        
+        @Override public Set<Map.Entry<L, Integer>> entrySet() {
+            return new AbstractSet<Map.Entry<L, Integer>>() {
+                @Override public int size() {
+                    return edges().size();
+                }
+                
+                @Override public Iterator<Map.Entry<L, Integer>> iterator() {
+                    return edges().entrySet().iterator();
+                }
+            };
         }
-        return result;
     }
     
 }
@@ -219,7 +441,8 @@ class Vertex<L> {
     // Safety from rep exposure:
     //   all fields are private and final;
     //   inEdges and outEdges are mutable Map, so getIncoming() and getOurcoming() 
-    //   make defensive copies to avoid sharing the rep with clients.
+    //   make defensive copies to avoid sharing the rep with clients;
+    //   getIncomingView() and getOutcomingView() wrap them as unmodifiable.
     
     // constructor
     /**
@@ -271,6 +494,57 @@ class Vertex<L> {
         return new HashMap<L, Integer>(outEdges);
     }
     
+    /**
+     * Get a read-only view of the incoming edges of the vertex
+     * 
+     * @return unmodifiable live view of the incoming edges
+     */
+    public Map<L, Integer> getIncomingView() {
+        return Collections.unmodifiableMap(inEdges);
+    }
+    
+    /**
+     * Get a read-only view of the outcoming edges of the vertex
+     * 
+     * @return unmodifiable live view of the outcoming edges
+     */
+    public Map<L, Integer> getOutcomingView() {
+        return Collections.unmodifiableMap(outEdges);
+    }
+    
+    /**
+     * Get the weight of an outcoming edge of the vertex
+     * 
+     * @param target label of the target vertex
+     * @return weight of the edge to target, or zero if there is no such edge
+     */
+    public int getWeightTo(L target) {
+        Integer weight = outEdges.get(target);
+        return weight == null ? 0 : weight;
+    }
+    
+    /**
+     * Visit the incoming edges of the vertex
+     * 
+     * @param visitor called with the source and weight of each incoming edge
+     */
+    public void forEachIncoming(ObjIntConsumer<? super L> visitor) {
+        for (Map.Entry<L, Integer> edge : inEdges.entrySet()) {
+            visitor.accept(edge.getKey(), edge.getValue());
+        }
+    }
+    
+    /**
+     * Visit the outcoming edges of the vertex
+     * 
+     * @param visitor called with the target and weight of each outcoming edge
+     */
+    public void forEachOutcoming(ObjIntConsumer<? super L> visitor) {
+        for (Map.Entry<L, Integer> edge : outEdges.entrySet()) {
+            visitor.accept(edge.getKey(), edge.getValue());
+        }
+    }
+    
     /**
      * Add an incoming edge to this vertex and an outcoming edge
      * to the source vertex.  
@@ -364,7 +638,7 @@ class Vertex<L> {
     }
     
     @Override public String toString() {
-        return label + ": inEdges" + getIncoming().toString() 
-               + "\toutEdges" + getOutcoming().toString() + "\n";
+        return label + ": inEdges" + inEdges.toString() 
+               + "\toutEdges" + outEdges.toString() + "\n";
     }
 }
\ No newline at end of file
@@ -0,0 +1,319 @@
+package graph;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A thread-safe implementation of Graph.
+ *
+ * <p>Adjacency is kept in concurrent maps, and writers lock a stripe chosen by
+ * the source vertex. set(), addWeight() and add() are linearizable and only
+ * contend with writers to sources in the same stripe; remove() locks every
+ * stripe.
+ * Readers never block: vertices(), sources() and targets() return copies
+ * that are weakly consistent, i.e. they reflect some, but not necessarily
+ * all, writes that run concurrently with them.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class ConcurrentGraph<L> implements WeightedGraph<L> {
+
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final ConcurrentMap<L, ConcurrentMap<L, Integer>> outEdges = new ConcurrentHashMap<>();
+    private final ConcurrentMap<L, ConcurrentMap<L, Integer>> inEdges = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+
+    // Abstraction function:
+    //   AF(outEdges, inEdges) = a directed graph whose vertices are the keys of
+    //                           outEdges, with an edge from s to t of weight
+    //                           outEdges.get(s).get(t) for every such entry
+    //
+    // Representation invariant:
+    //   outEdges and inEdges have the same key set;
+    //   outEdges.get(s).get(t) == inEdges.get(t).get(s) for every edge,
+    //   and that weight is positive
+    //   (both hold whenever no writer holds a stripe lock)
+    //
+    // Safety from rep exposure:
+    //   all fields are private and final;
+    //   vertices(), sources() and targets() return new collections.
+    //
+    // Thread safety argument:
+    //   every write to outEdges.get(s) or to the s entries of inEdges happens
+    //   while holding stripe(s), so updates of an edge are serialized and
+    //   its out- and in-entries change together;
+    //   add() of a new vertex holds stripe(vertex), and puts it in inEdges
+    //   before outEdges, so a vertex visible in outEdges has both rows;
+    //   remove() holds every stripe, so no other write can run at the same time;
+    //   readers only use the concurrent maps, whose reads are thread-safe.
+
+    /**
+     * Create an empty ConcurrentGraph
+     */
+    public ConcurrentGraph() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Create an empty ConcurrentGraph with a given number of lock stripes.
+     *
+     * @param stripes number of lock stripes, must be positive
+     */
+    public ConcurrentGraph(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("stripes must be positive: " + stripes);
+        }
+        this.stripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        checkRep();
+    }
+
+    // Check that the rep invariant is true.
+    // Only checks what can be checked without locking everything.
+    private void checkRep() {
+        assert stripes.length > 0;
+    }
+
+    private ReentrantLock stripe(L vertex) {
+        int hash = vertex.hashCode();
+        return stripes[Math.floorMod(hash ^ (hash >>> 16), stripes.length)];
+    }
+
+    // Add vertex if it is missing; caller must hold stripe(vertex)
+    private boolean addLocked(L vertex) {
+        if (outEdges.containsKey(vertex)) {
+            return false;
+        }
+        inEdges.put(vertex, new ConcurrentHashMap<>());
+        outEdges.put(vertex, new ConcurrentHashMap<>());
+        return true;
+    }
+
+    @Override public boolean add(L vertex) {
+        if (outEdges.containsKey(vertex)) {
+            return false;
+        }
+        ReentrantLock lock = stripe(vertex);
+        lock.lock();
+        try {
+            return addLocked(vertex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override public int set(L source, L target, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("negative weight " + weight);
+        }
+        ReentrantLock sourceLock = stripe(source);
+        sourceLock.lock();
+        try {
+            if (weight == 0) {
+                ConcurrentMap<L, Integer> sourceOut = outEdges.get(source);
+                Integer oldWeight = sourceOut == null ? null : sourceOut.remove(target);
+                if (oldWeight == null) {
+                    return 0;
+                }
+                inEdges.get(target).remove(source);
+                return oldWeight;
+            }
+            addTarget(target, sourceLock);
+            addLocked(source);
+            Integer oldWeight = outEdges.get(source).put(target, weight);
+            inEdges.get(target).put(source, weight);
+            return oldWeight == null ? 0 : oldWeight;
+        } finally {
+            sourceLock.unlock();
+        }
+    }
+
+    @Override public int addWeight(L source, L target, int delta) {
+        ReentrantLock sourceLock = stripe(source);
+        sourceLock.lock();
+        try {
+            while (true) {
+                ConcurrentMap<L, Integer> sourceOut = outEdges.get(source);
+                Integer oldWeight = sourceOut == null ? null : sourceOut.get(target);
+                int weight = (oldWeight == null ? 0 : oldWeight) + delta;
+                if (weight < 0) {
+                    throw new IllegalArgumentException("weight of " + source + "->" + target + " would be " + weight);
+                }
+                if (weight == 0) {
+                    if (oldWeight != null) {
+                        sourceOut.remove(target);
+                        inEdges.get(target).remove(source);
+                    }
+                    return 0;
+                }
+                if (!addTarget(target, sourceLock)) {
+                    // sourceLock was released, so the edge may have changed
+                    continue;
+                }
+                addLocked(source);
+                outEdges.get(source).put(target, weight);
+                inEdges.get(target).put(source, weight);
+                return weight;
+            }
+        } finally {
+            sourceLock.unlock();
+        }
+    }
+
+    // Make sure target is a vertex, given that the caller holds sourceLock.
+    // Returns false if sourceLock had to be released and reacquired on the way.
+    private boolean addTarget(L target, ReentrantLock sourceLock) {
+        if (outEdges.containsKey(target)) {
+            return true;
+        }
+        ReentrantLock targetLock = stripe(target);
+        if (targetLock == sourceLock) {
+            addLocked(target);
+            return true;
+        }
+        // never wait for a second stripe while holding one: stripes may only
+        // be waited for in index order, which remove() relies on
+        if (targetLock.tryLock()) {
+            try {
+                addLocked(target);
+            } finally {
+                targetLock.unlock();
+            }
+            return true;
+        }
+        // the target stripe is busy: add the vertex under the target stripe
+        // alone, without the source stripe in between
+        sourceLock.unlock();
+        try {
+            add(target);
+        } finally {
+            sourceLock.lock();
+        }
+        // a remove() may have run while sourceLock was released
+        addTarget(target, sourceLock);
+        return false;
+    }
+
+    @Override public boolean remove(L vertex) {
+        if (!outEdges.containsKey(vertex)) {
+            return false;
+        }
+        for (ReentrantLock lock : stripes) {
+            lock.lock();
+        }
+        try {
+            Map<L, Integer> out = outEdges.remove(vertex);
+            if (out == null) {
+                return false;
+            }
+            Map<L, Integer> in = inEdges.remove(vertex);
+            for (L target : out.keySet()) {
+                Map<L, Integer> targetIn = inEdges.get(target);
+                if (targetIn != null) {
+                    targetIn.remove(vertex);
+                }
+            }
+            for (L source : in.keySet()) {
+                Map<L, Integer> sourceOut = outEdges.get(source);
+                if (sourceOut != null) {
+                    sourceOut.remove(vertex);
+                }
+            }
+            return true;
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                stripes[i].unlock();
+            }
+        }
+    }
+
+    @Override public Set<L> vertices() {
+        return new HashSet<L>(outEdges.keySet());
+    }
+
+    @Override public Map<L, Integer> sources(L target) {
+        Map<L, Integer> row = inEdges.get(target);
+        return row == null ? new HashMap<>() : new HashMap<>(row);
+    }
+
+    @Override public Map<L, Integer> targets(L source) {
+        Map<L, Integer> row = outEdges.get(source);
+        return row == null ? new HashMap<>() : new HashMap<>(row);
+    }
+
+    @Override public int weight(L source, L target) {
+        Map<L, Integer> row = outEdges.get(source);
+        Integer weight = row == null ? null : row.get(target);
+        return weight == null ? 0 : weight;
+    }
+
+    /**
+     * Count the edges directed out of a vertex, without copying them.
+     * Weakly consistent, like targets().
+     *
+     * @param source label of a vertex
+     * @return number of edges from source, 0 if it is not in the graph
+     */
+    public int outDegree(L source) {
+        Map<L, Integer> row = outEdges.get(source);
+        return row == null ? 0 : row.size();
+    }
+
+    /**
+     * Count the edges directed into a vertex, without copying them.
+     * Weakly consistent, like sources().
+     *
+     * @param target label of a vertex
+     * @return number of edges to target, 0 if it is not in the graph
+     */
+    public int inDegree(L target) {
+        Map<L, Integer> row = inEdges.get(target);
+        return row == null ? 0 : row.size();
+    }
+
+    /**
+     * Visit every edge directed out of a vertex, as WeightedGraph describes.
+     * Weakly consistent, like targets(), and may run while other threads
+     * modify the graph.
+     */
+    @Override public void forEachTarget(L source, ObjIntConsumer<? super L> visitor) {
+        ConcurrentMap<L, Integer> row = outEdges.get(source);
+        if (row != null) {
+            // ConcurrentHashMap.forEach() does not allocate an entry per edge
+            row.forEach((neighbour, weight) -> visitor.accept(neighbour, weight));
+        }
+    }
+
+    /**
+     * Visit every edge directed into a vertex, as WeightedGraph describes.
+     * Weakly consistent, like sources(), and may run while other threads
+     * modify the graph.
+     */
+    @Override public void forEachSource(L target, ObjIntConsumer<? super L> visitor) {
+        ConcurrentMap<L, Integer> row = inEdges.get(target);
+        if (row != null) {
+            row.forEach((neighbour, weight) -> visitor.accept(neighbour, weight));
+        }
+    }
+
+    @Override public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (Map.Entry<L, ConcurrentMap<L, Integer>> row : outEdges.entrySet()) {
+            for (Map.Entry<L, Integer> edge : row.getValue().entrySet()) {
+                result.append(row.getKey()).append("->").append(edge.getKey())
+                      .append("(weight = ").append(edge.getValue()).append(")\n");
+            }
+        }
+        return result.toString();
+    }
+
+}
@@ -0,0 +1,16 @@
+package graph;
+
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Mutable.
+ * Edge visitor that counts the edges it is shown.
+ */
+class EdgeCounter implements ObjIntConsumer<Object> {
+
+    int count = 0;
+
+    @Override public void accept(Object neighbour, int weight) {
+        count++;
+    }
+}
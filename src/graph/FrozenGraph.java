@@ -0,0 +1,292 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * An immutable, read-optimized snapshot of a Graph.
+ *
+ * <p>Vertices get dense int ids (in natural label order when the labels are
+ * mutually Comparable) and edges are stored in sorted compressed-sparse-row
+ * arrays with precomputed degrees. vertices(), sources() and targets() return
+ * unmodifiable views of those arrays instead of copies. Mutators throw
+ * UnsupportedOperationException.
+ *
+ * <p>A FrozenGraph is safe to share between threads without synchronization.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public final class FrozenGraph<L> implements WeightedGraph<L>, IntAdjacency<L> {
+
+    private final Object[] labels;
+    private final Map<L, Integer> ids;
+    private final Set<L> vertices;
+    private final int[] outStart;
+    private final int[] outTargets;
+    private final int[] outWeights;
+    private final int[] inStart;
+    private final int[] inSources;
+    private final int[] inWeights;
+
+    // Abstraction function:
+    //   AF(labels, outStart, outTargets, outWeights) =
+    //       a directed graph with a vertex labels[i] for every id i, and an
+    //       edge from labels[s] to labels[outTargets[j]] with weight
+    //       outWeights[j] for every outStart[s] <= j < outStart[s + 1]
+    //
+    // Representation invariant:
+    //   ids.get(labels[i]) == i for every id, and ids has no other entries;
+    //   vertices == unmodifiable ids.keySet();
+    //   outStart and inStart have length labels.length + 1, start at 0, are
+    //     nondecreasing and end at the number of edges;
+    //   every row of outTargets / inSources is strictly increasing;
+    //   in* is the transpose of out*; all weights > 0
+    //
+    // Safety from rep exposure:
+    //   all fields are private and final, and never mutated after
+    //   construction;
+    //   vertices is unmodifiable; sources() and targets() return read-only
+    //   views; labels are immutable.
+    //
+    // Thread safety argument:
+    //   the rep is immutable and every field is final, so a FrozenGraph is
+    //   safely published by its constructor.
+
+    /**
+     * Get an immutable snapshot of a graph.
+     *
+     * @param <L> type of vertex labels in the graph, must be immutable
+     * @param graph graph to snapshot; not modified
+     * @return a FrozenGraph with the same vertices and edges as graph
+     */
+    public static <L> FrozenGraph<L> of(Graph<L> graph) {
+        if (graph instanceof FrozenGraph) {
+            return (FrozenGraph<L>) graph;
+        }
+        return new FrozenGraph<>(graph);
+    }
+
+    private FrozenGraph(Graph<L> graph) {
+        labels = graph.vertices().toArray();
+        try {
+            Arrays.sort(labels);
+        } catch (ClassCastException e) {
+            // labels are not mutually comparable; keep vertices() order
+        }
+        Map<L, Integer> index = new HashMap<>();
+        for (int i = 0; i < labels.length; i++) {
+            index.put(label(i), i);
+        }
+        ids = index;
+        vertices = Collections.unmodifiableSet(index.keySet());
+
+        outStart = new int[labels.length + 1];
+        inStart = new int[labels.length + 1];
+        int[][] rows = new int[labels.length][];
+        int[][] rowWeights = new int[labels.length][];
+        for (int s = 0; s < labels.length; s++) {
+            Map<L, Integer> targets = graph.targets(label(s));
+            int[] row = new int[targets.size()];
+            int i = 0;
+            for (L target : targets.keySet()) {
+                row[i++] = index.get(target);
+            }
+            Arrays.sort(row);
+            int[] weights = new int[row.length];
+            for (i = 0; i < row.length; i++) {
+                weights[i] = targets.get(label(row[i]));
+                inStart[row[i] + 1]++;
+            }
+            rows[s] = row;
+            rowWeights[s] = weights;
+            outStart[s + 1] = outStart[s] + row.length;
+        }
+        for (int t = 0; t < labels.length; t++) {
+            inStart[t + 1] += inStart[t];
+        }
+
+        int edges = outStart[labels.length];
+        outTargets = new int[edges];
+        outWeights = new int[edges];
+        inSources = new int[edges];
+        inWeights = new int[edges];
+        int[] inNext = Arrays.copyOf(inStart, labels.length);
+        // visiting sources in increasing order keeps every in-row sorted
+        for (int s = 0; s < labels.length; s++) {
+            System.arraycopy(rows[s], 0, outTargets, outStart[s], rows[s].length);
+            System.arraycopy(rowWeights[s], 0, outWeights, outStart[s], rows[s].length);
+            for (int i = 0; i < rows[s].length; i++) {
+                int j = inNext[rows[s][i]]++;
+                inSources[j] = s;
+                inWeights[j] = rowWeights[s][i];
+            }
+        }
+        checkRep();
+    }
+
+    // Check that the rep invariant is true
+    private void checkRep() {
+        assert ids.size() == labels.length;
+        assert outStart[labels.length] == outTargets.length;
+        assert inStart[labels.length] == inSources.length;
+    }
+
+    /**
+     * Get the id of a vertex.
+     *
+     * @param label a label
+     * @return id of the vertex with that label, or -1 if there is none
+     */
+    @Override public int id(L label) {
+        Integer id = ids.get(label);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param id id of a vertex, in [0, vertexCount())
+     * @return label of that vertex
+     */
+    @SuppressWarnings("unchecked")
+    @Override public L label(int id) {
+        return (L) labels[id];
+    }
+
+    /**
+     * @return number of vertices in this graph; vertex ids are
+     *         0 .. vertexCount() - 1
+     */
+    @Override public int vertexCount() {
+        return labels.length;
+    }
+
+    /**
+     * @param source id of a vertex
+     * @return number of edges from that vertex
+     */
+    @Override public int outDegree(int source) {
+        return outStart[source + 1] - outStart[source];
+    }
+
+    /**
+     * @param source id of a vertex
+     * @param i index in [0, outDegree(source))
+     * @return id of the i-th target of source, in increasing id order
+     */
+    @Override public int target(int source, int i) {
+        return outTargets[outStart[source] + IntAdjacencies.checkIndex(i, outDegree(source))];
+    }
+
+    /**
+     * @param source id of a vertex
+     * @param i index in [0, outDegree(source))
+     * @return weight of the edge to target(source, i)
+     */
+    @Override public int targetWeight(int source, int i) {
+        return outWeights[outStart[source] + IntAdjacencies.checkIndex(i, outDegree(source))];
+    }
+
+    /**
+     * @param target id of a vertex
+     * @return number of edges to that vertex
+     */
+    @Override public int inDegree(int target) {
+        return inStart[target + 1] - inStart[target];
+    }
+
+    /**
+     * @param target id of a vertex
+     * @param i index in [0, inDegree(target))
+     * @return id of the i-th source of target, in increasing id order
+     */
+    @Override public int source(int target, int i) {
+        return inSources[inStart[target] + IntAdjacencies.checkIndex(i, inDegree(target))];
+    }
+
+    /**
+     * @param target id of a vertex
+     * @param i index in [0, inDegree(target))
+     * @return weight of the edge from source(target, i)
+     */
+    @Override public int sourceWeight(int target, int i) {
+        return inWeights[inStart[target] + IntAdjacencies.checkIndex(i, inDegree(target))];
+    }
+
+    /**
+     * @param source id of a vertex
+     * @param target id of a vertex
+     * @return weight of the edge from source to target, or zero if there is
+     *         no such edge
+     */
+    @Override public int weightById(int source, int target) {
+        int j = Arrays.binarySearch(outTargets, outStart[source], outStart[source + 1], target);
+        return j < 0 ? 0 : outWeights[j];
+    }
+
+    @Override public boolean add(L vertex) {
+        throw new UnsupportedOperationException("FrozenGraph is immutable");
+    }
+
+    @Override public int set(L source, L target, int weight) {
+        throw new UnsupportedOperationException("FrozenGraph is immutable");
+    }
+
+    @Override public int addWeight(L source, L target, int delta) {
+        throw new UnsupportedOperationException("FrozenGraph is immutable");
+    }
+
+    @Override public boolean remove(L vertex) {
+        throw new UnsupportedOperationException("FrozenGraph is immutable");
+    }
+
+    @Override public Set<L> vertices() {
+        return vertices;
+    }
+
+    @Override public Map<L, Integer> sources(L target) {
+        int id = id(target);
+        if (id < 0) {
+            return Collections.emptyMap();
+        }
+        return IntAdjacencies.sources(this, id);
+    }
+
+    @Override public Map<L, Integer> targets(L source) {
+        int id = id(source);
+        if (id < 0) {
+            return Collections.emptyMap();
+        }
+        return IntAdjacencies.targets(this, id);
+    }
+
+    @Override public int weight(L source, L target) {
+        int s = id(source);
+        int t = id(target);
+        return s < 0 || t < 0 ? 0 : weightById(s, t);
+    }
+
+    @Override public void forEachTarget(L source, ObjIntConsumer<? super L> visitor) {
+        int id = id(source);
+        if (id >= 0) {
+            for (int j = outStart[id]; j < outStart[id + 1]; j++) {
+                visitor.accept(label(outTargets[j]), outWeights[j]);
+            }
+        }
+    }
+
+    @Override public void forEachSource(L target, ObjIntConsumer<? super L> visitor) {
+        int id = id(target);
+        if (id >= 0) {
+            for (int j = inStart[id]; j < inStart[id + 1]; j++) {
+                visitor.accept(label(inSources[j]), inWeights[j]);
+            }
+        }
+    }
+
+    @Override public String toString() {
+        return IntAdjacencies.toString(this);
+    }
+}
@@ -0,0 +1,321 @@
+package graph;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming export of graphs as an edge list, Graphviz DOT or GraphML, and
+ * import of the edge-list format.
+ *
+ * <p>Exporters write each vertex and edge as they visit it, using
+ * {@link WeightedGraph#forEachTarget}, so apart from whatever vertices()
+ * costs the graph they need constant memory. The edge-list and DOT exporters
+ * write a vertex on its own for every vertex with no outgoing edges, which
+ * may also appear as the target of an edge. Labels are written with
+ * toString(). Output is buffered and flushed at the end; the Writer or
+ * channel is not closed.
+ *
+ * <p>Edge-list format, UTF-8, one line per record:
+ * <pre>
+ *   source TAB target TAB weight    an edge
+ *   label                           a vertex with no outgoing edges
+ * </pre>
+ * where backslash, tab, carriage return and newline in labels are written
+ * as \\, \t, \r and \n.
+ */
+public final class GraphIO {
+
+    private GraphIO() {
+        throw new AssertionError("GraphIO is not instantiable");
+    }
+
+    /**
+     * Write a graph in edge-list format.
+     *
+     * @param <L> type of vertex labels in the graph
+     * @param graph graph to write; not modified
+     * @param out where to write it
+     * @throws IOException if out cannot be written
+     */
+    public static <L> void writeEdgeList(Graph<L> graph, Writer out) throws IOException {
+        Writer buffered = buffer(out);
+        WeightedGraph<L> weighted = WeightedGraph.of(graph);
+        for (L source : graph.vertices()) {
+            String sourceField = escapeField(source.toString());
+            int edges = visit(weighted, source, (target, weight) -> {
+                buffered.write(sourceField);
+                buffered.write('\t');
+                buffered.write(escapeField(target.toString()));
+                buffered.write('\t');
+                buffered.write(Integer.toString(weight));
+                buffered.write('\n');
+            });
+            if (edges == 0) {
+                buffered.write(sourceField);
+                buffered.write('\n');
+            }
+        }
+        buffered.flush();
+    }
+
+    /**
+     * Write a graph as a Graphviz DOT digraph, with each weight as the
+     * weight and label of its edge.
+     *
+     * @param <L> type of vertex labels in the graph
+     * @param graph graph to write; not modified
+     * @param out where to write it
+     * @throws IOException if out cannot be written
+     */
+    public static <L> void writeDot(Graph<L> graph, Writer out) throws IOException {
+        Writer buffered = buffer(out);
+        WeightedGraph<L> weighted = WeightedGraph.of(graph);
+        buffered.write("digraph G {\n");
+        for (L source : graph.vertices()) {
+            String sourceId = quoteDot(source.toString());
+            int edges = visit(weighted, source, (target, weight) -> {
+                buffered.write("  ");
+                buffered.write(sourceId);
+                buffered.write(" -> ");
+                buffered.write(quoteDot(target.toString()));
+                buffered.write(" [weight=" + weight + ", label=" + weight + "];\n");
+            });
+            if (edges == 0) {
+                // a redundant node statement if source is also a target
+                buffered.write("  ");
+                buffered.write(sourceId);
+                buffered.write(";\n");
+            }
+        }
+        buffered.write("}\n");
+        buffered.flush();
+    }
+
+    /**
+     * Write a graph as a directed GraphML graph, with each weight as an int
+     * "weight" attribute of its edge. out should encode UTF-8, as the XML
+     * declaration says.
+     *
+     * @param <L> type of vertex labels in the graph
+     * @param graph graph to write; not modified
+     * @param out where to write it
+     * @throws IOException if out cannot be written
+     * @throws IllegalArgumentException if a label has a character that XML
+     *         1.0 cannot hold, such as a control character other than tab,
+     *         newline and carriage return; out may then hold part of the
+     *         graph
+     */
+    public static <L> void writeGraphML(Graph<L> graph, Writer out) throws IOException {
+        Writer buffered = buffer(out);
+        WeightedGraph<L> weighted = WeightedGraph.of(graph);
+        buffered.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n"
+                + "  <key id=\"weight\" for=\"edge\" attr.name=\"weight\" attr.type=\"int\"/>\n"
+                + "  <graph id=\"G\" edgedefault=\"directed\">\n");
+        // GraphML declares every node before the edges that refer to it
+        for (L vertex : graph.vertices()) {
+            buffered.write("    <node id=\"");
+            buffered.write(escapeXml(vertex.toString()));
+            buffered.write("\"/>\n");
+        }
+        for (L source : graph.vertices()) {
+            String sourceId = escapeXml(source.toString());
+            visit(weighted, source, (target, weight) -> {
+                buffered.write("    <edge source=\"");
+                buffered.write(sourceId);
+                buffered.write("\" target=\"");
+                buffered.write(escapeXml(target.toString()));
+                buffered.write("\"><data key=\"weight\">" + weight + "</data></edge>\n");
+            });
+        }
+        buffered.write("  </graph>\n</graphml>\n");
+        buffered.flush();
+    }
+
+    /**
+     * Get a buffered UTF-8 Writer to a channel, for the write methods.
+     * Closing the Writer closes the channel.
+     *
+     * @param channel channel to write to
+     * @return a Writer that encodes UTF-8 to channel
+     */
+    public static Writer writer(WritableByteChannel channel) {
+        return new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Read a graph in edge-list format. Each edge is added with set(), so
+     * a later line for the same edge replaces its weight.
+     *
+     * @param <G> type of the graph to read into
+     * @param in edge list to read; read to the end but not closed
+     * @param graph graph to add the vertices and edges to
+     * @return graph
+     * @throws IOException if in cannot be read or is not a valid edge list;
+     *                     graph may then hold the lines read so far
+     */
+    public static <G extends Graph<String>> G readEdgeList(Reader in, G graph) throws IOException {
+        BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        int lineNumber = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            lineNumber++;
+            int firstTab = line.indexOf('\t');
+            if (firstTab < 0) {
+                graph.add(unescapeField(line, lineNumber));
+                continue;
+            }
+            int secondTab = line.indexOf('\t', firstTab + 1);
+            if (secondTab < 0 || line.indexOf('\t', secondTab + 1) >= 0) {
+                throw new IOException("line " + lineNumber + ": expected 1 or 3 fields");
+            }
+            int weight;
+            try {
+                weight = Integer.parseInt(line.substring(secondTab + 1));
+            } catch (NumberFormatException e) {
+                throw new IOException("line " + lineNumber + ": bad weight", e);
+            }
+            if (weight <= 0) {
+                throw new IOException("line " + lineNumber + ": weight must be positive");
+            }
+            graph.set(unescapeField(line.substring(0, firstTab), lineNumber),
+                      unescapeField(line.substring(firstTab + 1, secondTab), lineNumber), weight);
+        }
+        return graph;
+    }
+
+    /**
+     * An edge visitor that may throw IOException.
+     */
+    @FunctionalInterface
+    private interface EdgeWriter<L> {
+        void write(L neighbour, int weight) throws IOException;
+    }
+
+    // Visit the edges out of source with a visitor that may throw
+    // IOException; returns the number of edges visited
+    private static <L> int visit(WeightedGraph<L> graph, L source, EdgeWriter<? super L> writer)
+            throws IOException {
+        EdgeCounter counter = new EdgeCounter();
+        try {
+            graph.forEachTarget(source, (target, weight) -> {
+                counter.accept(target, weight);
+                try {
+                    writer.write(target, weight);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return counter.count;
+    }
+
+    private static Writer buffer(Writer out) {
+        return out instanceof BufferedWriter ? out : new BufferedWriter(out);
+    }
+
+    private static String escapeField(String label) {
+        StringBuilder result = null;
+        for (int i = 0; i < label.length(); i++) {
+            char c = label.charAt(i);
+            String escape = switch (c) {
+                case '\\' -> "\\\\";
+                case '\t' -> "\\t";
+                case '\r' -> "\\r";
+                case '\n' -> "\\n";
+                default -> null;
+            };
+            if (escape != null && result == null) {
+                result = new StringBuilder(label.length() + 8).append(label, 0, i);
+            }
+            if (result != null) {
+                if (escape != null) {
+                    result.append(escape);
+                } else {
+                    result.append(c);
+                }
+            }
+        }
+        return result == null ? label : result.toString();
+    }
+
+    private static String unescapeField(String field, int lineNumber) throws IOException {
+        if (field.indexOf('\\') < 0) {
+            return field;
+        }
+        StringBuilder result = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c != '\\') {
+                result.append(c);
+                continue;
+            }
+            if (++i == field.length()) {
+                throw new IOException("line " + lineNumber + ": backslash at end of label");
+            }
+            switch (field.charAt(i)) {
+                case '\\' -> result.append('\\');
+                case 't' -> result.append('\t');
+                case 'r' -> result.append('\r');
+                case 'n' -> result.append('\n');
+                default -> throw new IOException("line " + lineNumber + ": bad escape \\" + field.charAt(i));
+            }
+        }
+        return result.toString();
+    }
+
+    private static String quoteDot(String label) {
+        StringBuilder result = new StringBuilder(label.length() + 2).append('"');
+        for (int i = 0; i < label.length(); i++) {
+            char c = label.charAt(i);
+            switch (c) {
+                case '"' -> result.append("\\\"");
+                case '\\' -> result.append("\\\\");
+                case '\n' -> result.append("\\n");
+                case '\r' -> result.append("\\r");
+                default -> result.append(c);
+            }
+        }
+        return result.append('"').toString();
+    }
+
+    private static String escapeXml(String label) {
+        StringBuilder result = new StringBuilder(label.length());
+        for (int i = 0; i < label.length(); i++) {
+            char c = label.charAt(i);
+            switch (c) {
+                case '&' -> result.append("&amp;");
+                case '<' -> result.append("&lt;");
+                case '>' -> result.append("&gt;");
+                case '"' -> result.append("&quot;");
+                case '\'' -> result.append("&apos;");
+                case '\t' -> result.append("&#9;");
+                case '\n' -> result.append("&#10;");
+                case '\r' -> result.append("&#13;");
+                default -> {
+                    // XML 1.0 has no way, not even a character reference, to
+                    // write other controls, U+FFFE, U+FFFF or a lone surrogate
+                    boolean pair = Character.isHighSurrogate(c) && i + 1 < label.length()
+                            && Character.isLowSurrogate(label.charAt(i + 1));
+                    if (c < 0x20 || c == 0xFFFE || c == 0xFFFF || (Character.isSurrogate(c) && !pair)) {
+                        throw new IllegalArgumentException(String.format(
+                                "label %s has character U+%04X, which XML cannot hold", quoteDot(label), (int) c));
+                    }
+                    result.append(c);
+                    if (pair) {
+                        result.append(label.charAt(++i));
+                    }
+                }
+            }
+        }
+        return result.toString();
+    }
+}
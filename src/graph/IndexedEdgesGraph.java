@@ -0,0 +1,379 @@
+package graph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * An implementation of Graph that indexes its edges by source and by target.
+ *
+ * <p>Same edge representation as ConcreteEdgesGraph, but edges are kept in
+ * hash maps instead of a list: set() and edge lookups are O(1), and
+ * sources() and targets() are O(degree) instead of O(number of edges).
+ */
+public class IndexedEdgesGraph<L> implements WeightedGraph<L> {
+
+    private final Map<L, Map<L, Edge<L>>> outEdges = new HashMap<>();
+    private final Map<L, Map<L, Edge<L>>> inEdges = new HashMap<>();
+    private final boolean views;
+
+    // Abstraction function:
+    //   AF(outEdges, inEdges) = a directed graph whose vertices are the keys of
+    //                           outEdges, with an edge outEdges.get(s).get(t)
+    //                           from s to t for every such entry
+    //
+    // Representation invariant:
+    //   outEdges and inEdges have the same key set;
+    //   outEdges.get(s).get(t) == inEdges.get(t).get(s) for every edge,
+    //     and that edge has source s, target t and positive weight
+    //
+    // Safety from rep exposure:
+    //   all fields are private and final;
+    //   the maps are mutable, so vertices(), sources() and targets() return
+    //   new collections instead of views of the rep, unless views is true,
+    //   in which case they return unmodifiable views that only give out
+    //   labels and Integers;
+    //   Edge is immutable.
+
+    // constructor
+    /**
+     * Create an empty IndexedEdgesGraph
+     */
+    public IndexedEdgesGraph() {
+        this(false);
+    }
+
+    /**
+     * Create an empty IndexedEdgesGraph, choosing what vertices(), sources()
+     * and targets() return.
+     *
+     * @param views if true, they return unmodifiable live views of the graph,
+     *              which are O(1) to get and reflect later changes to it
+     *              (iterating one while the graph changes has undefined
+     *              results); if false, they return new copies, as Graph
+     *              describes
+     */
+    public IndexedEdgesGraph(boolean views) {
+        this.views = views;
+        checkRep();
+    }
+
+    // Check that the rep invariant is true.
+    // Only checks the key sets, so that each operation stays O(degree)
+    // when assertions are enabled.
+    private void checkRep() {
+        assert outEdges.size() == inEdges.size();
+    }
+
+    // methods
+
+    @Override public boolean add(L vertex) {
+        if (outEdges.containsKey(vertex)) {
+            return false;
+        }
+        outEdges.put(vertex, new HashMap<>());
+        inEdges.put(vertex, new HashMap<>());
+        checkRep();
+        return true;
+    }
+
+    @Override public int set(L source, L target, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("negative weight " + weight);
+        }
+        Map<L, Edge<L>> sourceOut = outEdges.get(source);
+        Edge<L> edge = sourceOut == null ? null : sourceOut.get(target);
+        int oldWeight = edge == null ? 0 : edge.getWeight();
+
+        if (weight == 0) {
+            if (edge != null) {
+                sourceOut.remove(target);
+                inEdges.get(target).remove(source);
+            }
+            checkRep();
+            return oldWeight;
+        }
+        add(source);
+        add(target);
+        Edge<L> newEdge = new Edge<L>(source, target, weight);
+        outEdges.get(source).put(target, newEdge);
+        inEdges.get(target).put(source, newEdge);
+        checkRep();
+        return oldWeight;
+    }
+
+    @Override public int addWeight(L source, L target, int delta) {
+        Map<L, Edge<L>> sourceOut = outEdges.get(source);
+        Edge<L> edge = sourceOut == null ? null : sourceOut.get(target);
+        int weight = (edge == null ? 0 : edge.getWeight()) + delta;
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight of " + source + "->" + target + " would be " + weight);
+        }
+        if (weight == 0) {
+            if (edge != null) {
+                sourceOut.remove(target);
+                inEdges.get(target).remove(source);
+            }
+            checkRep();
+            return 0;
+        }
+        if (sourceOut == null) {
+            add(source);
+            sourceOut = outEdges.get(source);
+        }
+        add(target);
+        Edge<L> newEdge = new Edge<L>(source, target, weight);
+        sourceOut.put(target, newEdge);
+        inEdges.get(target).put(source, newEdge);
+        checkRep();
+        return weight;
+    }
+
+    @Override public void addWeights(Map<L, ? extends Map<L, Integer>> deltas) {
+        for (Map.Entry<L, ? extends Map<L, Integer>> batch : deltas.entrySet()) {
+            L source = batch.getKey();
+            int newEdges = 0;
+            for (int delta : batch.getValue().values()) {
+                newEdges += delta > 0 ? 1 : 0;
+            }
+            if (newEdges > 0 && !outEdges.containsKey(source)) {
+                // new source: size its row for the whole batch up front
+                outEdges.put(source, new HashMap<>(2 * newEdges));
+                inEdges.put(source, new HashMap<>());
+            }
+            for (Map.Entry<L, Integer> delta : batch.getValue().entrySet()) {
+                addWeight(source, delta.getKey(), delta.getValue());
+            }
+        }
+    }
+
+    @Override public boolean remove(L vertex) {
+        Map<L, Edge<L>> out = outEdges.remove(vertex);
+        if (out == null) {
+            return false;
+        }
+        Map<L, Edge<L>> in = inEdges.remove(vertex);
+        for (L target : out.keySet()) {
+            Map<L, Edge<L>> targetIn = inEdges.get(target);
+            if (targetIn != null) {
+                targetIn.remove(vertex);
+            }
+        }
+        for (L source : in.keySet()) {
+            Map<L, Edge<L>> sourceOut = outEdges.get(source);
+            if (sourceOut != null) {
+                sourceOut.remove(vertex);
+            }
+        }
+        checkRep();
+        return true;
+    }
+
+    @Override public int weight(L source, L target) {
+        Map<L, Edge<L>> sourceOut = outEdges.get(source);
+        Edge<L> edge = sourceOut == null ? null : sourceOut.get(target);
+        return edge == null ? 0 : edge.getWeight();
+    }
+
+    @Override public void forEachTarget(L source, ObjIntConsumer<? super L> visitor) {
+        Map<L, Edge<L>> row = outEdges.get(source);
+        if (row != null) {
+            for (Edge<L> edge : row.values()) {
+                visitor.accept(edge.getTarget(), edge.getWeight());
+            }
+        }
+    }
+
+    @Override public void forEachSource(L target, ObjIntConsumer<? super L> visitor) {
+        Map<L, Edge<L>> row = inEdges.get(target);
+        if (row != null) {
+            for (Edge<L> edge : row.values()) {
+                visitor.accept(edge.getSource(), edge.getWeight());
+            }
+        }
+    }
+
+    @Override public Set<L> vertices() {
+        if (views) {
+            return Collections.unmodifiableSet(outEdges.keySet());
+        }
+        return new HashSet<L>(outEdges.keySet());
+    }
+
+    @Override public Map<L, Integer> sources(L target) {
+        return weights(target, true);
+    }
+
+    @Override public Map<L, Integer> targets(L source) {
+        return weights(source, false);
+    }
+
+    // Copy (or, if views is true, wrap) a row of edges of a vertex as a map
+    // from the neighbouring label to weight
+    private Map<L, Integer> weights(L vertex, boolean bySource) {
+        if (views) {
+            return new Weights(vertex, bySource);
+        }
+        Map<L, Integer> result = new HashMap<>();
+        Map<L, Edge<L>> row = (bySource ? inEdges : outEdges).get(vertex);
+        if (row == null) {
+            return result;
+        }
+        for (Edge<L> edge : row.values()) {
+            result.put(bySource ? edge.getSource() : edge.getTarget(), edge.getWeight());
+        }
+        return result;
+    }
+
+    @Override public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (Map<L, Edge<L>> row : outEdges.values()) {
+            for (Edge<L> edge : row.values()) {
+                result.append(edge).append("\n");
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Immutable view.
+     * Read-only live view of the edges to or from one vertex of an
+     * IndexedEdgesGraph, from neighbouring label to edge weight. The vertex's
+     * row is looked up on every access, so the view follows the vertex
+     * through remove() and add(), and is empty while it is not in the graph.
+     */
+    private class Weights extends AbstractMap<L, Integer> {
+
+        private final L vertex;
+        private final boolean bySource;
+
+        // Abstraction function:
+        //   AF(vertex, bySource) = the map from the source (if bySource) or
+        //                          target of every edge to (or from) vertex
+        //                          to its weight
+        // Representation invariant:
+        //   true
+        // Safety from rep exposure:
+        //   rows are never written or returned; only labels and Integers are
+        //   given out, and entries are immutable
+
+        Weights(L vertex, boolean bySource) {
+            this.vertex = vertex;
+            this.bySource = bySource;
+        }
+
+        // Get the current row of vertex, keyed by source if bySource,
+        // otherwise by target
+        private Map<L, Edge<L>> row() {
+            Map<L, Edge<L>> row = (bySource ? inEdges : outEdges).get(vertex);
+            return row == null ? Collections.emptyMap() : row;
+        }
+
+        @Override public int size() {
+            return row().size();
+        }
+
+        @Override public boolean containsKey(Object key) {
+            return row().containsKey(key);
+        }
+
+        @Override public Integer get(Object key) {
+            Edge<L> edge = row().get(key);
+            return edge == null ? null : edge.getWeight();
+        }
+
+        @Override public Set<L> keySet() {
+            return new AbstractSet<L>() {
+                @Override public int size() {
+                    return row().size();
+                }
+
+                @Override public boolean contains(Object key) {
+                    return row().containsKey(key);
+                }
+
+                @Override public Iterator<L> iterator() {
+                    return Collections.unmodifiableSet(row().keySet()).iterator();
+                }
+            };
+        }
+
+        @Override public Set<Map.Entry<L, Integer>> entrySet() {
+            return new AbstractSet<Map.Entry<L, Integer>>() {
+                @Override public int size() {
+                    return row().size();
+                }
+
+                @Override public Iterator<Map.Entry<L, Integer>> iterator() {
+                    Iterator<Edge<L>> edges = row().values().iterator();
+                    return new Iterator<Map.Entry<L, Integer>>() {
+                        @Override public boolean hasNext() {
+                            return edges.hasNext();
+                        }
+
+                        @Override public Map.Entry<L, Integer> next() {
+                            Edge<L> edge = edges.next();
+                            return new AbstractMap.SimpleImmutableEntry<>(
+                                    bySource ? edge.getSource() : edge.getTarget(), edge.getWeight());
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    /**
+     * Immutable.
+     * An edge of an IndexedEdgesGraph, shared by its rows in outEdges and
+     * inEdges.
+     */
+    private static final class Edge<L> {
+
+        private final L source;
+        private final L target;
+        private final int weight;
+
+        // Abstraction function:
+        //   AF(source, target, weight) = an edge from source to target with
+        //                                weight
+        // Representation invariant:
+        //   source and target are not null, and weight > 0
+        // Safety from rep exposure:
+        //   all fields are private and final, and immutable
+
+        Edge(L source, L target, int weight) {
+            this.source = source;
+            this.target = target;
+            this.weight = weight;
+            checkRep();
+        }
+
+        // Check that the rep invariant is true
+        private void checkRep() {
+            assert source != null && target != null;
+            assert weight > 0;
+        }
+
+        L getSource() {
+            return source;
+        }
+
+        L getTarget() {
+            return target;
+        }
+
+        int getWeight() {
+            return weight;
+        }
+
+        @Override public String toString() {
+            return source + "->" + target + "(weight = " + weight + ")";
+        }
+    }
+}
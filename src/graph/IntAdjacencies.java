@@ -0,0 +1,185 @@
+package graph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Views and helpers shared by the graphs that implement
+ * {@link IntAdjacency}, written once against its int-id methods.
+ */
+public final class IntAdjacencies {
+
+    private IntAdjacencies() {
+        throw new AssertionError("IntAdjacencies is not instantiable");
+    }
+
+    /**
+     * Check an index into a neighbour list.
+     *
+     * @param i an index
+     * @param degree length of the neighbour list
+     * @return i
+     * @throws IndexOutOfBoundsException if i is not in [0, degree)
+     */
+    public static int checkIndex(int i, int degree) {
+        if (i < 0 || i >= degree) {
+            throw new IndexOutOfBoundsException("index " + i + ", degree " + degree);
+        }
+        return i;
+    }
+
+    /**
+     * Get a read-only view of the edges from a vertex.
+     *
+     * @param <L> type of vertex labels in the graph
+     * @param graph an immutable graph
+     * @param source id of a vertex of graph
+     * @return map from the label of each target of source to the weight of
+     *         its edge, iterated in increasing id order
+     */
+    public static <L> Map<L, Integer> targets(IntAdjacency<L> graph, int source) {
+        return new Row<>(graph, source, true);
+    }
+
+    /**
+     * Get a read-only view of the edges to a vertex.
+     *
+     * @param <L> type of vertex labels in the graph
+     * @param graph an immutable graph
+     * @param target id of a vertex of graph
+     * @return map from the label of each source of target to the weight of
+     *         its edge, iterated in increasing id order
+     */
+    public static <L> Map<L, Integer> sources(IntAdjacency<L> graph, int target) {
+        return new Row<>(graph, target, false);
+    }
+
+    /**
+     * @param graph a graph
+     * @return its edges, one "source->target(weight = w)" line each, in
+     *         increasing id order of source and then of target
+     */
+    public static String toString(IntAdjacency<?> graph) {
+        StringBuilder result = new StringBuilder();
+        for (int s = 0; s < graph.vertexCount(); s++) {
+            Object source = graph.label(s);
+            for (int i = 0; i < graph.outDegree(s); i++) {
+                result.append(source).append("->").append(graph.label(graph.target(s, i)))
+                      .append("(weight = ").append(graph.targetWeight(s, i)).append(")\n");
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Immutable.
+     * Read-only map view of one row of an IntAdjacency, from neighbour label
+     * to edge weight, in increasing id order.
+     */
+    private static class Row<L> extends AbstractMap<L, Integer> {
+
+        private final IntAdjacency<L> graph;
+        private final int vertex;
+        private final boolean out;
+
+        // Abstraction function:
+        //   AF(graph, vertex, out) = the targets of vertex in graph if out,
+        //                            otherwise its sources
+        // Representation invariant:
+        //   vertex is in [0, graph.vertexCount())
+        // Safety from rep exposure:
+        //   graph is immutable; entries are immutable
+
+        Row(IntAdjacency<L> graph, int vertex, boolean out) {
+            this.graph = graph;
+            this.vertex = vertex;
+            this.out = out;
+        }
+
+        private int degree() {
+            return out ? graph.outDegree(vertex) : graph.inDegree(vertex);
+        }
+
+        private int neighbour(int i) {
+            return out ? graph.target(vertex, i) : graph.source(vertex, i);
+        }
+
+        private int weight(int i) {
+            return out ? graph.targetWeight(vertex, i) : graph.sourceWeight(vertex, i);
+        }
+
+        // Binary search the row for a label; returns its index in the row,
+        // or -1 if it is not there
+        private int find(Object key) {
+            int id;
+            try {
+                @SuppressWarnings("unchecked")
+                L label = (L) key;
+                id = graph.id(label);
+            } catch (ClassCastException e) {
+                // not a label of this graph's type
+                return -1;
+            }
+            if (id < 0) {
+                return -1;
+            }
+            int low = 0;
+            int high = degree() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int value = neighbour(mid);
+                if (value < id) {
+                    low = mid + 1;
+                } else if (value > id) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        @Override public int size() {
+            return degree();
+        }
+
+        @Override public boolean containsKey(Object key) {
+            return find(key) >= 0;
+        }
+
+        @Override public Integer get(Object key) {
+            int i = find(key);
+            return i < 0 ? null : weight(i);
+        }
+
+        @Override public Set<Map.Entry<L, Integer>> entrySet() {
+            return new AbstractSet<Map.Entry<L, Integer>>() {
+                @Override public int size() {
+                    return degree();
+                }
+
+                @Override public Iterator<Map.Entry<L, Integer>> iterator() {
+                    return new Iterator<Map.Entry<L, Integer>>() {
+                        private int next = 0;
+
+                        @Override public boolean hasNext() {
+                            return next < degree();
+                        }
+
+                        @Override public Map.Entry<L, Integer> next() {
+                            if (next >= degree()) {
+                                throw new NoSuchElementException();
+                            }
+                            int i = next++;
+                            return new AbstractMap.SimpleImmutableEntry<>(graph.label(neighbour(i)), weight(i));
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
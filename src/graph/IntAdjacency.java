@@ -0,0 +1,84 @@
+package graph;
+
+/**
+ * Int-id access to the adjacency of a graph whose vertices are numbered
+ * densely and whose neighbour lists are sorted.
+ *
+ * <p>Algorithms in this package use it, when a graph implements it, to walk
+ * edges by index instead of through labels and maps.
+ *
+ * @param <L> type of vertex labels in the graph, must be immutable
+ */
+public interface IntAdjacency<L> {
+
+    /**
+     * @return number of vertices; vertex ids are 0 .. vertexCount() - 1
+     */
+    public int vertexCount();
+
+    /**
+     * Get the id of a vertex.
+     *
+     * @param label a label
+     * @return id of the vertex with that label, or -1 if there is none
+     */
+    public int id(L label);
+
+    /**
+     * @param id id of a vertex, in [0, vertexCount())
+     * @return label of that vertex
+     */
+    public L label(int id);
+
+    /**
+     * @param source id of a vertex
+     * @return number of edges from that vertex
+     */
+    public int outDegree(int source);
+
+    /**
+     * @param source id of a vertex
+     * @param i index in [0, outDegree(source))
+     * @return id of the i-th target of source, in increasing id order
+     */
+    public int target(int source, int i);
+
+    /**
+     * @param source id of a vertex
+     * @param i index in [0, outDegree(source))
+     * @return weight of the edge to target(source, i)
+     */
+    public int targetWeight(int source, int i);
+
+    /**
+     * @param target id of a vertex
+     * @return number of edges to that vertex
+     */
+    public int inDegree(int target);
+
+    /**
+     * @param target id of a vertex
+     * @param i index in [0, inDegree(target))
+     * @return id of the i-th source of target, in increasing id order
+     */
+    public int source(int target, int i);
+
+    /**
+     * @param target id of a vertex
+     * @param i index in [0, inDegree(target))
+     * @return weight of the edge from source(target, i)
+     */
+    public int sourceWeight(int target, int i);
+
+    /**
+     * Get the weight of an edge by the ids of its vertices. Named apart from
+     * WeightedGraph.weight(), which takes labels, so that the two do not
+     * overload each other when the labels are Integers.
+     *
+     * @param source id of a vertex
+     * @param target id of a vertex
+     * @return weight of the edge from source to target, or zero if there is
+     *         no such edge
+     */
+    public int weightById(int source, int target);
+}
@@ -0,0 +1,737 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A mutable weighted directed graph specialized to primitive int vertex ids.
+ *
+ * <p>Labels are interned to dense int ids; edges are stored without boxing in
+ * compressed-sparse-row arrays, one for outgoing and one for incoming edges.
+ * Each row is sorted by neighbour id, so edge lookups are O(log degree).
+ * Ids of removed vertices are reused by later vertices.
+ *
+ * <p>Use {@link #asGraph()} to work with an IntGraph through the Graph
+ * interface.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class IntGraph<L> {
+
+    private final Map<L, Integer> ids = new HashMap<>();
+    private final List<L> labels = new ArrayList<>();
+    private int[] freeIds = new int[0];
+    private int freeCount = 0;
+    private final Rows out = new Rows();
+    private final Rows in = new Rows();
+
+    // Abstraction function:
+    //   AF(ids, labels, out, in) = a directed graph with a vertex labels.get(i)
+    //                              for every id i with labels.get(i) != null,
+    //                              and an edge from s to t with weight w for
+    //                              every entry (t, w) in row s of out
+    //
+    // Representation invariant:
+    //   ids.get(labels.get(i)) == i for every live id i, and ids has no
+    //     other entries;
+    //   freeIds[0..freeCount) are exactly the ids i with labels.get(i) == null;
+    //   out has an edge (s, t, w) iff in has an edge (t, s, w), w > 0,
+    //     and s and t are live ids
+    //
+    // Safety from rep exposure:
+    //   all fields are private;
+    //   the int API only exposes ints and immutable labels;
+    //   asGraph() copies rows and vertex sets into new collections.
+
+    /**
+     * Create an empty IntGraph
+     */
+    public IntGraph() {
+        checkRep();
+    }
+
+    // Check that the rep invariant is true.
+    // Only checks sizes, so that each operation stays cheap with assertions
+    // enabled.
+    private void checkRep() {
+        assert ids.size() + freeCount == labels.size();
+    }
+
+    /**
+     * Get the id of a vertex.
+     *
+     * @param label a label
+     * @return id of the vertex with that label, or -1 if there is none
+     */
+    public int id(L label) {
+        Integer id = ids.get(label);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Get the id of a vertex, adding the vertex if it does not exist.
+     *
+     * @param label label of the vertex
+     * @return id of the vertex with that label
+     */
+    public int intern(L label) {
+        Integer existing = ids.get(label);
+        if (existing != null) {
+            return existing;
+        }
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+            labels.set(id, label);
+        } else {
+            id = labels.size();
+            labels.add(label);
+            out.addRow();
+            in.addRow();
+        }
+        ids.put(label, id);
+        checkRep();
+        return id;
+    }
+
+    /**
+     * Get the label of a vertex.
+     *
+     * @param id id of a vertex in this graph
+     * @return label of that vertex
+     */
+    public L label(int id) {
+        L label = labels.get(id);
+        if (label == null) {
+            throw new IllegalArgumentException("no vertex with id " + id);
+        }
+        return label;
+    }
+
+    /**
+     * @return number of vertices in this graph
+     */
+    public int vertexCount() {
+        return ids.size();
+    }
+
+    /**
+     * @return an upper bound on vertex ids: every id in this graph is
+     *         in [0, idBound())
+     */
+    public int idBound() {
+        return labels.size();
+    }
+
+    /**
+     * Add, change, or remove a weighted directed edge, with the same
+     * semantics as {@link Graph#set(Object, Object, int)}.
+     *
+     * @param source id of the source vertex
+     * @param target id of the target vertex
+     * @param weight nonnegative weight of the edge
+     * @return the previous weight of the edge, or zero if there was no such
+     *         edge
+     */
+    public int set(int source, int target, int weight) {
+        checkId(source);
+        checkId(target);
+        if (weight < 0) {
+            throw new IllegalArgumentException("negative weight " + weight);
+        }
+        int oldWeight = out.put(source, target, weight);
+        in.put(target, source, weight);
+        checkRep();
+        return oldWeight;
+    }
+
+    /**
+     * Add to the weight of a directed edge, with the same semantics as
+     * {@link WeightedGraph#addWeight(Object, Object, int)}.
+     *
+     * @param source id of the source vertex
+     * @param target id of the target vertex
+     * @param delta amount to add to the weight of the edge; may be negative
+     * @return the new weight of the edge, or zero if there is no such edge
+     * @throws IllegalArgumentException if the new weight would be negative
+     */
+    public int addWeight(int source, int target, int delta) {
+        checkId(source);
+        checkId(target);
+        int weight = out.add(source, target, delta);
+        in.put(target, source, weight);
+        checkRep();
+        return weight;
+    }
+
+    /**
+     * Add to the weights of several edges from one source in a single sorted
+     * merge over its row. If any new weight would be negative, nothing is
+     * changed.
+     *
+     * @param source id of the source vertex
+     * @param targets ids of the target vertices, distinct and in increasing
+     *                order; not modified
+     * @param deltas deltas[i] is the amount to add to the weight of the edge
+     *               to targets[i]; not modified
+     * @param count number of targets and deltas to use
+     * @throws IllegalArgumentException if any new weight would be negative
+     */
+    public void addWeights(int source, int[] targets, int[] deltas, int count) {
+        checkId(source);
+        for (int i = 0; i < count; i++) {
+            checkId(targets[i]);
+            if (i > 0 && targets[i - 1] >= targets[i]) {
+                throw new IllegalArgumentException("targets are not distinct and increasing");
+            }
+        }
+        int[] weights = out.merge(source, targets, deltas, count);
+        for (int i = 0; i < count; i++) {
+            in.put(targets[i], source, weights[i]);
+        }
+        checkRep();
+    }
+
+    /**
+     * @param source id of the source vertex
+     * @param target id of the target vertex
+     * @return weight of the edge from source to target, or zero if there is
+     *         no such edge
+     */
+    public int weight(int source, int target) {
+        checkId(source);
+        return out.get(source, target);
+    }
+
+    /**
+     * Remove a vertex and any edges to or from it.
+     *
+     * @param id id of a vertex
+     * @return true if this graph included a vertex with that id
+     */
+    public boolean remove(int id) {
+        if (id < 0 || id >= labels.size() || labels.get(id) == null) {
+            return false;
+        }
+        for (int i = out.degree(id) - 1; i >= 0; i--) {
+            in.put(out.neighbour(id, i), id, 0);
+        }
+        for (int i = in.degree(id) - 1; i >= 0; i--) {
+            out.put(in.neighbour(id, i), id, 0);
+        }
+        out.clear(id);
+        in.clear(id);
+        ids.remove(labels.set(id, null));
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, Math.max(4, 2 * freeCount));
+        }
+        freeIds[freeCount++] = id;
+        checkRep();
+        return true;
+    }
+
+    /**
+     * @param source id of a vertex
+     * @return number of edges from that vertex
+     */
+    public int outDegree(int source) {
+        checkId(source);
+        return out.degree(source);
+    }
+
+    /**
+     * @param source id of a vertex
+     * @param i index in [0, outDegree(source))
+     * @return id of the i-th target of source, in increasing id order
+     */
+    public int target(int source, int i) {
+        return out.neighbour(source, i);
+    }
+
+    /**
+     * @param source id of a vertex
+     * @param i index in [0, outDegree(source))
+     * @return weight of the edge to target(source, i)
+     */
+    public int targetWeight(int source, int i) {
+        return out.weight(source, i);
+    }
+
+    /**
+     * @param target id of a vertex
+     * @return number of edges to that vertex
+     */
+    public int inDegree(int target) {
+        checkId(target);
+        return in.degree(target);
+    }
+
+    /**
+     * @param target id of a vertex
+     * @param i index in [0, inDegree(target))
+     * @return id of the i-th source of target, in increasing id order
+     */
+    public int source(int target, int i) {
+        return in.neighbour(target, i);
+    }
+
+    /**
+     * @param target id of a vertex
+     * @param i index in [0, inDegree(target))
+     * @return weight of the edge from source(target, i)
+     */
+    public int sourceWeight(int target, int i) {
+        return in.weight(target, i);
+    }
+
+    /**
+     * Release spare row capacity, e.g. once the graph is fully built.
+     */
+    public void trimToSize() {
+        out.compact();
+        in.compact();
+    }
+
+    /**
+     * Get a view of this graph through the Graph interface. The view is
+     * backed by this graph: changes to either are visible in both.
+     *
+     * @return a Graph backed by this IntGraph
+     */
+    public Graph<L> asGraph() {
+        return new GraphView();
+    }
+
+    // Check that an edge weight computed by addWeight is nonnegative
+    private int checkWeight(int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight would be " + weight);
+        }
+        return weight;
+    }
+
+    private void checkId(int id) {
+        if (id < 0 || id >= labels.size() || labels.get(id) == null) {
+            throw new IllegalArgumentException("no vertex with id " + id);
+        }
+    }
+
+    @Override public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (int s = 0; s < labels.size(); s++) {
+            for (int i = 0; i < out.degree(s); i++) {
+                result.append(labels.get(s)).append("->").append(labels.get(out.neighbour(s, i)))
+                      .append("(weight = ").append(out.weight(s, i)).append(")\n");
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Graph interface over an IntGraph.
+     */
+    private class GraphView implements WeightedGraph<L> {
+
+        @Override public boolean add(L vertex) {
+            int size = ids.size();
+            intern(vertex);
+            return ids.size() > size;
+        }
+
+        @Override public int set(L source, L target, int weight) {
+            // check before interning, so that a rejected edge adds no vertices
+            if (weight < 0) {
+                throw new IllegalArgumentException("negative weight " + weight);
+            }
+            if (weight == 0) {
+                int s = id(source);
+                int t = id(target);
+                return s < 0 || t < 0 ? 0 : IntGraph.this.set(s, t, 0);
+            }
+            return IntGraph.this.set(intern(source), intern(target), weight);
+        }
+
+        @Override public int addWeight(L source, L target, int delta) {
+            if (delta <= 0) {
+                int s = id(source);
+                int t = id(target);
+                if (s < 0 || t < 0) {
+                    return IntGraph.this.checkWeight(delta);
+                }
+                return IntGraph.this.addWeight(s, t, delta);
+            }
+            // a positive delta is never rejected, so interning first is safe
+            return IntGraph.this.addWeight(intern(source), intern(target), delta);
+        }
+
+        @Override public void addWeights(Map<L, ? extends Map<L, Integer>> deltas) {
+            for (Map.Entry<L, ? extends Map<L, Integer>> batch : deltas.entrySet()) {
+                // check the negative deltas before interning, so that a
+                // rejected batch adds no vertices
+                int known = id(batch.getKey());
+                for (Map.Entry<L, Integer> delta : batch.getValue().entrySet()) {
+                    int amount = delta.getValue();
+                    if (amount < 0) {
+                        int target = id(delta.getKey());
+                        checkWeight((known < 0 || target < 0 ? 0 : out.get(known, target)) + amount);
+                    }
+                }
+                // pack (target id, delta) pairs into longs, so that sorting
+                // them sorts by target id
+                long[] pairs = new long[batch.getValue().size()];
+                int count = 0;
+                boolean grows = false;
+                for (Map.Entry<L, Integer> delta : batch.getValue().entrySet()) {
+                    int amount = delta.getValue();
+                    int target = amount > 0 ? intern(delta.getKey()) : id(delta.getKey());
+                    if (target < 0) {
+                        continue;
+                    }
+                    pairs[count++] = ((long) target << 32) | (amount & 0xFFFFFFFFL);
+                    grows |= amount > 0;
+                }
+                int source = grows ? intern(batch.getKey()) : id(batch.getKey());
+                if (source < 0) {
+                    continue;
+                }
+                Arrays.sort(pairs, 0, count);
+                int[] targets = new int[count];
+                int[] amounts = new int[count];
+                for (int i = 0; i < count; i++) {
+                    targets[i] = (int) (pairs[i] >>> 32);
+                    amounts[i] = (int) pairs[i];
+                }
+                IntGraph.this.addWeights(source, targets, amounts, count);
+            }
+        }
+
+        @Override public boolean remove(L vertex) {
+            return IntGraph.this.remove(id(vertex));
+        }
+
+        @Override public Set<L> vertices() {
+            return new HashSet<L>(ids.keySet());
+        }
+
+        @Override public Map<L, Integer> sources(L target) {
+            return row(in, id(target));
+        }
+
+        @Override public Map<L, Integer> targets(L source) {
+            return row(out, id(source));
+        }
+
+        @Override public int weight(L source, L target) {
+            int s = id(source);
+            int t = id(target);
+            return s < 0 || t < 0 ? 0 : out.get(s, t);
+        }
+
+        @Override public void forEachTarget(L source, ObjIntConsumer<? super L> visitor) {
+            forEach(out, id(source), visitor);
+        }
+
+        @Override public void forEachSource(L target, ObjIntConsumer<? super L> visitor) {
+            forEach(in, id(target), visitor);
+        }
+
+        private void forEach(Rows rows, int id, ObjIntConsumer<? super L> visitor) {
+            if (id < 0) {
+                return;
+            }
+            for (int i = 0; i < rows.degree(id); i++) {
+                visitor.accept(labels.get(rows.neighbour(id, i)), rows.weight(id, i));
+            }
+        }
+
+        private Map<L, Integer> row(Rows rows, int id) {
+            Map<L, Integer> result = new HashMap<>();
+            if (id < 0) {
+                return result;
+            }
+            for (int i = 0; i < rows.degree(id); i++) {
+                result.put(labels.get(rows.neighbour(id, i)), rows.weight(id, i));
+            }
+            return result;
+        }
+
+        @Override public String toString() {
+            return IntGraph.this.toString();
+        }
+    }
+
+    /**
+     * Mutable.
+     * This class is internal to the rep of IntGraph.
+     *
+     * Compressed-sparse-row adjacency: row v occupies
+     * neighbours[start[v] .. start[v] + degree[v]) and the same range of weights,
+     * sorted by neighbour id. Each row has some spare capacity; a row that
+     * outgrows it is moved to the end of the arrays, and the arrays are compacted
+     * once more than half of them is unused.
+     */
+    private static class Rows {
+
+        private int[] start = new int[0];
+        private int[] degree = new int[0];
+        private int[] capacity = new int[0];
+        private int rowCount = 0;
+        private int[] neighbours = new int[0];
+        private int[] weights = new int[0];
+        private int used = 0;
+        private int wasted = 0;
+
+        // Abstraction function:
+        //   AF(...) = rows 0..rowCount-1, where row v is the sorted list of pairs
+        //             (neighbours[start[v] + i], weights[start[v] + i])
+        //             for 0 <= i < degree[v]
+        //
+        // Representation invariant:
+        //   0 <= degree[v] <= capacity[v];
+        //   row ranges [start[v], start[v] + capacity[v]) are disjoint and lie
+        //     within [0, used);
+        //   wasted == used - sum of capacity[v];
+        //   neighbour ids within a row are strictly increasing, weights > 0
+        //
+        // Safety from rep exposure:
+        //   all fields are private; only ints are returned.
+
+        /**
+         * Add a new empty row.
+         */
+        void addRow() {
+            if (rowCount == start.length) {
+                int length = Math.max(8, 2 * rowCount);
+                start = Arrays.copyOf(start, length);
+                degree = Arrays.copyOf(degree, length);
+                capacity = Arrays.copyOf(capacity, length);
+            }
+            start[rowCount] = used;
+            degree[rowCount] = 0;
+            capacity[rowCount] = 0;
+            rowCount++;
+        }
+
+        int degree(int row) {
+            return degree[row];
+        }
+
+        int neighbour(int row, int i) {
+            return neighbours[start[row] + checkIndex(row, i)];
+        }
+
+        int weight(int row, int i) {
+            return weights[start[row] + checkIndex(row, i)];
+        }
+
+        private int checkIndex(int row, int i) {
+            if (i < 0 || i >= degree[row]) {
+                throw new IndexOutOfBoundsException("index " + i + ", degree " + degree[row]);
+            }
+            return i;
+        }
+
+        /**
+         * @return weight of the entry for neighbour in row, or 0 if there is none
+         */
+        int get(int row, int neighbour) {
+            int position = find(row, neighbour);
+            return position < 0 ? 0 : weights[position];
+        }
+
+        /**
+         * Set, change, or (if weight is 0) remove the entry for neighbour in row.
+         *
+         * @return the previous weight of the entry, or 0 if there was none
+         */
+        int put(int row, int neighbour, int weight) {
+            int position = find(row, neighbour);
+            int end = start[row] + degree[row];
+            if (position >= 0) {
+                int oldWeight = weights[position];
+                if (weight == 0) {
+                    System.arraycopy(neighbours, position + 1, neighbours, position, end - position - 1);
+                    System.arraycopy(weights, position + 1, weights, position, end - position - 1);
+                    degree[row]--;
+                } else {
+                    weights[position] = weight;
+                }
+                return oldWeight;
+            }
+            if (weight == 0) {
+                return 0;
+            }
+            if (degree[row] == capacity[row]) {
+                grow(row);
+            }
+            end = start[row] + degree[row];
+            int insert = -find(row, neighbour) - 1;
+            System.arraycopy(neighbours, insert, neighbours, insert + 1, end - insert);
+            System.arraycopy(weights, insert, weights, insert + 1, end - insert);
+            neighbours[insert] = neighbour;
+            weights[insert] = weight;
+            degree[row]++;
+            return 0;
+        }
+
+        /**
+         * Add delta to the weight of the entry for neighbour in row, creating the
+         * entry if the result is positive and removing it if the result is 0.
+         *
+         * @return the new weight of the entry
+         * @throws IllegalArgumentException if the new weight would be negative
+         */
+        int add(int row, int neighbour, int delta) {
+            int position = find(row, neighbour);
+            int weight = (position < 0 ? 0 : weights[position]) + delta;
+            if (weight < 0) {
+                throw new IllegalArgumentException("weight would be " + weight);
+            }
+            if (position >= 0 && weight > 0) {
+                weights[position] = weight;
+            } else if (delta != 0) {
+                put(row, neighbour, weight);
+            }
+            return weight;
+        }
+
+        /**
+         * Add deltas to the weights of several entries of row in one sorted
+         * merge, creating entries whose result is positive and removing those
+         * whose result is 0. A row that needs more capacity is moved to the end
+         * of the arrays, sized for exactly the merged row.
+         *
+         * @param row a row
+         * @param keys neighbour ids, strictly increasing
+         * @param deltas deltas[i] is added to the entry for keys[i]
+         * @param count number of keys and deltas to use
+         * @return array whose i-th element is the new weight of keys[i]
+         * @throws IllegalArgumentException if any new weight would be negative;
+         *         the row is not modified
+         */
+        int[] merge(int row, int[] keys, int[] deltas, int count) {
+            int from = start[row];
+            int end = from + degree[row];
+            // first pass: new weights and new degree, without modifying anything
+            int[] results = new int[count];
+            int newDegree = degree[row];
+            for (int i = 0, j = from; i < count; i++) {
+                while (j < end && neighbours[j] < keys[i]) {
+                    j++;
+                }
+                boolean present = j < end && neighbours[j] == keys[i];
+                results[i] = (present ? weights[j] : 0) + deltas[i];
+                if (results[i] < 0) {
+                    throw new IllegalArgumentException("weight would be " + results[i]);
+                }
+                if (present && results[i] == 0) {
+                    newDegree--;
+                } else if (!present && results[i] > 0) {
+                    newDegree++;
+                }
+            }
+            // second pass: merge the row and the batch into a new row
+            int[] mergedNeighbours = new int[newDegree];
+            int[] mergedWeights = new int[newDegree];
+            int k = 0;
+            int j = from;
+            for (int i = 0; i < count; i++) {
+                while (j < end && neighbours[j] < keys[i]) {
+                    mergedNeighbours[k] = neighbours[j];
+                    mergedWeights[k++] = weights[j++];
+                }
+                if (j < end && neighbours[j] == keys[i]) {
+                    j++;
+                }
+                if (results[i] > 0) {
+                    mergedNeighbours[k] = keys[i];
+                    mergedWeights[k++] = results[i];
+                }
+            }
+            while (j < end) {
+                mergedNeighbours[k] = neighbours[j];
+                mergedWeights[k++] = weights[j++];
+            }
+            if (newDegree > capacity[row]) {
+                if (wasted > used / 2) {
+                    compact();
+                }
+                if (used + newDegree > neighbours.length) {
+                    int length = Math.max(used + newDegree, 2 * neighbours.length);
+                    neighbours = Arrays.copyOf(neighbours, length);
+                    weights = Arrays.copyOf(weights, length);
+                }
+                wasted += capacity[row];
+                start[row] = used;
+                capacity[row] = newDegree;
+                used += newDegree;
+            }
+            System.arraycopy(mergedNeighbours, 0, neighbours, start[row], newDegree);
+            System.arraycopy(mergedWeights, 0, weights, start[row], newDegree);
+            degree[row] = newDegree;
+            return results;
+        }
+
+        /**
+         * Remove every entry of row, keeping its capacity.
+         */
+        void clear(int row) {
+            degree[row] = 0;
+        }
+
+        // Index of neighbour in the arrays if it is in row,
+        // otherwise (-(insertion index) - 1)
+        private int find(int row, int neighbour) {
+            return Arrays.binarySearch(neighbours, start[row], start[row] + degree[row], neighbour);
+        }
+
+        // Move row to the end of the arrays with twice its capacity
+        private void grow(int row) {
+            if (wasted > used / 2) {
+                compact();
+            }
+            int newCapacity = Math.max(2, 2 * capacity[row]);
+            if (used + newCapacity > neighbours.length) {
+                int length = Math.max(used + newCapacity, 2 * neighbours.length);
+                neighbours = Arrays.copyOf(neighbours, length);
+                weights = Arrays.copyOf(weights, length);
+            }
+            System.arraycopy(neighbours, start[row], neighbours, used, degree[row]);
+            System.arraycopy(weights, start[row], weights, used, degree[row]);
+            wasted += capacity[row];
+            start[row] = used;
+            capacity[row] = newCapacity;
+            used += newCapacity;
+        }
+
+        /**
+         * Rewrite the arrays so that rows are contiguous and nothing is wasted.
+         */
+        void compact() {
+            int total = 0;
+            for (int row = 0; row < rowCount; row++) {
+                total += degree[row];
+            }
+            int[] newNeighbours = new int[total];
+            int[] newWeights = new int[total];
+            int position = 0;
+            for (int row = 0; row < rowCount; row++) {
+                System.arraycopy(neighbours, start[row], newNeighbours, position, degree[row]);
+                System.arraycopy(weights, start[row], newWeights, position, degree[row]);
+                start[row] = position;
+                capacity[row] = degree[row];
+                position += degree[row];
+            }
+            neighbours = newNeighbours;
+            weights = newWeights;
+            used = position;
+            wasted = 0;
+        }
+    }
+}
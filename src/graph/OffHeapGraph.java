@@ -0,0 +1,318 @@
+package graph;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * An immutable snapshot of a Graph whose edges are stored off-heap.
+ *
+ * <p>Like {@link FrozenGraph}, vertices get dense int ids and edges are kept
+ * in sorted compressed-sparse-row form, but the row offsets, neighbour ids
+ * and weights live in native memory allocated from an {@link Arena}. Only
+ * the label dictionary stays on the Java heap, so a large graph adds almost
+ * nothing to garbage collection work.
+ *
+ * <p>The native memory is released by {@link #close()}; any read of the
+ * graph after that, including through sources() and targets() views got
+ * before it, throws IllegalStateException. Until then an OffHeapGraph is
+ * safe to share between threads. Mutators throw
+ * UnsupportedOperationException.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public final class OffHeapGraph<L> implements WeightedGraph<L>, IntAdjacency<L>, AutoCloseable {
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT;
+
+    private final Arena arena;
+    private final Object[] labels;
+    private final Map<L, Integer> ids;
+    private final Set<L> vertices;
+    private final MemorySegment outStart;
+    private final MemorySegment outTargets;
+    private final MemorySegment outWeights;
+    private final MemorySegment inStart;
+    private final MemorySegment inSources;
+    private final MemorySegment inWeights;
+
+    // Abstraction function:
+    //   AF(labels, outStart, outTargets, outWeights) =
+    //       a directed graph with a vertex labels[i] for every id i, and an
+    //       edge from labels[s] to labels[outTargets[j]] with weight
+    //       outWeights[j] for every outStart[s] <= j < outStart[s + 1],
+    //       where x[j] is the j-th int of segment x
+    //
+    // Representation invariant:
+    //   same as FrozenGraph, with the int arrays replaced by segments;
+    //   all segments are allocated from arena
+    //
+    // Safety from rep exposure:
+    //   all fields are private and final; segments are never handed out;
+    //   vertices is unmodifiable; sources() and targets() return read-only
+    //   views; labels are immutable.
+    //
+    // Thread safety argument:
+    //   the rep is never written after construction and every field is final;
+    //   arena is a shared arena, so its segments may be read from any thread.
+
+    /**
+     * Copy a graph into native memory.
+     *
+     * @param <L> type of vertex labels in the graph, must be immutable
+     * @param graph graph to copy; not modified
+     * @return an OffHeapGraph with the same vertices and edges as graph;
+     *         the caller must close it
+     */
+    public static <L> OffHeapGraph<L> of(Graph<L> graph) {
+        return new OffHeapGraph<>(FrozenGraph.of(graph));
+    }
+
+    private OffHeapGraph(FrozenGraph<L> frozen) {
+        int n = frozen.vertexCount();
+        labels = new Object[n];
+        Map<L, Integer> index = new HashMap<>();
+        int edges = 0;
+        for (int i = 0; i < n; i++) {
+            labels[i] = frozen.label(i);
+            index.put(frozen.label(i), i);
+            edges += frozen.outDegree(i);
+        }
+        ids = index;
+        vertices = Collections.unmodifiableSet(index.keySet());
+
+        arena = Arena.ofShared();
+        outStart = allocate(n + 1);
+        outTargets = allocate(edges);
+        outWeights = allocate(edges);
+        inStart = allocate(n + 1);
+        inSources = allocate(edges);
+        inWeights = allocate(edges);
+        int out = 0;
+        int in = 0;
+        for (int v = 0; v < n; v++) {
+            outStart.setAtIndex(INT, v, out);
+            for (int i = 0; i < frozen.outDegree(v); i++, out++) {
+                outTargets.setAtIndex(INT, out, frozen.target(v, i));
+                outWeights.setAtIndex(INT, out, frozen.targetWeight(v, i));
+            }
+            inStart.setAtIndex(INT, v, in);
+            for (int i = 0; i < frozen.inDegree(v); i++, in++) {
+                inSources.setAtIndex(INT, in, frozen.source(v, i));
+                inWeights.setAtIndex(INT, in, frozen.sourceWeight(v, i));
+            }
+        }
+        outStart.setAtIndex(INT, n, out);
+        inStart.setAtIndex(INT, n, in);
+        checkRep();
+    }
+
+    private MemorySegment allocate(long ints) {
+        return arena.allocate(INT.byteSize() * Math.max(1, ints), INT.byteAlignment());
+    }
+
+    // Check that the rep invariant is true
+    private void checkRep() {
+        assert ids.size() == labels.length;
+        assert outStart.getAtIndex(INT, labels.length) == inStart.getAtIndex(INT, labels.length);
+    }
+
+    /**
+     * Release the native memory of this graph. Any later read of the graph
+     * throws IllegalStateException.
+     */
+    @Override public void close() {
+        arena.close();
+    }
+
+    // Reads of native memory check this themselves; reads of the labels,
+    // which stay on the heap, call it
+    private void checkOpen() {
+        if (!arena.scope().isAlive()) {
+            throw new IllegalStateException("OffHeapGraph is closed");
+        }
+    }
+
+    /**
+     * Get the id of a vertex.
+     *
+     * @param label a label
+     * @return id of the vertex with that label, or -1 if there is none
+     */
+    @Override public int id(L label) {
+        checkOpen();
+        Integer id = ids.get(label);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param id id of a vertex, in [0, vertexCount())
+     * @return label of that vertex
+     */
+    @SuppressWarnings("unchecked")
+    @Override public L label(int id) {
+        checkOpen();
+        return (L) labels[id];
+    }
+
+    /**
+     * @return number of vertices in this graph; vertex ids are
+     *         0 .. vertexCount() - 1
+     */
+    @Override public int vertexCount() {
+        checkOpen();
+        return labels.length;
+    }
+
+    /**
+     * @param source id of a vertex
+     * @return number of edges from that vertex
+     */
+    @Override public int outDegree(int source) {
+        return outStart.getAtIndex(INT, source + 1) - outStart.getAtIndex(INT, source);
+    }
+
+    /**
+     * @param source id of a vertex
+     * @param i index in [0, outDegree(source))
+     * @return id of the i-th target of source, in increasing id order
+     */
+    @Override public int target(int source, int i) {
+        return outTargets.getAtIndex(INT, outStart.getAtIndex(INT, source) + IntAdjacencies.checkIndex(i, outDegree(source)));
+    }
+
+    /**
+     * @param source id of a vertex
+     * @param i index in [0, outDegree(source))
+     * @return weight of the edge to target(source, i)
+     */
+    @Override public int targetWeight(int source, int i) {
+        return outWeights.getAtIndex(INT, outStart.getAtIndex(INT, source) + IntAdjacencies.checkIndex(i, outDegree(source)));
+    }
+
+    /**
+     * @param target id of a vertex
+     * @return number of edges to that vertex
+     */
+    @Override public int inDegree(int target) {
+        return inStart.getAtIndex(INT, target + 1) - inStart.getAtIndex(INT, target);
+    }
+
+    /**
+     * @param target id of a vertex
+     * @param i index in [0, inDegree(target))
+     * @return id of the i-th source of target, in increasing id order
+     */
+    @Override public int source(int target, int i) {
+        return inSources.getAtIndex(INT, inStart.getAtIndex(INT, target) + IntAdjacencies.checkIndex(i, inDegree(target)));
+    }
+
+    /**
+     * @param target id of a vertex
+     * @param i index in [0, inDegree(target))
+     * @return weight of the edge from source(target, i)
+     */
+    @Override public int sourceWeight(int target, int i) {
+        return inWeights.getAtIndex(INT, inStart.getAtIndex(INT, target) + IntAdjacencies.checkIndex(i, inDegree(target)));
+    }
+
+    /**
+     * @param source id of a vertex
+     * @param target id of a vertex
+     * @return weight of the edge from source to target, or zero if there is
+     *         no such edge
+     */
+    @Override public int weightById(int source, int target) {
+        int j = search(outTargets, outStart.getAtIndex(INT, source), outStart.getAtIndex(INT, source + 1), target);
+        return j < 0 ? 0 : outWeights.getAtIndex(INT, j);
+    }
+
+    // Binary search for key among the ints of segment in [from, to);
+    // returns its index, or -1 if it is not there
+    private static int search(MemorySegment segment, int from, int to, int key) {
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = segment.getAtIndex(INT, mid);
+            if (value < key) {
+                low = mid + 1;
+            } else if (value > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    @Override public boolean add(L vertex) {
+        throw new UnsupportedOperationException("OffHeapGraph is immutable");
+    }
+
+    @Override public int set(L source, L target, int weight) {
+        throw new UnsupportedOperationException("OffHeapGraph is immutable");
+    }
+
+    @Override public int addWeight(L source, L target, int delta) {
+        throw new UnsupportedOperationException("OffHeapGraph is immutable");
+    }
+
+    @Override public boolean remove(L vertex) {
+        throw new UnsupportedOperationException("OffHeapGraph is immutable");
+    }
+
+    @Override public Set<L> vertices() {
+        checkOpen();
+        return vertices;
+    }
+
+    @Override public Map<L, Integer> sources(L target) {
+        int id = id(target);
+        if (id < 0) {
+            return Collections.emptyMap();
+        }
+        return IntAdjacencies.sources(this, id);
+    }
+
+    @Override public Map<L, Integer> targets(L source) {
+        int id = id(source);
+        if (id < 0) {
+            return Collections.emptyMap();
+        }
+        return IntAdjacencies.targets(this, id);
+    }
+
+    @Override public int weight(L source, L target) {
+        int s = id(source);
+        int t = id(target);
+        return s < 0 || t < 0 ? 0 : weightById(s, t);
+    }
+
+    @Override public void forEachTarget(L source, ObjIntConsumer<? super L> visitor) {
+        int id = id(source);
+        if (id >= 0) {
+            for (int j = outStart.getAtIndex(INT, id); j < outStart.getAtIndex(INT, id + 1); j++) {
+                visitor.accept(label(outTargets.getAtIndex(INT, j)), outWeights.getAtIndex(INT, j));
+            }
+        }
+    }
+
+    @Override public void forEachSource(L target, ObjIntConsumer<? super L> visitor) {
+        int id = id(target);
+        if (id >= 0) {
+            for (int j = inStart.getAtIndex(INT, id); j < inStart.getAtIndex(INT, id + 1); j++) {
+                visitor.accept(label(inSources.getAtIndex(INT, j)), inWeights.getAtIndex(INT, j));
+            }
+        }
+    }
+
+    @Override public String toString() {
+        return IntAdjacencies.toString(this);
+    }
+}
@@ -0,0 +1,301 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Immutable.
+ * Weighted PageRank of the vertices of a graph.
+ *
+ * <p>A random surfer at vertex u follows each edge out of u with probability
+ * proportional to its weight; with probability 1 - damping, or if u has no
+ * edges out, it jumps to a vertex chosen uniformly at random. A vertex's rank
+ * is the probability of finding the surfer there, so ranks sum to 1.
+ *
+ * <p>The graph is copied once, at construction, into int-indexed arrays of
+ * incoming edges with normalized weights. Each power iteration then pulls
+ * rank along incoming edges, splitting the vertices into ranges of about the
+ * same number of edges that run in parallel on a ForkJoinPool. Iteration
+ * stops when the L1 change in ranks falls below a tolerance, or after a
+ * maximum number of iterations.
+ *
+ * <p>Later changes to the graph are not seen. Safe to share between threads.
+ *
+ * @param <L> type of vertex labels in the graph, must be immutable
+ */
+public class PageRank<L> {
+
+    /** Default damping factor. */
+    public static final double DEFAULT_DAMPING = 0.85;
+    /** Default convergence tolerance, on the L1 change in ranks. */
+    public static final double DEFAULT_TOLERANCE = 1e-9;
+    /** Default maximum number of iterations. */
+    public static final int DEFAULT_MAX_ITERATIONS = 100;
+
+    // vertices with fewer edges than this are not worth a task of their own
+    private static final int MIN_EDGES_PER_RANGE = 1 << 14;
+
+    private final ForkJoinPool pool;
+    private final Object[] labels;
+    private final int[] inStart;
+    private final int[] inSources;
+    private final double[] inShares;
+    private final boolean[] dangling;
+    private final int[] rangeStart;
+
+    // Abstraction function:
+    //   AF(labels, inStart, inSources, inShares) =
+    //       PageRank of the graph with a vertex labels[v] for every id v, in
+    //       which the surfer at inSources[j] moves to v with probability
+    //       inShares[j] (before damping), for inStart[v] <= j < inStart[v + 1]
+    //
+    // Representation invariant:
+    //   inStart has length labels.length + 1, starts at 0, is nondecreasing
+    //     and ends at inSources.length == inShares.length;
+    //   for every source u, the shares of its edges sum to 1 (up to rounding)
+    //     if dangling[u] is false, and it has no edges if dangling[u] is true;
+    //   rangeStart starts at 0, is strictly increasing, and ends at
+    //     labels.length
+    //
+    // Safety from rep exposure:
+    //   all fields are private and final, and arrays are never returned or
+    //   written after construction; labels are immutable.
+    //
+    // Thread safety argument:
+    //   the rep is immutable and every field is final; each call to ranks()
+    //   works in its own arrays, and the ranges of one iteration write
+    //   disjoint parts of them.
+
+    /**
+     * Prepare to rank the vertices of a graph, on the common ForkJoinPool.
+     *
+     * @param graph graph to rank; not modified
+     */
+    public PageRank(Graph<L> graph) {
+        this(graph, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Prepare to rank the vertices of a graph.
+     *
+     * @param graph graph to rank; not modified
+     * @param pool pool that runs the iterations
+     */
+    @SuppressWarnings("unchecked")
+    public PageRank(Graph<L> graph, ForkJoinPool pool) {
+        this.pool = pool;
+        IntAdjacency<L> adjacency = graph instanceof IntAdjacency ? (IntAdjacency<L>) graph : FrozenGraph.of(graph);
+        int n = adjacency.vertexCount();
+        labels = new Object[n];
+        long[] outWeight = new long[n];
+        inStart = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            labels[v] = adjacency.label(v);
+            for (int i = 0; i < adjacency.outDegree(v); i++) {
+                outWeight[v] += adjacency.targetWeight(v, i);
+            }
+            inStart[v + 1] = inStart[v] + adjacency.inDegree(v);
+        }
+        inSources = new int[inStart[n]];
+        inShares = new double[inStart[n]];
+        dangling = new boolean[n];
+        for (int v = 0; v < n; v++) {
+            dangling[v] = outWeight[v] == 0;
+            for (int i = 0; i < adjacency.inDegree(v); i++) {
+                int u = adjacency.source(v, i);
+                inSources[inStart[v] + i] = u;
+                inShares[inStart[v] + i] = (double) adjacency.sourceWeight(v, i) / outWeight[u];
+            }
+        }
+        rangeStart = ranges(Math.max(MIN_EDGES_PER_RANGE, inSources.length / (4 * pool.getParallelism()) + 1));
+        checkRep();
+    }
+
+    // Split the vertices into ranges of about edgesPerRange incoming edges
+    private int[] ranges(int edgesPerRange) {
+        int n = labels.length;
+        int[] starts = new int[n + 1];
+        int count = 0;
+        starts[count++] = 0;
+        int next = edgesPerRange;
+        for (int v = 1; v < n; v++) {
+            // a range also counts one unit per vertex, so that vertices
+            // without edges are spread out too
+            if (inStart[v] + v >= next) {
+                starts[count++] = v;
+                next = inStart[v] + v + edgesPerRange;
+            }
+        }
+        if (n > 0) {
+            starts[count++] = n;
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    // Check that the rep invariant is true
+    private void checkRep() {
+        assert inStart.length == labels.length + 1;
+        assert inStart[labels.length] == inSources.length;
+        assert inSources.length == inShares.length;
+        assert rangeStart[0] == 0 && rangeStart[rangeStart.length - 1] == labels.length;
+    }
+
+    /**
+     * Compute ranks with the default damping, tolerance and iteration limit.
+     *
+     * @return map from every vertex of the graph to its rank
+     */
+    public Map<L, Double> ranks() {
+        return ranks(DEFAULT_DAMPING, DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS);
+    }
+
+    /**
+     * Compute ranks.
+     *
+     * @param damping probability of following an edge rather than jumping, in
+     *                [0, 1)
+     * @param tolerance stop once the sum of the absolute changes in rank over
+     *                  one iteration is below this; must be positive
+     * @param maxIterations stop after this many iterations; must be positive
+     * @return map from every vertex of the graph to its rank
+     */
+    public Map<L, Double> ranks(double damping, double tolerance, int maxIterations) {
+        double[] rank = iterate(damping, tolerance, maxIterations);
+        Map<L, Double> result = new HashMap<>();
+        for (int v = 0; v < labels.length; v++) {
+            result.put(label(v), rank[v]);
+        }
+        return result;
+    }
+
+    /**
+     * Find the vertices of highest rank, with the default damping, tolerance
+     * and iteration limit.
+     *
+     * @param k number of vertices to return, nonnegative
+     * @return the min(k, number of vertices) vertices of highest rank, in
+     *         decreasing rank order; ties in any order
+     */
+    public List<L> top(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("negative k: " + k);
+        }
+        double[] rank = iterate(DEFAULT_DAMPING, DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS);
+        Integer[] order = new Integer[labels.length];
+        for (int v = 0; v < order.length; v++) {
+            order[v] = v;
+        }
+        Arrays.sort(order, Comparator.comparingDouble((Integer v) -> rank[v]).reversed());
+        List<L> result = new ArrayList<>();
+        for (int i = 0; i < Math.min(k, order.length); i++) {
+            result.add(label(order[i]));
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private L label(int id) {
+        return (L) labels[id];
+    }
+
+    // Run power iteration and return the ranks, indexed by vertex id
+    private double[] iterate(double damping, double tolerance, int maxIterations) {
+        if (damping < 0 || damping >= 1 || !(tolerance > 0) || maxIterations <= 0) {
+            throw new IllegalArgumentException("damping " + damping + ", tolerance " + tolerance
+                                               + ", maxIterations " + maxIterations);
+        }
+        int n = labels.length;
+        double[] rank = new double[n];
+        double[] next = new double[n];
+        if (n == 0) {
+            return rank;
+        }
+        Arrays.fill(rank, 1.0 / n);
+        double danglingRank = 0;
+        for (int v = 0; v < n; v++) {
+            danglingRank += dangling[v] ? rank[v] : 0;
+        }
+        int ranges = rangeStart.length - 1;
+        double[] change = new double[ranges];
+        double[] danglingNext = new double[ranges];
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            double base = (1 - damping + damping * danglingRank) / n;
+            pool.invoke(new Sweep(rank, next, damping, base, change, danglingNext, 0, ranges));
+            double totalChange = 0;
+            danglingRank = 0;
+            for (int r = 0; r < ranges; r++) {
+                totalChange += change[r];
+                danglingRank += danglingNext[r];
+            }
+            double[] swap = rank;
+            rank = next;
+            next = swap;
+            if (totalChange < tolerance) {
+                break;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Mutable.
+     * One power iteration over the vertex ranges [from, to), splitting the
+     * ranges between subtasks.
+     */
+    private class Sweep extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final double[] rank;
+        private final double[] next;
+        private final double damping;
+        private final double base;
+        private final double[] change;
+        private final double[] danglingNext;
+        private final int from;
+        private final int to;
+
+        Sweep(double[] rank, double[] next, double damping, double base,
+              double[] change, double[] danglingNext, int from, int to) {
+            this.rank = rank;
+            this.next = next;
+            this.damping = damping;
+            this.base = base;
+            this.change = change;
+            this.danglingNext = danglingNext;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Sweep(rank, next, damping, base, change, danglingNext, from, middle),
+                          new Sweep(rank, next, damping, base, change, danglingNext, middle, to));
+                return;
+            }
+            double rangeChange = 0;
+            double rangeDangling = 0;
+            for (int v = rangeStart[from]; v < rangeStart[from + 1]; v++) {
+                double sum = 0;
+                for (int j = inStart[v]; j < inStart[v + 1]; j++) {
+                    sum += rank[inSources[j]] * inShares[j];
+                }
+                double value = base + damping * sum;
+                next[v] = value;
+                rangeChange += Math.abs(value - rank[v]);
+                if (dangling[v]) {
+                    rangeDangling += value;
+                }
+            }
+            change[from] = rangeChange;
+            danglingNext[from] = rangeDangling;
+        }
+    }
+}
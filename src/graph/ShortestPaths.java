@@ -0,0 +1,399 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Mutable.
+ * Dijkstra shortest paths over a Graph, where the length of a path is the
+ * sum of its edge weights.
+ *
+ * <p>Works directly on any Graph, visiting edges with
+ * {@link WeightedGraph#forEachTarget}. When the graph implements
+ * {@link IntAdjacency} (FrozenGraph, OffHeapGraph) it walks the int
+ * adjacency instead, with no label lookups or allocation per edge.
+ *
+ * <p>Vertices are queued in an indexed binary heap keyed by int id, and
+ * point-to-point queries stop as soon as the target is reached. The heap and
+ * the distance arrays are kept between queries and reset in time
+ * proportional to the vertices the last query touched, so a ShortestPaths is
+ * meant to be reused. It is not safe for use by several threads at once;
+ * give each thread its own.
+ *
+ * <p>Queries see the graph as it is when they run; the graph must not be
+ * modified while a query is running.
+ *
+ * @param <L> type of vertex labels in the graph, must be immutable
+ */
+public class ShortestPaths<L> {
+
+    private final WeightedGraph<L> graph;
+    private final IntAdjacency<L> adjacency;
+
+    // scratch state of the current query, valid for ids with mark[id] == query
+    private final IndexedHeap heap = new IndexedHeap();
+    private long[] distance = new long[0];
+    private int[] parent = new int[0];
+    private int[] mark = new int[0];
+    private int query = 0;
+
+    // ids of labels for a graph without IntAdjacency, assigned as vertices
+    // are reached and forgotten at the start of each query
+    private final Map<L, Integer> ids = new HashMap<>();
+    private final List<L> labels = new ArrayList<>();
+    private final Relaxer relaxer = new Relaxer();
+
+    // Abstraction function:
+    //   AF(graph) = a shortest-path finder over graph; every other field is
+    //               scratch space for the query in progress
+    //
+    // Representation invariant:
+    //   adjacency is graph if graph implements IntAdjacency, otherwise null;
+    //   distance, parent and mark have the same length, at least the number
+    //     of ids in use;
+    //   mark[id] <= query for every id;
+    //   if adjacency is null, ids.get(labels.get(i)) == i for every i
+    //
+    // Safety from rep exposure:
+    //   all fields are private; arrays and collections are never returned;
+    //   paths and distance maps are built fresh for each query.
+
+    /**
+     * Make a shortest-path finder over a graph.
+     *
+     * @param graph graph to search; edge weights are used as edge lengths
+     */
+    @SuppressWarnings("unchecked")
+    public ShortestPaths(Graph<L> graph) {
+        this.graph = WeightedGraph.of(graph);
+        this.adjacency = graph instanceof IntAdjacency ? (IntAdjacency<L>) graph : null;
+        if (adjacency != null) {
+            ensureCapacity(adjacency.vertexCount());
+        }
+        checkRep();
+    }
+
+    // Check that the rep invariant is true
+    private void checkRep() {
+        assert distance.length == parent.length && parent.length == mark.length;
+        assert adjacency == null || adjacency == (Object) graph;
+        assert ids.size() == labels.size();
+    }
+
+    /**
+     * Find a shortest path between two vertices.
+     *
+     * @param source label of the first vertex
+     * @param target label of the last vertex
+     * @return the labels along a shortest path from source to target, both
+     *         included; [source] if they are equal and in the graph; the empty
+     *         list if there is no such path or either vertex is not in the graph
+     */
+    public List<L> path(L source, L target) {
+        int t = search(source, target);
+        if (t < 0) {
+            return Collections.emptyList();
+        }
+        List<L> path = new ArrayList<>();
+        for (int v = t; v >= 0; v = parent[v]) {
+            path.add(label(v));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Find the length of a shortest path between two vertices.
+     *
+     * @param source label of the first vertex
+     * @param target label of the last vertex
+     * @return the sum of the edge weights along a shortest path from source to
+     *         target, 0 if they are equal and in the graph, or -1 if there is
+     *         no such path or either vertex is not in the graph
+     */
+    public long distance(L source, L target) {
+        int t = search(source, target);
+        return t < 0 ? -1 : distance[t];
+    }
+
+    /**
+     * Find the length of a shortest path from one vertex to every vertex it
+     * can reach.
+     *
+     * @param source label of a vertex
+     * @return map from each vertex reachable from source, source included, to
+     *         the length of a shortest path to it; empty if source is not in the
+     *         graph
+     */
+    public Map<L, Long> distances(L source) {
+        search(source, null);
+        Map<L, Long> result = new HashMap<>();
+        int bound = adjacency == null ? labels.size() : adjacency.vertexCount();
+        for (int v = 0; v < bound; v++) {
+            if (mark[v] == query) {
+                result.put(label(v), distance[v]);
+            }
+        }
+        return result;
+    }
+
+    // Run Dijkstra from source until target (if not null) is settled or the
+    // queue is empty. Returns the id of target if it was reached, else -1.
+    private int search(L source, L target) {
+        if (adjacency == null) {
+            ids.clear();
+            labels.clear();
+        } else {
+            ensureCapacity(adjacency.vertexCount());
+        }
+        heap.clear();
+        if (++query == Integer.MAX_VALUE) {
+            Arrays.fill(mark, 0);
+            query = 1;
+        }
+        if (!contains(source)) {
+            return -1;
+        }
+        int s = intern(source);
+        int t = -1;
+        if (target != null) {
+            t = adjacency == null ? -1 : adjacency.id(target);
+            if (adjacency != null && t < 0) {
+                return -1;
+            }
+        }
+        reach(s, 0, -1);
+        while (!heap.isEmpty()) {
+            long d = heap.minKey();
+            int u = heap.poll();
+            if (target != null && (u == t || (adjacency == null && labels.get(u).equals(target)))) {
+                checkRep();
+                return u;
+            }
+            if (adjacency != null) {
+                for (int i = 0, degree = adjacency.outDegree(u); i < degree; i++) {
+                    relax(adjacency.target(u, i), d + adjacency.targetWeight(u, i), u);
+                }
+            } else {
+                relaxer.from = u;
+                relaxer.distance = d;
+                graph.forEachTarget(labels.get(u), relaxer);
+            }
+        }
+        checkRep();
+        return -1;
+    }
+
+    // Offer a path of length d to v through parent u
+    private void relax(int v, long d, int u) {
+        if (mark[v] != query) {
+            reach(v, d, u);
+        } else if (d < distance[v] && heap.contains(v)) {
+            distance[v] = d;
+            parent[v] = u;
+            heap.decreaseKey(v, d);
+        }
+    }
+
+    // Record the first path found to v
+    private void reach(int v, long d, int u) {
+        mark[v] = query;
+        distance[v] = d;
+        parent[v] = u;
+        heap.insert(v, d);
+    }
+
+    // True if vertex is in the graph. Only copies vertices() for a vertex
+    // of a graph without IntAdjacency that has no edges.
+    private boolean contains(L vertex) {
+        if (adjacency != null) {
+            return adjacency.id(vertex) >= 0;
+        }
+        EdgeCounter counter = new EdgeCounter();
+        graph.forEachTarget(vertex, counter);
+        graph.forEachSource(vertex, counter);
+        return counter.count > 0 || graph.vertices().contains(vertex);
+    }
+
+    private int intern(L label) {
+        if (adjacency != null) {
+            return adjacency.id(label);
+        }
+        Integer id = ids.get(label);
+        if (id == null) {
+            id = labels.size();
+            ids.put(label, id);
+            labels.add(label);
+            ensureCapacity(labels.size());
+        }
+        return id;
+    }
+
+    private L label(int id) {
+        return adjacency == null ? labels.get(id) : adjacency.label(id);
+    }
+
+    private void ensureCapacity(int n) {
+        if (n > mark.length) {
+            int length = Math.max(n, 2 * mark.length);
+            distance = Arrays.copyOf(distance, length);
+            parent = Arrays.copyOf(parent, length);
+            mark = Arrays.copyOf(mark, length);
+            heap.ensureCapacity(length);
+        }
+    }
+
+    /**
+     * Mutable.
+     * Edge visitor that relaxes the edges out of one vertex of a graph
+     * without IntAdjacency.
+     */
+    private class Relaxer implements ObjIntConsumer<L> {
+        private int from;
+        private long distance;
+
+        @Override public void accept(L target, int weight) {
+            relax(intern(target), distance + weight, from);
+        }
+    }
+}
+
+/**
+ * Mutable.
+ * This class is internal to the rep of ShortestPaths.
+ *
+ * A binary min-heap of int ids with long keys, indexed by id so that
+ * decreaseKey() and contains() are O(log n) and O(1). Ids must be less than
+ * the capacity set with ensureCapacity().
+ */
+class IndexedHeap {
+
+    private int[] heap = new int[0];
+    private long[] keys = new long[0];
+    private int[] position = new int[0];
+    private int size = 0;
+
+    // Abstraction function:
+    //   AF(heap, keys, size) = the set of ids heap[0..size), each with
+    //                          priority keys[id]
+    // Representation invariant:
+    //   keys[heap[(i - 1) / 2]] <= keys[heap[i]] for 0 < i < size;
+    //   position[heap[i]] == i for i < size, and position[id] == -1 for every
+    //   other id
+    // Safety from rep exposure:
+    //   arrays are never returned
+
+    void ensureCapacity(int capacity) {
+        if (capacity > position.length) {
+            int old = position.length;
+            heap = Arrays.copyOf(heap, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            position = Arrays.copyOf(position, capacity);
+            Arrays.fill(position, old, capacity, -1);
+        }
+    }
+
+    /**
+     * Remove every id, in time proportional to the number of ids removed.
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(int id) {
+        return position[id] >= 0;
+    }
+
+    /**
+     * @param id id not in the heap
+     * @param key its priority
+     */
+    void insert(int id, long key) {
+        keys[id] = key;
+        heap[size] = id;
+        position[id] = size;
+        siftUp(size++);
+    }
+
+    /**
+     * @param id id in the heap
+     * @param key new priority, no greater than its current one
+     */
+    void decreaseKey(int id, long key) {
+        keys[id] = key;
+        siftUp(position[id]);
+    }
+
+    /**
+     * @return the least priority in the heap, which must not be empty
+     */
+    long minKey() {
+        return keys[heap[0]];
+    }
+
+    /**
+     * Remove an id with the least priority.
+     *
+     * @return that id; the heap must not be empty
+     */
+    int poll() {
+        int min = heap[0];
+        position[min] = -1;
+        if (--size > 0) {
+            heap[0] = heap[size];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    private void siftUp(int i) {
+        int id = heap[i];
+        long key = keys[id];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[heap[parent]] <= key) {
+                break;
+            }
+            heap[i] = heap[parent];
+            position[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = id;
+        position[id] = i;
+    }
+
+    private void siftDown(int i) {
+        int id = heap[i];
+        long key = keys[id];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && keys[heap[child + 1]] < keys[heap[child]]) {
+                child++;
+            }
+            if (keys[heap[child]] >= key) {
+                break;
+            }
+            heap[i] = heap[child];
+            position[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = id;
+        position[id] = i;
+    }
+}
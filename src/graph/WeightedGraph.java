@@ -0,0 +1,169 @@
+package graph;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A Graph with extra operations for weight-counting workloads.
+ *
+ * <p>Graph itself must not gain methods, so the operations live in this
+ * extension. Every graph implementation in this package implements it;
+ * use {@link #of(Graph)} to get one for any other Graph.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public interface WeightedGraph<L> extends Graph<L> {
+
+    /**
+     * Get a WeightedGraph for a graph.
+     *
+     * @param <L> type of vertex labels in the graph, must be immutable
+     * @param graph a graph
+     * @return graph itself if it is a WeightedGraph, otherwise a WeightedGraph
+     *         view backed by graph
+     */
+    public static <L> WeightedGraph<L> of(Graph<L> graph) {
+        if (graph instanceof WeightedGraph) {
+            return (WeightedGraph<L>) graph;
+        }
+        return new WeightedGraphAdapter<>(graph);
+    }
+
+    /**
+     * Add to the weight of a directed edge in this graph.
+     * Behaves like set(source, target, w + delta), where w is the current
+     * weight of the edge (or zero if there is none): if the new weight is
+     * positive the edge and any missing vertices are added or updated, and if
+     * it is zero the edge is removed. Implementations look the edge up once.
+     *
+     * @param source label of the source vertex
+     * @param target label of the target vertex
+     * @param delta amount to add to the weight of the edge; may be negative
+     * @return the new weight of the edge, or zero if there is no such edge
+     * @throws IllegalArgumentException if the new weight would be negative;
+     *         the graph is not modified
+     */
+    public default int addWeight(L source, L target, int delta) {
+        int weight = targets(source).getOrDefault(target, 0) + delta;
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight of " + source + "->" + target + " would be " + weight);
+        }
+        if (delta != 0) {
+            set(source, target, weight);
+        }
+        return weight;
+    }
+
+    /**
+     * Add to the weights of many edges at once, as if by calling
+     * addWeight(source, target, delta) for every source, target and delta in
+     * deltas. Implementations apply the whole batch in one pass where they
+     * can, looking up each source once.
+     *
+     * @param deltas map from source label to a map from target label to the
+     *               amount to add to the weight of that edge; not modified
+     * @throws IllegalArgumentException if any new weight would be negative;
+     *         the graph may then have been partly updated
+     */
+    public default void addWeights(Map<L, ? extends Map<L, Integer>> deltas) {
+        for (Map.Entry<L, ? extends Map<L, Integer>> row : deltas.entrySet()) {
+            for (Map.Entry<L, Integer> delta : row.getValue().entrySet()) {
+                addWeight(row.getKey(), delta.getKey(), delta.getValue());
+            }
+        }
+    }
+
+    /**
+     * Get the weight of a directed edge in this graph.
+     *
+     * @param source label of the source vertex
+     * @param target label of the target vertex
+     * @return weight of the edge from source to target, or zero if there is
+     *         no such edge
+     */
+    public default int weight(L source, L target) {
+        Integer weight = targets(source).get(target);
+        return weight == null ? 0 : weight;
+    }
+
+    /**
+     * Visit every edge directed out of a vertex. Implementations do not
+     * allocate per edge and do not box weights.
+     * The graph must not be modified while the edges are being visited.
+     *
+     * @param source label of the source vertex
+     * @param visitor called once with the target and the weight of each edge
+     *                from source, in no particular order; not called at all
+     *                if source is not in the graph
+     */
+    public default void forEachTarget(L source, ObjIntConsumer<? super L> visitor) {
+        for (Map.Entry<L, Integer> edge : targets(source).entrySet()) {
+            visitor.accept(edge.getKey(), edge.getValue());
+        }
+    }
+
+    /**
+     * Visit every edge directed into a vertex, as forEachTarget() does.
+     *
+     * @param target label of the target vertex
+     * @param visitor called once with the source and the weight of each edge
+     *                to target, in no particular order; not called at all
+     *                if target is not in the graph
+     */
+    public default void forEachSource(L target, ObjIntConsumer<? super L> visitor) {
+        for (Map.Entry<L, Integer> edge : sources(target).entrySet()) {
+            visitor.accept(edge.getKey(), edge.getValue());
+        }
+    }
+
+}
+
+/**
+ * WeightedGraph view of a Graph that does not implement it.
+ * Every operation is forwarded to the underlying graph.
+ */
+class WeightedGraphAdapter<L> implements WeightedGraph<L> {
+
+    private final Graph<L> graph;
+
+    // Abstraction function:
+    //   AF(graph) = graph
+    // Representation invariant:
+    //   graph != null
+    // Safety from rep exposure:
+    //   graph is private and final; every result comes from graph
+
+    WeightedGraphAdapter(Graph<L> graph) {
+        this.graph = graph;
+        assert graph != null;
+    }
+
+    @Override public boolean add(L vertex) {
+        return graph.add(vertex);
+    }
+
+    @Override public int set(L source, L target, int weight) {
+        return graph.set(source, target, weight);
+    }
+
+    @Override public boolean remove(L vertex) {
+        return graph.remove(vertex);
+    }
+
+    @Override public Set<L> vertices() {
+        return graph.vertices();
+    }
+
+    @Override public Map<L, Integer> sources(L target) {
+        return graph.sources(target);
+    }
+
+    @Override public Map<L, Integer> targets(L source) {
+        return graph.targets(source);
+    }
+
+    @Override public String toString() {
+        return graph.toString();
+    }
+}
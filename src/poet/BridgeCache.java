@@ -0,0 +1,268 @@
+package poet;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded cache of bridge words, keyed by the pair of words they join.
+ *
+ * <p>Negative results are cached too, as the empty string, which is never a
+ * bridge word. Entries are split by key hash into segments, each an LRU map
+ * with its own lock, so threads only contend when they use the same segment.
+ * maxEntries is divided between the segments, and there are fewer segments
+ * than usual in a cache of fewer entries, so the cache never holds more than
+ * maxEntries. Recency is kept per segment: when a segment is full, adding an
+ * entry evicts that segment's least recently used one, even if other
+ * segments hold entries used less recently.
+ *
+ * <p>Every entry is stamped with the generation of the cache when its lookup
+ * started. invalidate() starts a new generation in O(1): entries of earlier
+ * generations are then treated as missing, and removed when next looked up
+ * or evicted, and results computed against the old graph are not stored.
+ *
+ * <p>Safe to share between threads.
+ */
+class BridgeCache {
+
+    /** Cached value for a pair of words with no bridge. */
+    static final String NO_BRIDGE = "";
+
+    // most segments in one cache
+    private static final int SEGMENTS = 16;
+
+    private final int maxEntries;
+    private final Segment[] segments;
+    private volatile long generation = 0;
+
+    // Abstraction function:
+    //   AF(segments, generation) = the map from (w1, w2) to bridge for every
+    //       entry of segments[i].entries, for any i, whose generation is the
+    //       current one; a bridge of NO_BRIDGE means there is none
+    //
+    // Representation invariant:
+    //   maxEntries > 0; segments.length == min(SEGMENTS, maxEntries);
+    //   every key of segments[i] has segment index i;
+    //   segments[i] holds at most its capacity entries, every capacity is
+    //     positive, and the capacities sum to maxEntries
+    //
+    // Safety from rep exposure:
+    //   all fields are private; keys and entries are never returned, and the
+    //   strings in them are immutable.
+    //
+    // Thread safety argument:
+    //   a segment's map and counters are only used while holding its lock;
+    //   generation is volatile, and an entry is only stored, under its
+    //   segment's lock, if the generation has not changed since its lookup
+    //   started.
+
+    /**
+     * Make an empty cache.
+     *
+     * @param maxEntries most entries to keep, must be positive
+     */
+    BridgeCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.segments = new Segment[Math.min(SEGMENTS, maxEntries)];
+        // the first maxEntries % segments.length segments take one more
+        for (int i = 0; i < segments.length; i++) {
+            int capacity = maxEntries / segments.length + (i < maxEntries % segments.length ? 1 : 0);
+            segments[i] = new Segment(capacity);
+        }
+        checkRep();
+    }
+
+    // Check that the rep invariant is true
+    private void checkRep() {
+        assert maxEntries > 0;
+        assert segments.length == Math.min(SEGMENTS, maxEntries);
+        long capacities = 0;
+        for (Segment segment : segments) {
+            assert segment.capacity > 0;
+            capacities += segment.capacity;
+        }
+        assert capacities == maxEntries;
+    }
+
+    /**
+     * @return most entries this cache keeps
+     */
+    int maxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @return the current generation, to pass to put() after a miss
+     */
+    long generation() {
+        return generation;
+    }
+
+    /**
+     * Look up the bridge between two words.
+     *
+     * @param w1 first word
+     * @param w2 second word
+     * @return the cached bridge, NO_BRIDGE if there is none, or null if the
+     *         pair is not cached
+     */
+    String get(String w1, String w2) {
+        Key key = new Key(w1, w2);
+        Segment segment = segment(key);
+        long current = generation;
+        segment.lock.lock();
+        try {
+            Entry entry = segment.entries.get(key);
+            if (entry != null && entry.generation == current) {
+                segment.hits++;
+                return entry.bridge;
+            }
+            if (entry != null) {
+                segment.entries.remove(key);
+            }
+            segment.misses++;
+            return null;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Store the bridge between two words, unless the cache was invalidated
+     * since the lookup began.
+     *
+     * @param w1 first word
+     * @param w2 second word
+     * @param bridge their bridge, or null if there is none
+     * @param generation the cache's generation() before the bridge was found
+     */
+    void put(String w1, String w2, String bridge, long generation) {
+        Key key = new Key(w1, w2);
+        Segment segment = segment(key);
+        segment.lock.lock();
+        try {
+            if (generation == this.generation) {
+                segment.entries.put(key, new Entry(bridge == null ? NO_BRIDGE : bridge, generation));
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Drop every entry, because the graph has changed.
+     */
+    void invalidate() {
+        // taking every lock orders this write after any put() in progress,
+        // so no entry of the old generation is stored once this returns
+        for (Segment segment : segments) {
+            segment.lock.lock();
+        }
+        try {
+            generation++;
+        } finally {
+            for (Segment segment : segments) {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return counts of hits, misses and evictions so far, and the current
+     *         number of entries (including any not yet dropped after an
+     *         invalidate())
+     */
+    CacheStats stats() {
+        long hits = 0;
+        long misses = 0;
+        long evictions = 0;
+        long size = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                hits += segment.hits;
+                misses += segment.misses;
+                evictions += segment.evictions;
+                size += segment.entries.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return new CacheStats(hits, misses, evictions, size, maxEntries);
+    }
+
+    private Segment segment(Key key) {
+        int hash = key.hashCode();
+        return segments[Math.floorMod(hash ^ (hash >>> 16), segments.length)];
+    }
+
+    /**
+     * Mutable.
+     * One LRU segment of the cache, guarded by its lock.
+     */
+    private static class Segment {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int capacity;
+        private final Map<Key, Entry> entries;
+        private long hits = 0;
+        private long misses = 0;
+        private long evictions = 0;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+            entries = new LinkedHashMap<>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                    if (size() > capacity) {
+                        evictions++;
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+    /**
+     * Immutable.
+     * A pair of words.
+     */
+    private static class Key {
+
+        private final String w1;
+        private final String w2;
+
+        Key(String w1, String w2) {
+            this.w1 = w1;
+            this.w2 = w2;
+        }
+
+        @Override public boolean equals(Object that) {
+            return that instanceof Key other && w1.equals(other.w1) && w2.equals(other.w2);
+        }
+
+        @Override public int hashCode() {
+            return 31 * w1.hashCode() + w2.hashCode();
+        }
+    }
+
+    /**
+     * Immutable.
+     * A cached bridge and the generation it was found in.
+     */
+    private static class Entry {
+
+        private final String bridge;
+        private final long generation;
+
+        Entry(String bridge, long generation) {
+            this.bridge = bridge;
+            this.generation = generation;
+        }
+    }
+}
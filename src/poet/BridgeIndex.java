@@ -0,0 +1,254 @@
+package poet;
+
+import java.util.Arrays;
+
+import graph.IntAdjacency;
+
+/**
+ * Immutable.
+ * Precomputed best bridge words of a word graph, for the hottest first words.
+ *
+ * <p>For a first word w1 and a second word w2, the best bridge is the word b
+ * with edges w1 -> b and b -> w2 that maximizes the sum of their weights,
+ * ties going to the alphabetically first b. The index stores the best bridge
+ * of every (w1, w2) pair two hops apart, for the first words with the
+ * largest total out-weight (the ones a corpus-like input uses most) that fit
+ * in a memory budget. A lookup is one probe of an open-addressing hash table.
+ *
+ * <p>Only the bridge is stored, not its combined weight: poem() needs
+ * nothing else, ties are settled when the index is built, and a weight
+ * would grow each slot from 12 to 20 bytes, so a budget would cover 40%
+ * fewer pairs.
+ *
+ * <p>Safe to share between threads.
+ */
+class BridgeIndex {
+
+    // bytes of table per slot: a long key and an int bridge
+    static final int BYTES_PER_SLOT = Long.BYTES + Integer.BYTES;
+
+    // most pairs in one index, so that the table has at most 2^30 slots
+    private static final int MAX_PAIRS = 1 << 29;
+
+    private static final long EMPTY = -1;
+
+    private final boolean[] covered;
+    private final long[] keys;
+    private final int[] bridges;
+    private final int pairs;
+
+    // Abstraction function:
+    //   AF(covered, keys, bridges) = the best bridge of (w1, w2) is
+    //       bridges[i] if keys[i] == pack(w1, w2) for some i, and there is
+    //       none if no such i exists and covered[w1]; pairs whose w1 is not
+    //       covered are not in the index
+    //
+    // Representation invariant:
+    //   keys.length == bridges.length == capacity(pairs), which is at least
+    //     twice the number of non-EMPTY keys, pairs;
+    //   covered.length is 0 if no word is covered, otherwise the number of
+    //     words in the graph;
+    //   every non-EMPTY key k is reachable by linear probing from slot(k);
+    //   covered[w1] for the w1 of every non-EMPTY key
+    //
+    // Safety from rep exposure:
+    //   all fields are private and final, and arrays are never returned or
+    //   written after construction.
+    //
+    // Thread safety argument:
+    //   the rep is never written after construction and every field is final.
+
+    /**
+     * Index the best bridges of the hottest first words of a graph.
+     *
+     * @param graph word graph whose ids are in alphabetical order of the words
+     * @param maxBytes most bytes the index may use, as bytes() counts them;
+     *                 first words are indexed in decreasing order of total
+     *                 out-weight until the next one would not fit. Building
+     *                 also needs about 44 bytes per word of scratch space,
+     *                 which is freed when it returns
+     * @return an index of graph, with bytes() <= max(maxBytes, 0)
+     */
+    static BridgeIndex build(IntAdjacency<String> graph, long maxBytes) {
+        int n = graph.vertexCount();
+        long[] outWeight = new long[n];
+        Integer[] order = new Integer[n];
+        for (int v = 0; v < n; v++) {
+            order[v] = v;
+            for (int i = 0; i < graph.outDegree(v); i++) {
+                outWeight[v] += graph.targetWeight(v, i);
+            }
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(outWeight[b], outWeight[a]));
+
+        // first pass: choose the first words that fit, counting their pairs;
+        // they are order[0 .. chosen)
+        TwoHops hops = new TwoHops(n);
+        int chosen = 0;
+        long pairs = 0;
+        for (int w1 : order) {
+            long more = pairs + hops.from(graph, w1);
+            if (more > MAX_PAIRS || bytes(n, more) > maxBytes) {
+                break;
+            }
+            chosen++;
+            pairs = more;
+        }
+        boolean[] covered = new boolean[chosen == 0 ? 0 : n];
+        for (int i = 0; i < chosen; i++) {
+            covered[order[i]] = true;
+        }
+
+        // second pass: fill the table
+        int capacity = capacity(pairs);
+        long[] keys = new long[capacity];
+        int[] bridges = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        for (int w1 = 0; w1 < covered.length; w1++) {
+            if (!covered[w1]) {
+                continue;
+            }
+            int count = hops.from(graph, w1);
+            for (int i = 0; i < count; i++) {
+                int w2 = hops.reached[i];
+                long key = pack(w1, w2);
+                int slot = slot(key, capacity);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                keys[slot] = key;
+                bridges[slot] = hops.bridge[w2];
+            }
+        }
+        return new BridgeIndex(covered, keys, bridges, (int) pairs);
+    }
+
+    private BridgeIndex(boolean[] covered, long[] keys, int[] bridges, int pairs) {
+        this.covered = covered;
+        this.keys = keys;
+        this.bridges = bridges;
+        this.pairs = pairs;
+        checkRep();
+    }
+
+    // Check that the rep invariant is true
+    private void checkRep() {
+        assert keys.length == capacity(pairs);
+        assert keys.length == bridges.length;
+        assert 2L * pairs <= keys.length;
+    }
+
+    // Get the number of table slots for a number of pairs: the least power
+    // of two at least twice as large, or 0 for no pairs
+    private static int capacity(long pairs) {
+        return pairs == 0 ? 0 : Integer.highestOneBit((int) (2 * pairs - 1)) << 1;
+    }
+
+    // Get the bytes used by an index of a graph of n words holding a number
+    // of pairs, with at least one word covered
+    private static long bytes(int n, long pairs) {
+        return (long) capacity(pairs) * BYTES_PER_SLOT + n;
+    }
+
+    private static long pack(int w1, int w2) {
+        return ((long) w1 << 32) | (w2 & 0xFFFFFFFFL);
+    }
+
+    private static int slot(long key, int capacity) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (capacity - 1);
+    }
+
+    /**
+     * @param w1 id of a word
+     * @return true if the bridges from w1 are in the index
+     */
+    boolean covers(int w1) {
+        return w1 < covered.length && covered[w1];
+    }
+
+    /**
+     * Get the best bridge between two words.
+     *
+     * @param w1 id of a word that the index covers
+     * @param w2 id of a word
+     * @return id of the best bridge from w1 to w2, or -1 if there is none
+     */
+    int bridge(int w1, int w2) {
+        if (pairs == 0) {
+            return -1;
+        }
+        long key = pack(w1, w2);
+        for (int slot = slot(key, keys.length); keys[slot] != EMPTY; slot = (slot + 1) & (keys.length - 1)) {
+            if (keys[slot] == key) {
+                return bridges[slot];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return number of (w1, w2) pairs in the index
+     */
+    int size() {
+        return pairs;
+    }
+
+    /**
+     * @return bytes used by the index's table and its set of covered words
+     */
+    long bytes() {
+        return (long) keys.length * BYTES_PER_SLOT + covered.length;
+    }
+
+    /**
+     * Mutable.
+     * Scratch space for finding the best bridges from one first word.
+     */
+    private static class TwoHops {
+
+        // after from(graph, w1): for the count words w2 in reached[0..count),
+        // bridge[w2] and weight[w2] are the best bridge from w1 and its weight;
+        // weight[w] == 0 for every other w
+        private final int[] reached;
+        private final int[] bridge;
+        private final long[] weight;
+        private int count = 0;
+
+        TwoHops(int n) {
+            reached = new int[n];
+            bridge = new int[n];
+            weight = new long[n];
+        }
+
+        /**
+         * Find the best bridges from a first word.
+         *
+         * @return number of words two hops from w1
+         */
+        int from(IntAdjacency<String> graph, int w1) {
+            for (int i = 0; i < count; i++) {
+                weight[reached[i]] = 0;
+            }
+            count = 0;
+            // bridges are visited in increasing id order, so keeping the
+            // first of equal weights keeps the alphabetically first bridge
+            for (int i = 0; i < graph.outDegree(w1); i++) {
+                int b = graph.target(w1, i);
+                int toBridge = graph.targetWeight(w1, i);
+                for (int j = 0; j < graph.outDegree(b); j++) {
+                    int w2 = graph.target(b, j);
+                    long total = (long) toBridge + graph.targetWeight(b, j);
+                    if (weight[w2] == 0) {
+                        reached[count++] = w2;
+                    }
+                    if (total > weight[w2]) {
+                        weight[w2] = total;
+                        bridge[w2] = b;
+                    }
+                }
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package poet;
+
+import graph.IntAdjacency;
+
+/**
+ * Finds the best bridge between two words by merging their neighbour lists.
+ *
+ * <p>The bridges from a source s to a target t are the words in both the
+ * targets of s and the sources of t. The best is the one with the largest
+ * sum of edge weights, ties going to the alphabetically first word. Both
+ * lists are sorted by id, and ids are in alphabetical order, so the lists
+ * are merged in O(m + n). When one list is much shorter than the other (a
+ * rare word next to a hub like "the"), the longer one is skipped through by
+ * galloping instead, in O(m log(n / m)) steps.
+ *
+ * <p>s and t may be vertices of different graphs, as long as the ids of both
+ * are mapped to ranks of one alphabetical order: GraphPoet merges within one
+ * graph, where an id is its own rank, and ShardedGraphPoet merges across
+ * shards, ranking each shard's words among the words of all of them.
+ */
+final class BridgeMerge {
+
+    /** Result of best() when there is no bridge. */
+    static final long NONE = -1;
+
+    private BridgeMerge() {
+        throw new AssertionError("BridgeMerge is not instantiable");
+    }
+
+    /**
+     * Find the best bridge from a source to a target.
+     *
+     * @param sources graph of the source
+     * @param sourceRanks rank of each id of sources, or null if every id is
+     *                    its own rank
+     * @param source id of the source in sources
+     * @param targets graph of the target, in which the bridges are words
+     * @param targetRanks rank of each id of targets, or null if every id is
+     *                    its own rank
+     * @param target id of the target in targets
+     * @return NONE if there is no bridge, otherwise the bridge and the sum of
+     *         its weights, read with bridge() and weight()
+     */
+    static long best(IntAdjacency<?> sources, int[] sourceRanks, int source,
+                     IntAdjacency<?> targets, int[] targetRanks, int target) {
+        int outs = sources.outDegree(source);
+        int ins = targets.inDegree(target);
+        if (outs == 0 || ins == 0) {
+            return NONE;
+        }
+        int shorter = Math.min(outs, ins);
+        int longer = Math.max(outs, ins);
+        boolean gallop = (long) shorter * (32 - Integer.numberOfLeadingZeros(longer)) < longer;
+        int best = -1;
+        long bestWeight = 0;
+        int i = 0;
+        int j = 0;
+        while (i < outs && j < ins) {
+            int out = rank(sourceRanks, sources.target(source, i));
+            int in = rank(targetRanks, targets.source(target, j));
+            if (out < in) {
+                i = gallop ? seek(sources, sourceRanks, source, true, i + 1, outs, in) : i + 1;
+            } else if (in < out) {
+                j = gallop ? seek(targets, targetRanks, target, false, j + 1, ins, out) : j + 1;
+            } else {
+                long weight = (long) sources.targetWeight(source, i) + targets.sourceWeight(target, j);
+                // bridges are visited in alphabetical order, so keeping the
+                // first of equal weights keeps the alphabetically first word
+                if (weight > bestWeight) {
+                    bestWeight = weight;
+                    best = targets.source(target, j);
+                }
+                i++;
+                j++;
+            }
+        }
+        // a weight is the sum of two ints, so it fits in the upper 32 bits
+        return best < 0 ? NONE : bestWeight << 32 | best;
+    }
+
+    /**
+     * @param best a result of best() other than NONE
+     * @return id of the bridge in the graph of the target
+     */
+    static int bridge(long best) {
+        return (int) best;
+    }
+
+    /**
+     * @param best a result of best() other than NONE
+     * @return sum of the weights of the edges into and out of the bridge
+     */
+    static long weight(long best) {
+        return best >>> 32;
+    }
+
+    private static int rank(int[] ranks, int id) {
+        return ranks == null ? id : ranks[id];
+    }
+
+    // Find the first index in [from, to) of the targets (if outgoing) or
+    // sources of vertex in graph whose rank is at least key, or to if there
+    // is none
+    private static int seek(IntAdjacency<?> graph, int[] ranks, int vertex, boolean outgoing,
+                            int from, int to, int key) {
+        int low = from;
+        int step = 1;
+        // gallop: find a range [low, high) that holds the answer
+        int high = from;
+        while (high < to && rank(ranks, neighbour(graph, vertex, outgoing, high)) < key) {
+            low = high + 1;
+            high = from + step;
+            step <<= 1;
+        }
+        high = Math.min(high, to);
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (rank(ranks, neighbour(graph, vertex, outgoing, middle)) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int neighbour(IntAdjacency<?> graph, int vertex, boolean outgoing, int i) {
+        return outgoing ? graph.target(vertex, i) : graph.source(vertex, i);
+    }
+}
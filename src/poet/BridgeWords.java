@@ -0,0 +1,52 @@
+package poet;
+
+/**
+ * The bridge words between consecutive words of one poem, found one word at
+ * a time.
+ */
+interface BridgeWords {
+
+    /**
+     * Move on to the next word.
+     *
+     * @param word next normalized word of the poem
+     * @return the bridge word between the last word and word, or null if
+     *         there is none or word is the first
+     */
+    String next(WordSpan word);
+
+    /**
+     * Generate a poem: the words of input, each separated from the next by
+     * a space and the bridge word between them, if there is one.
+     *
+     * @param input string from which to create the poem
+     * @param bridges bridge words for a new poem, not yet given any word
+     * @return poem, trimmed; input itself if it has no words
+     */
+    static String poem(String input, BridgeWords bridges) {
+        Tokenizer words = new Tokenizer(input, Normalizer.INPUT);
+        WordSpan word = new WordSpan();
+
+        // Handle empty or single-word input
+        if (!words.next(word)) return input;
+        int start = words.start();
+        int end = words.end();
+        bridges.next(word);
+        if (!words.next(word)) return input.trim();
+
+        StringBuilder poem = new StringBuilder(input.length() + input.length() / 2);
+        do {
+            poem.append(input, start, end).append(' '); // Append original word
+
+            String bridgeWord = bridges.next(word);
+            if (bridgeWord != null) {
+                poem.append(bridgeWord).append(' ');
+            }
+            start = words.start();
+            end = words.end();
+        } while (words.next(word));
+
+        poem.append(input, start, end); // Add the last word
+        return poem.toString().trim();
+    }
+}
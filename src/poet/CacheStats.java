@@ -0,0 +1,87 @@
+package poet;
+
+/**
+ * Immutable.
+ * A snapshot of the counters of a poet's bridge-word cache.
+ */
+public final class CacheStats {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long size;
+    private final long maxEntries;
+
+    // Abstraction function:
+    //   AF(hits, misses, evictions, size, maxEntries) = a cache that has
+    //       answered hits lookups from its entries and missed misses,
+    //       evicted evictions entries to stay within maxEntries, and holds
+    //       size entries
+    // Representation invariant:
+    //   every field is nonnegative
+    // Safety from rep exposure:
+    //   all fields are private, final and primitive
+
+    CacheStats(long hits, long misses, long evictions, long size, long maxEntries) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+        this.maxEntries = maxEntries;
+        checkRep();
+    }
+
+    // Check that the rep invariant is true
+    private void checkRep() {
+        assert hits >= 0 && misses >= 0 && evictions >= 0 && size >= 0 && maxEntries >= 0;
+    }
+
+    /**
+     * @return number of lookups answered from the cache
+     */
+    public long hits() {
+        return hits;
+    }
+
+    /**
+     * @return number of lookups that had to search the graph
+     */
+    public long misses() {
+        return misses;
+    }
+
+    /**
+     * @return number of entries dropped to make room for newer ones
+     */
+    public long evictions() {
+        return evictions;
+    }
+
+    /**
+     * @return number of entries in the cache
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return most entries the cache keeps; 0 if the poet has no cache
+     */
+    public long maxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @return hits as a fraction of all lookups, or 0 if there were none
+     */
+    public double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats [hits=" + hits + ", misses=" + misses + ", evictions=" + evictions
+                + ", size=" + size + ", maxEntries=" + maxEntries + "]";
+    }
+}
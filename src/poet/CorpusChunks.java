@@ -0,0 +1,116 @@
+package poet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Splits a UTF-8 corpus file into byte ranges that can be read independently.
+ *
+ * <p>Every range but the first starts just after a whitespace byte, so no
+ * word is split between two ranges. Whitespace characters are single ASCII
+ * bytes, which never occur inside the encoding of another character, so
+ * ranges are also valid UTF-8 on their own.
+ */
+final class CorpusChunks {
+
+    private CorpusChunks() {
+        throw new AssertionError("CorpusChunks is not instantiable");
+    }
+
+    /**
+     * Split a file into ranges of about a given size.
+     *
+     * @param file file to split
+     * @param chunkBytes target bytes per range, positive
+     * @return boundaries b such that the ranges are [b[i], b[i + 1]); b[0] is
+     *         0, b is strictly increasing and ends at the size of the file.
+     *         An empty file has the one boundary 0.
+     * @throws IOException if file cannot be read
+     */
+    static long[] split(FileChannel file, long chunkBytes) throws IOException {
+        long size = file.size();
+        int chunks = (int) Math.min(Integer.MAX_VALUE - 1, (size + chunkBytes - 1) / chunkBytes);
+        long[] boundaries = new long[chunks + 1];
+        int count = 1;
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+        for (int i = 1; i < chunks; i++) {
+            long boundary = afterWhitespace(file, Math.max(boundaries[count - 1], i * chunkBytes), size, buffer);
+            if (boundary >= size) {
+                break;
+            }
+            if (boundary > boundaries[count - 1]) {
+                boundaries[count++] = boundary;
+            }
+        }
+        if (size > 0) {
+            boundaries[count++] = size;
+        }
+        return Arrays.copyOf(boundaries, count);
+    }
+
+    // Find the position just after the first whitespace byte at or after from,
+    // or size if there is none
+    private static long afterWhitespace(FileChannel file, long from, long size, ByteBuffer buffer)
+            throws IOException {
+        long position = from;
+        while (position < size) {
+            buffer.clear();
+            int read = file.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b >= 0 && CorpusReader.isWhitespace((char) b)) {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Get a channel that reads one range of a file. The channel does not move
+     * the file's position, so channels of several ranges of one file may be
+     * read at the same time.
+     *
+     * @param file file to read
+     * @param start first byte of the range
+     * @param end byte just after the range
+     * @return channel that reads file[start, end); closing it does nothing
+     */
+    static ReadableByteChannel range(FileChannel file, long start, long end) {
+        return new ReadableByteChannel() {
+            private long position = start;
+
+            @Override public int read(ByteBuffer dst) throws IOException {
+                if (position >= end) {
+                    return -1;
+                }
+                int limit = dst.limit();
+                dst.limit((int) Math.min(limit, dst.position() + (end - position)));
+                try {
+                    int read = file.read(dst, position);
+                    if (read > 0) {
+                        position += read;
+                    }
+                    return read;
+                } finally {
+                    dst.limit(limit);
+                }
+            }
+
+            @Override public boolean isOpen() {
+                return file.isOpen();
+            }
+
+            @Override public void close() {
+                // the file belongs to the caller
+            }
+        };
+    }
+}
@@ -0,0 +1,143 @@
+package poet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Mutable.
+ * Reads the words of a UTF-8 text from a channel, one at a time, normalizing
+ * each into a reusable WordSpan.
+ *
+ * <p>Words are the maximal runs of characters other than the whitespace
+ * that the regex \s matches (space, \t, \n, \x0B, \f and \r), so line breaks
+ * separate words like any other whitespace. Each character of a word is
+ * passed through a Normalizer once, as it is decoded. The channel is read
+ * through one fixed-size byte buffer and decoded into one fixed-size char
+ * buffer, so memory use does not depend on the size of the text, and reading
+ * a word does not allocate.
+ *
+ * <p>Not safe for use by several threads at once. Does not close the channel.
+ */
+class CorpusReader implements WordSource {
+
+    static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private final ReadableByteChannel channel;
+    private final Normalizer normalizer;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+    private final ByteBuffer bytes;
+    private final CharBuffer chars;
+    private boolean finished = false;
+
+    // Abstraction function:
+    //   AF(channel, bytes, chars, finished) = the words of the text made of
+    //       chars[position, limit), then the decoding of bytes[0, position),
+    //       then the rest of channel (nothing if finished)
+    //
+    // Representation invariant:
+    //   chars is in read mode and bytes in write mode between calls
+    //
+    // Safety from rep exposure:
+    //   all fields are private; buffers are never returned, and words are
+    //   copied into the caller's WordSpan.
+
+    /**
+     * Make a reader of a channel.
+     *
+     * @param channel UTF-8 text to read, from its current position
+     * @param normalizer normalizer of the characters of each word
+     */
+    CorpusReader(ReadableByteChannel channel, Normalizer normalizer) {
+        this(channel, normalizer, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Make a reader of a channel with a given buffer size.
+     *
+     * @param channel UTF-8 text to read, from its current position
+     * @param normalizer normalizer of the characters of each word
+     * @param bufferSize bytes to read at a time, at least 4
+     */
+    CorpusReader(ReadableByteChannel channel, Normalizer normalizer, int bufferSize) {
+        if (bufferSize < 4) {
+            throw new IllegalArgumentException("buffer too small: " + bufferSize);
+        }
+        this.channel = channel;
+        this.normalizer = normalizer;
+        this.bytes = ByteBuffer.allocate(bufferSize);
+        this.chars = CharBuffer.allocate(bufferSize);
+        chars.flip();
+        checkRep();
+    }
+
+    // Check that the rep invariant is true
+    private void checkRep() {
+        assert bytes.capacity() == chars.capacity();
+    }
+
+    /**
+     * Read the next word.
+     *
+     * @param word span to hold the normalized word, which may be empty if no
+     *             character of the raw word is kept
+     * @return true if there was a word, false at the end of the text
+     * @throws IOException if the channel cannot be read or is not valid UTF-8
+     */
+    @Override public boolean next(WordSpan word) throws IOException {
+        word.clear();
+        boolean inWord = false;
+        while (true) {
+            while (chars.hasRemaining()) {
+                char c = chars.get();
+                if (isWhitespace(c)) {
+                    if (inWord) {
+                        return true;
+                    }
+                } else {
+                    normalizer.append(c, word);
+                    inWord = true;
+                }
+            }
+            if (!fill()) {
+                return inWord;
+            }
+        }
+    }
+
+    /**
+     * @param c a character
+     * @return true if c is matched by the regex \s
+     */
+    static boolean isWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    // Decode more of the channel into chars. Returns false at the end.
+    private boolean fill() throws IOException {
+        if (finished) {
+            return false;
+        }
+        chars.clear();
+        while (chars.position() == 0) {
+            boolean end = channel.read(bytes) < 0;
+            bytes.flip();
+            CoderResult result = decoder.decode(bytes, chars, end);
+            bytes.compact();
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (end && result.isUnderflow()) {
+                decoder.flush(chars);
+                finished = true;
+                break;
+            }
+        }
+        chars.flip();
+        return chars.hasRemaining();
+    }
+}
@@ -0,0 +1,384 @@
+package poet;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ObjIntConsumer;
+
+import graph.FrozenGraph;
+import graph.IntAdjacency;
+import graph.WeightedGraph;
+
+/**
+ * Mutable.
+ * A graph of words made of an immutable base graph and layers of changed
+ * edges over it.
+ *
+ * <p>A change records the new weight of one edge, 0 for an edge removed, so
+ * changing the graph costs time proportional to the edges changed, however
+ * large the base. Reads look an edge up in the layers, newest first, and
+ * then in the base. The base is read by id, and changedOut() and
+ * changedIn() tell a reader when the base alone still has every edge out
+ * of or into a word. Vertices are never removed: remove() throws
+ * UnsupportedOperationException, and a word whose edges are all removed
+ * stays in the graph.
+ *
+ * <p>seal() starts a new layer for later changes, so the graph as it was can
+ * be frozen without holding up changes, and rebase() then replaces the base
+ * and the sealed layers with that frozen graph.
+ *
+ * <p>Mutators must not be called by two threads at once. Reads are safe from
+ * any thread, also while a mutator runs, and then see some of its changes.
+ */
+class DeltaGraph implements WeightedGraph<String> {
+
+    private final WeightedGraph<String> base;
+    private final IntAdjacency<String> ids;
+    // oldest first; changes are made in the last layer
+    private volatile Layer[] layers;
+
+    // Abstraction function:
+    //   AF(base, layers) = the graph with the vertices of base and of every
+    //       layer, where the weight of the edge from s to t is its weight in
+    //       the newest layer that has it, or in base if none does
+    //
+    // Representation invariant:
+    //   base == ids; layers.length >= 1;
+    //   no layer has a negative weight;
+    //   every word with a positive weight in a layer is a vertex of base or
+    //     in the added words of that layer or an older one;
+    //   in every layer, in has the same edges as out, with the same weights
+    //
+    // Safety from rep exposure:
+    //   all fields are private; layers and their maps are never returned,
+    //   and vertices(), sources() and targets() return new collections of
+    //   Strings and Integers. base is immutable.
+    //
+    // Thread safety argument:
+    //   base is immutable; the maps of a layer are concurrent, so readers
+    //   see each change whole; layers is volatile and replaced, never
+    //   written in place, so readers see a whole array of layers. Only one
+    //   thread changes the graph at a time, so the counts of a layer have
+    //   one writer.
+
+    /**
+     * Make a graph with no changes over a base graph.
+     *
+     * @param <G> type of the base graph
+     * @param base immutable graph of words
+     */
+    <G extends WeightedGraph<String> & IntAdjacency<String>> DeltaGraph(G base) {
+        this(base, base, new Layer[] { new Layer() });
+    }
+
+    private DeltaGraph(WeightedGraph<String> base, IntAdjacency<String> ids, Layer[] layers) {
+        this.base = base;
+        this.ids = ids;
+        this.layers = layers;
+        checkRep();
+    }
+
+    // Check that the rep invariant is true, apart from the contents of the
+    // layers, which would take time proportional to the changes
+    private void checkRep() {
+        assert base == ids;
+        assert layers.length >= 1;
+    }
+
+    /**
+     * Mutable.
+     * One layer of changes: the new weights of the edges changed, 0 for an
+     * edge removed, and the words added.
+     */
+    private static class Layer {
+        private final Map<String, Map<String, Integer>> out = new ConcurrentHashMap<>();
+        private final Map<String, Map<String, Integer>> in = new ConcurrentHashMap<>();
+        private final Set<String> added = ConcurrentHashMap.newKeySet();
+        private volatile int edges = 0;
+
+        // Get the weight of an edge in this layer, or null if it is not here
+        Integer weight(String source, String target) {
+            Map<String, Integer> row = out.get(source);
+            return row == null ? null : row.get(target);
+        }
+
+        // Get the edges out of vertex if outgoing, otherwise into it
+        Map<String, Integer> row(String vertex, boolean outgoing) {
+            Map<String, Integer> row = (outgoing ? out : in).get(vertex);
+            return row == null ? Map.of() : row;
+        }
+
+        void put(String source, String target, int weight) {
+            if (out.computeIfAbsent(source, s -> new ConcurrentHashMap<>()).put(target, weight) == null) {
+                edges++;
+            }
+            in.computeIfAbsent(target, t -> new ConcurrentHashMap<>()).put(source, weight);
+        }
+    }
+
+    /**
+     * @return the base graph, whose ids are read by id()-based readers
+     */
+    IntAdjacency<String> base() {
+        return ids;
+    }
+
+    /**
+     * @return true if any edge or vertex has been changed or added since the
+     *         base was made
+     */
+    boolean changed() {
+        for (Layer layer : layers) {
+            if (layer.edges > 0 || !layer.added.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return number of changed edges in all layers, including removed ones
+     */
+    int changes() {
+        int changes = 0;
+        for (Layer layer : layers) {
+            changes += layer.edges;
+        }
+        return changes;
+    }
+
+    /**
+     * @param source a word
+     * @return true if some edge out of source has changed since the base was
+     *         made, so that the base's row of source may be out of date
+     */
+    boolean changedOut(String source) {
+        for (Layer layer : layers) {
+            if (layer.out.containsKey(source)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param target a word
+     * @return true if some edge into target has changed since the base was
+     *         made, so that the base's row of target may be out of date
+     */
+    boolean changedIn(String target) {
+        for (Layer layer : layers) {
+            if (layer.in.containsKey(target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param source a word
+     * @return at least the number of edges out of source, and at most that
+     *         plus the number of changed ones
+     */
+    int outDegree(String source) {
+        return degree(source, true);
+    }
+
+    /**
+     * @param target a word
+     * @return at least the number of edges into target, and at most that
+     *         plus the number of changed ones
+     */
+    int inDegree(String target) {
+        return degree(target, false);
+    }
+
+    private int degree(String vertex, boolean outgoing) {
+        int id = ids.id(vertex);
+        int degree = id < 0 ? 0 : outgoing ? ids.outDegree(id) : ids.inDegree(id);
+        for (Layer layer : layers) {
+            degree += layer.row(vertex, outgoing).size();
+        }
+        return degree;
+    }
+
+    /**
+     * Start a new layer for later changes. Until rebase(), the graph reads
+     * as before.
+     *
+     * @return a read-only graph with this graph's vertices and edges as they
+     *         are now, which later changes to this graph do not change
+     */
+    DeltaGraph seal() {
+        Layer[] sealed = layers;
+        Layer[] next = Arrays.copyOf(sealed, sealed.length + 1);
+        next[sealed.length] = new Layer();
+        layers = next;
+        return new DeltaGraph(base, ids, sealed);
+    }
+
+    /**
+     * Make a graph over a new base that replaces a sealed part of this one.
+     *
+     * @param sealed a graph returned by seal() on this graph, not yet rebased
+     * @param frozen a frozen graph with the vertices and edges of sealed
+     * @return a graph over frozen with the layers of this graph that are
+     *         newer than sealed's, which reads as this graph does; later
+     *         changes to either graph are made in both
+     */
+    DeltaGraph rebase(DeltaGraph sealed, FrozenGraph<String> frozen) {
+        Layer[] layers = this.layers;
+        int newer = layers.length - sealed.layers.length;
+        if (newer < 1 || layers[sealed.layers.length - 1] != sealed.layers[sealed.layers.length - 1]) {
+            throw new IllegalArgumentException("not a sealed part of this graph");
+        }
+        return new DeltaGraph(frozen, frozen, Arrays.copyOfRange(layers, sealed.layers.length, layers.length));
+    }
+
+    /**
+     * @return a new graph with no changes over this graph's base
+     */
+    DeltaGraph withoutChanges() {
+        return new DeltaGraph(base, ids, new Layer[] { new Layer() });
+    }
+
+    /**
+     * @return an immutable snapshot of this graph; the base itself if it is a
+     *         FrozenGraph and nothing has changed
+     */
+    FrozenGraph<String> freeze() {
+        if (!changed() && base instanceof FrozenGraph) {
+            return (FrozenGraph<String>) base;
+        }
+        return FrozenGraph.of(this);
+    }
+
+    // Get the weight of an edge in the newest of layers[0 .. limit) that
+    // has it, or null if none does
+    private static Integer changedWeight(Layer[] layers, int limit, String source, String target) {
+        for (int k = limit - 1; k >= 0; k--) {
+            Integer weight = layers[k].weight(source, target);
+            if (weight != null) {
+                return weight;
+            }
+        }
+        return null;
+    }
+
+    private boolean contains(String vertex) {
+        if (ids.id(vertex) >= 0) {
+            return true;
+        }
+        for (Layer layer : layers) {
+            if (layer.added.contains(vertex)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override public boolean add(String vertex) {
+        if (contains(vertex)) {
+            return false;
+        }
+        Layer[] layers = this.layers;
+        layers[layers.length - 1].added.add(vertex);
+        return true;
+    }
+
+    @Override public int set(String source, String target, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("negative weight: " + weight);
+        }
+        int old = weight(source, target);
+        if (weight == old) {
+            return old;
+        }
+        if (weight > 0) {
+            add(source);
+            add(target);
+        }
+        Layer[] layers = this.layers;
+        layers[layers.length - 1].put(source, target, weight);
+        return old;
+    }
+
+    @Override public boolean remove(String vertex) {
+        throw new UnsupportedOperationException("words are never removed from a DeltaGraph");
+    }
+
+    @Override public Set<String> vertices() {
+        Set<String> vertices = new HashSet<>(base.vertices());
+        for (Layer layer : layers) {
+            vertices.addAll(layer.added);
+        }
+        return vertices;
+    }
+
+    @Override public Map<String, Integer> sources(String target) {
+        Map<String, Integer> sources = new HashMap<>();
+        forEachSource(target, sources::put);
+        return sources;
+    }
+
+    @Override public Map<String, Integer> targets(String source) {
+        Map<String, Integer> targets = new HashMap<>();
+        forEachTarget(source, targets::put);
+        return targets;
+    }
+
+    @Override public int weight(String source, String target) {
+        Layer[] layers = this.layers;
+        Integer changed = changedWeight(layers, layers.length, source, target);
+        return changed != null ? changed : base.weight(source, target);
+    }
+
+    @Override public void forEachTarget(String source, ObjIntConsumer<? super String> visitor) {
+        visit(source, true, visitor);
+    }
+
+    @Override public void forEachSource(String target, ObjIntConsumer<? super String> visitor) {
+        visit(target, false, visitor);
+    }
+
+    // Visit the edges out of vertex if outgoing, otherwise into it: first
+    // those of the base, then those that only layers have, each once with
+    // its newest weight
+    private void visit(String vertex, boolean outgoing, ObjIntConsumer<? super String> visitor) {
+        Layer[] layers = this.layers;
+        ObjIntConsumer<String> fromBase = (neighbour, baseWeight) -> {
+            Integer changed = outgoing ? changedWeight(layers, layers.length, vertex, neighbour)
+                                       : changedWeight(layers, layers.length, neighbour, vertex);
+            int weight = changed != null ? changed : baseWeight;
+            if (weight > 0) {
+                visitor.accept(neighbour, weight);
+            }
+        };
+        if (outgoing) {
+            base.forEachTarget(vertex, fromBase);
+        } else {
+            base.forEachSource(vertex, fromBase);
+        }
+        for (int k = 0; k < layers.length; k++) {
+            for (String neighbour : layers[k].row(vertex, outgoing).keySet()) {
+                String source = outgoing ? vertex : neighbour;
+                String target = outgoing ? neighbour : vertex;
+                // edges of the base or of an older layer were visited already
+                if (base.weight(source, target) > 0 || changedWeight(layers, k, source, target) != null) {
+                    continue;
+                }
+                int weight = changedWeight(layers, layers.length, source, target);
+                if (weight > 0) {
+                    visitor.accept(neighbour, weight);
+                }
+            }
+        }
+    }
+
+    @Override public String toString() {
+        return changed() ? freeze().toString() : base.toString();
+    }
+}
@@ -2,28 +2,98 @@ package poet;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.util.HashMap;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ObjIntConsumer;
 
+import graph.BulkLoader;
+import graph.FrozenGraph;
 import graph.Graph;
+import graph.IndexedEdgesGraph;
+import graph.IntAdjacency;
+import graph.WeightedGraph;
 
 /**
  * A graph-based poetry generator.
+ *
+ * <p>Documents can be appended to or retracted from a poet's corpus after it
+ * is made. A poet's graph is frozen, and read by id without locks; an update
+ * records only the edges it changes, in a {@link DeltaGraph} over the frozen
+ * graph, so it takes time proportional to its own size. The bridge between
+ * two words is still found by id in the frozen graph, and its bridge index,
+ * unless an update has changed an edge out of the first or into the second;
+ * only then is it found by label in the changed graph. Once there are about
+ * as many changed edges as words in the frozen graph, the changes are
+ * compacted into a new frozen graph and bridge index in the background,
+ * while poems and updates go on. poem() may run while an update is applied,
+ * and then sees some of its bigrams.
  */
 public class GraphPoet {
 
-    private final Graph<String> graph = Graph.empty();
+    // distinct bigrams to collect before adding them to the graph
+    private static final int BATCH_EDGES = 1 << 20;
+
+    // smallest byte range of the corpus worth a task of its own
+    private static final long MIN_CHUNK_BYTES = 1 << 20;
+
+    // characters of input to read at a time when streaming a poem
+    private static final int STREAM_BUFFER_CHARS = 1 << 13;
+
+    // fewest changed edges to compact into a new frozen graph; otherwise
+    // compaction waits for as many as the frozen graph has words, so that
+    // its cost is spread over many updates
+    private static final int MIN_COMPACT_CHANGES = 1 << 16;
+
+    private final BridgeCache cache;
+    // budget of the bridge index, or -1 if the poet has none
+    private final long indexBytes;
+
+    // updates are applied one at a time, holding this lock
+    private final ReentrantLock updates = new ReentrantLock();
+    // the frozen graph and the changes over it; replaced by compaction
+    private volatile Snapshot snapshot;
+    // true while changes are being compacted; guarded by updates
+    private boolean compacting = false;
 
     // Abstraction function:
     //   Represents a word affinity graph where vertices are words from the corpus,
     //   and edge weights represent the frequency of adjacency between words in the corpus.
+    //   The graph is snapshot.graph: snapshot.base with the changes of every update.
     // Representation invariant:
     //   Graph must not contain null vertices or edges.
     //   Edge weights must be positive integers.
+    //   snapshot.base is an IntAdjacency whose ids are in alphabetical order.
+    //   snapshot.vocabulary is null if snapshot.base is a MappedGraph, and
+    //   otherwise has its labels with the same ids.
+    //   snapshot.index is a BridgeIndex of snapshot.base built with
+    //   indexBytes, or null if indexBytes is -1.
+    //   cache is null or a BridgeCache of bridges in snapshot.graph.
     // Safety from rep exposure:
-    //   The graph field is private and final. Defensive copying is used where needed.
+    //   All fields are private. Defensive copying is used where needed.
+    //   snapshot.base is an immutable FrozenGraph (or MappedGraph, for a
+    //   loaded model), and snapshot.index is immutable. snapshot.graph is
+    //   never returned; other poets get frozen copies of it.
+    //   cache is thread-safe and never returned; stats are copied out.
+    // Thread safety argument:
+    //   snapshot is volatile and a Snapshot's fields are final. Its
+    //   DeltaGraph is only changed while holding updates, and may be read
+    //   from any thread. A compaction seals the DeltaGraph while holding
+    //   updates, freezes the sealed part without it, and then swaps in the
+    //   new snapshot while holding it again; the old and new snapshots
+    //   share the later changes, so poems reading either see every update.
+    //   Updates change the graph and then invalidate the cache, and readers
+    //   read the cache generation before choosing how to find a bridge, so
+    //   no bridge from before an update is cached after it.
 
     /**
      * Create a new poet with the graph from the corpus.
@@ -32,35 +102,482 @@ public class GraphPoet {
      * @throws IOException if the corpus file cannot be found or read
      */
     public GraphPoet(File corpus) throws IOException {
-        List<String> lines = Files.readAllLines(corpus.toPath());
-
-        for (String line : lines) {
-            String[] words = line.toLowerCase().split("\\s+");
-            for (int i = 0; i < words.length - 1; i++) {
-                String w1 = cleanWord(words[i]);
-                String w2 = cleanWord(words[i + 1]);
-
-                if (!w1.isEmpty() && !w2.isEmpty()) {
-                    graph.add(w1);
-                    graph.add(w2);
-                    graph.set(w1, w2, graph.set(w1, w2, 0) + 1); // Increment weight
-                }
+        this(corpus, new IndexedEdgesGraph<>(true));
+    }
+
+    /**
+     * Create a new poet with the graph from the corpus, built in the given
+     * graph. The corpus is read as a stream, so apart from the graph, memory
+     * use does not grow with its size. Every two consecutive words form a
+     * bigram, including the last word of a line and the first of the next.
+     *
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param graph empty graph in which to build the affinity graph; the poet
+     *              keeps an immutable snapshot of it once construction
+     *              completes
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public GraphPoet(File corpus, Graph<String> graph) throws IOException {
+        try (FileChannel channel = FileChannel.open(corpus.toPath())) {
+            readBigrams(new CorpusReader(channel, Normalizer.CORPUS), graph, 1).bigrams.applyTo(graph);
+        }
+        this.snapshot = snapshot(FrozenGraph.of(graph), -1);
+        this.cache = null;
+        this.indexBytes = -1;
+        checkRep();
+    }
+
+    /**
+     * Create a new poet with the graph from the corpus, reading the corpus in
+     * parallel. The file is split into byte ranges at whitespace, the bigrams
+     * of each range are counted by its own task on pool, and the counts of
+     * neighbouring ranges are merged pairwise, with the bigram that spans
+     * their boundary, until one batch is left to add to the graph. The poet
+     * is the same as the one {@link #GraphPoet(File)} makes from the same
+     * corpus.
+     *
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param pool pool that runs the tasks
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public GraphPoet(File corpus, ForkJoinPool pool) throws IOException {
+        this(corpus, pool, Math.max(MIN_CHUNK_BYTES, corpus.length() / (4 * pool.getParallelism()) + 1));
+    }
+
+    // Create a poet from the corpus read in parallel, in ranges of about
+    // chunkBytes
+    GraphPoet(File corpus, ForkJoinPool pool, long chunkBytes) throws IOException {
+        Graph<String> graph = new IndexedEdgesGraph<>(true);
+        try (FileChannel channel = FileChannel.open(corpus.toPath())) {
+            long[] boundaries = CorpusChunks.split(channel, chunkBytes);
+            if (boundaries.length > 1) {
+                pool.invoke(new Count(channel, boundaries, 0, boundaries.length - 1)).bigrams.applyTo(graph);
             }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
+        this.snapshot = snapshot(FrozenGraph.of(graph), -1);
+        this.cache = null;
+        this.indexBytes = -1;
         checkRep();
     }
 
-    // Normalize a word: remove non-alphabetic characters and convert to lowercase
-    private String cleanWord(String word) {
-        return word.replaceAll("[^a-zA-Z0-9]", "").toLowerCase();
+    // Create a poet around a graph loaded from a model file, or an existing
+    // poet's graph.
+    // Does not call checkRep(), which would visit every edge: the file's
+    // structure was checked when it was opened.
+    private GraphPoet(Snapshot snapshot, BridgeCache cache, long indexBytes) {
+        this.snapshot = snapshot;
+        this.cache = cache;
+        this.indexBytes = indexBytes;
+    }
+
+    /**
+     * Immutable, apart from the changes its graph records.
+     * A frozen graph of words, as the base of a DeltaGraph of the changes
+     * made since it was frozen, with the vocabulary and bridge index of the
+     * frozen graph.
+     */
+    private static class Snapshot {
+
+        private final DeltaGraph graph;
+        private final IntAdjacency<String> base;
+        private final Vocabulary vocabulary;
+        private final BridgeIndex index;
+
+        // vocabulary is null if graph's base is a MappedGraph
+        Snapshot(DeltaGraph graph, Vocabulary vocabulary, BridgeIndex index) {
+            this.graph = graph;
+            this.base = graph.base();
+            this.vocabulary = vocabulary;
+            this.index = index;
+        }
+
+        // Find the id of a normalized word in the frozen graph, without
+        // allocating; -1 if it is not in the graph
+        int id(WordSpan word) {
+            if (word.length() == 0) {
+                return -1;
+            }
+            return vocabulary != null ? vocabulary.id(word) : ((MappedGraph) base).id(word);
+        }
+    }
+
+    // Make a snapshot with no changes of a frozen graph, with a bridge index
+    // of indexBytes, or none if it is -1
+    private static Snapshot snapshot(FrozenGraph<String> frozen, long indexBytes) {
+        return new Snapshot(new DeltaGraph(frozen), Vocabulary.of(frozen), index(frozen, indexBytes));
+    }
+
+    private static BridgeIndex index(IntAdjacency<String> graph, long indexBytes) {
+        return indexBytes < 0 ? null : BridgeIndex.build(graph, indexBytes);
+    }
+
+    /**
+     * Get a poet with the same affinity graph as this one that also keeps a
+     * precomputed index of bridge words, so that poem() finds the bridge
+     * between two words with one hash lookup instead of visiting the
+     * neighbours of the first word.
+     *
+     * <p>The index holds the best bridge for every pair of words two steps
+     * apart in the graph, but only for the first words that are followed
+     * most often in the corpus, as many as fit in maxBytes. Pairs whose first
+     * word is not indexed are answered from the graph as before. Building the
+     * index visits every path of two edges from each first word considered.
+     *
+     * @param maxBytes most bytes the index's table and set of indexed words
+     *                 may use; 0 indexes nothing. Building it also needs
+     *                 scratch space of a few dozen bytes per word, freed
+     *                 before this returns
+     * @return a poet that writes the same poems as this one
+     */
+    public GraphPoet withBridgeIndex(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("negative memory budget: " + maxBytes);
+        }
+        return new GraphPoet(frozen(maxBytes), newCache(), maxBytes);
+    }
+
+    /**
+     * Get a poet with the same affinity graph (and bridge index, if any) as
+     * this one that also caches the bridge word, or its absence, of the
+     * word pairs it sees. The cache is safe to use from several threads, and
+     * keeps at most maxEntries pairs. It is split into segments by hash, each
+     * evicting its own least recently used pair when full, so a pair may be
+     * evicted while pairs used less recently stay in other segments.
+     *
+     * @param maxEntries most word pairs to cache, must be positive
+     * @return a poet with an empty cache that writes the same poems as this one
+     */
+    public GraphPoet withBridgeCache(int maxEntries) {
+        return new GraphPoet(frozen(indexBytes), new BridgeCache(maxEntries), indexBytes);
+    }
+
+    /**
+     * @return counters of this poet's bridge-word cache; all zero if it has
+     *         none
+     */
+    public CacheStats cacheStats() {
+        return cache == null ? new CacheStats(0, 0, 0, 0, 0) : cache.stats();
+    }
+
+    // Make a snapshot with no changes of this poet's graph as it is now,
+    // with a bridge index of indexBytes, or none if it is -1. While nothing
+    // has changed, the frozen graph is shared, and so is the index if it has
+    // the same budget.
+    private Snapshot frozen(long indexBytes) {
+        Snapshot current;
+        FrozenGraph<String> frozen;
+        updates.lock();
+        try {
+            current = snapshot;
+            frozen = current.graph.changed() ? current.graph.freeze() : null;
+        } finally {
+            updates.unlock();
+        }
+        if (frozen != null) {
+            return snapshot(frozen, indexBytes);
+        }
+        BridgeIndex index = indexBytes == this.indexBytes ? current.index : index(current.base, indexBytes);
+        return new Snapshot(current.graph.withoutChanges(), current.vocabulary, index);
+    }
+
+    // A new empty cache the size of this poet's, or null if it has none
+    private BridgeCache newCache() {
+        return cache == null ? null : new BridgeCache(cache.maxEntries());
+    }
+
+    /**
+     * Open a poet saved by {@link #save(File)}. The model file is memory
+     * mapped and poem() reads it in place, so opening takes about the same
+     * time whatever the size of the corpus. Its checksum is not verified:
+     * only its header is checked here, and if the rest of the file is
+     * corrupt, poem() throws UncheckedIOException when it reads the bad
+     * part.
+     *
+     * <p>Updates to a loaded poet are kept on the heap over the mapped
+     * model. Once they are compacted, the poet's graph is a new frozen graph
+     * on the heap; save() and load() it again to map it instead.
+     *
+     * @param model model file written by save()
+     * @return a poet with the saved affinity graph
+     * @throws IOException if the file cannot be read or is not a valid model
+     *                     file
+     */
+    public static GraphPoet load(File model) throws IOException {
+        return load(model, false);
+    }
+
+    /**
+     * Open a poet saved by {@link #save(File)}, as {@link #load(File)} does.
+     *
+     * @param model model file written by save()
+     * @param verify if true, check the file's checksum, which reads the whole
+     *               file
+     * @return a poet with the saved affinity graph
+     * @throws IOException if the file cannot be read, is not a valid model
+     *                     file, or (if verify is true) fails its checksum
+     */
+    public static GraphPoet load(File model, boolean verify) throws IOException {
+        return new GraphPoet(new Snapshot(new DeltaGraph(ModelFile.open(model.toPath(), verify)), null, null),
+                             null, -1);
+    }
+
+    /**
+     * Save this poet's affinity graph as a binary model file, replacing the
+     * file if it exists. The file is replaced in one step, so poets loaded
+     * from the old file keep reading the old model.
+     *
+     * @param model file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(File model) throws IOException {
+        FrozenGraph<String> frozen;
+        updates.lock();
+        try {
+            frozen = snapshot.graph.freeze();
+        } finally {
+            updates.unlock();
+        }
+        ModelFile.write(frozen, model.toPath());
+    }
+
+    /**
+     * Append a document to the corpus: add the bigrams of its words, as the
+     * constructor would, to the poet's graph. A document is read on its own,
+     * so its first word does not form a bigram with the last word of the
+     * corpus.
+     *
+     * @param document text to add
+     */
+    public void append(String document) {
+        update(readBigrams(document, 1));
+    }
+
+    /**
+     * Append a document to the corpus, as {@link #append(String)} does.
+     *
+     * @param document text file to add
+     * @throws IOException if the file cannot be found or read; the graph is
+     *                     then unchanged
+     */
+    public void append(File document) throws IOException {
+        try (FileChannel channel = FileChannel.open(document.toPath())) {
+            update(readBigrams(new CorpusReader(channel, Normalizer.CORPUS), null, 1));
+        }
+    }
+
+    /**
+     * Retract a document from the corpus: subtract the bigrams of its words
+     * from the poet's graph, removing edges whose weight reaches zero. Words
+     * left with no edges stay in the graph, but are never bridges.
+     *
+     * @param document text of a document that is part of the corpus, such as
+     *                 one appended earlier
+     * @throws IllegalArgumentException if some bigram of document occurs
+     *         more often in it than in the corpus; the graph is then unchanged
+     */
+    public void retract(String document) {
+        update(readBigrams(document, -1));
+    }
+
+    /**
+     * Retract a document from the corpus, as {@link #retract(String)} does.
+     *
+     * @param document text file of a document that is part of the corpus
+     * @throws IOException if the file cannot be found or read; the graph is
+     *                     then unchanged
+     * @throws IllegalArgumentException if some bigram of document occurs
+     *         more often in it than in the corpus; the graph is then unchanged
+     */
+    public void retract(File document) throws IOException {
+        try (FileChannel channel = FileChannel.open(document.toPath())) {
+            update(readBigrams(new CorpusReader(channel, Normalizer.CORPUS), null, -1));
+        }
+    }
+
+    // Add a batch of bigram weights to the graph, all or none of them, and
+    // start compacting the changes in the background if there are enough
+    private void update(Bigrams bigrams) {
+        updates.lock();
+        try {
+            Snapshot current = snapshot;
+            if (!bigrams.bigrams.canApplyTo(current.graph)) {
+                throw new IllegalArgumentException("document has bigrams that are not in the corpus");
+            }
+            bigrams.bigrams.applyTo(current.graph);
+            if (cache != null) {
+                cache.invalidate();
+            }
+            if (!compacting && current.graph.changes() >= Math.max(MIN_COMPACT_CHANGES, current.base.vertexCount())) {
+                DeltaGraph sealed = current.graph.seal();
+                compacting = true;
+                ForkJoinPool.commonPool().execute(() -> compact(sealed));
+            }
+        } finally {
+            updates.unlock();
+        }
+    }
+
+    /**
+     * Compact the changes made to this poet's graph into a new frozen graph
+     * and bridge index, on the calling thread, unless a compaction is in
+     * progress. Updates may be made meanwhile, and are kept.
+     */
+    void compact() {
+        DeltaGraph sealed;
+        updates.lock();
+        try {
+            if (compacting) {
+                return;
+            }
+            sealed = snapshot.graph.seal();
+            compacting = true;
+        } finally {
+            updates.unlock();
+        }
+        compact(sealed);
+    }
+
+    // Freeze a sealed part of the graph without holding updates, then swap
+    // it for the frozen graph; sealed came from seal() while setting
+    // compacting, which this clears
+    private void compact(DeltaGraph sealed) {
+        try {
+            FrozenGraph<String> frozen = sealed.freeze();
+            Vocabulary vocabulary = Vocabulary.of(frozen);
+            BridgeIndex index = index(frozen, indexBytes);
+            updates.lock();
+            try {
+                snapshot = new Snapshot(snapshot.graph.rebase(sealed, frozen), vocabulary, index);
+            } finally {
+                updates.unlock();
+            }
+        } finally {
+            updates.lock();
+            try {
+                compacting = false;
+            } finally {
+                updates.unlock();
+            }
+        }
+    }
+
+    /**
+     * Mutable.
+     * The bigrams of a run of words, and its first and last cleaned words.
+     */
+    private static class Bigrams {
+        private final BulkLoader<String> bigrams = new BulkLoader<>();
+        private String first = null;
+        private String last = null;
+
+        // Add the bigrams of the words that follow these, including the one
+        // that spans the two runs, and return the bigrams of both runs.
+        // May modify both this and that.
+        Bigrams append(Bigrams that) {
+            if (that.first == null) {
+                return this;
+            }
+            if (this.first == null) {
+                return that;
+            }
+            // merge the smaller batch into the larger one
+            Bigrams result = bigrams.size() >= that.bigrams.size() ? this : that;
+            result.bigrams.addAll(result == this ? that.bigrams : this.bigrams);
+            if (!last.isEmpty() && !that.first.isEmpty()) {
+                result.bigrams.add(last, that.first, 1);
+            }
+            String first = this.first;
+            String last = that.last;
+            result.first = first;
+            result.last = last;
+            return result;
+        }
+    }
+
+    /**
+     * Mutable.
+     * Counts the bigrams of the byte ranges [from, to) of a corpus, splitting
+     * the ranges between subtasks and merging their counts.
+     */
+    private static class Count extends RecursiveTask<Bigrams> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient FileChannel channel;
+        private final long[] boundaries;
+        private final int from;
+        private final int to;
+
+        Count(FileChannel channel, long[] boundaries, int from, int to) {
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override protected Bigrams compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                Count right = new Count(channel, boundaries, middle, to);
+                right.fork();
+                Bigrams left = new Count(channel, boundaries, from, middle).compute();
+                return left.append(right.join());
+            }
+            long start = boundaries[from];
+            long end = boundaries[to];
+            int bufferSize = (int) Math.max(4, Math.min(CorpusReader.DEFAULT_BUFFER_SIZE, end - start));
+            try {
+                CorpusReader words = new CorpusReader(CorpusChunks.range(channel, start, end),
+                                                      Normalizer.CORPUS, bufferSize);
+                return readBigrams(words, null, 1);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // Count the bigrams of words, each adding weight to its edge. If graph is
+    // not null, bigrams are applied to it whenever BATCH_EDGES distinct ones
+    // have been collected, so the result holds only those not applied yet.
+    private static Bigrams readBigrams(WordSource words, Graph<String> graph, int weight) throws IOException {
+        Bigrams result = new Bigrams();
+        // words are interned, so only the first occurrence of each allocates
+        Vocabulary vocabulary = new Vocabulary();
+        WordSpan word = new WordSpan();
+        while (words.next(word)) {
+            String w2 = vocabulary.word(vocabulary.add(word));
+            String w1 = result.last;
+            if (w1 == null) {
+                result.first = w2;
+            } else if (!w1.isEmpty() && !w2.isEmpty()) {
+                result.bigrams.add(w1, w2, weight);
+                if (graph != null && result.bigrams.size() >= BATCH_EDGES) {
+                    result.bigrams.applyTo(graph);
+                }
+            }
+            result.last = w2;
+        }
+        return result;
+    }
+
+    // Count the bigrams of a document, each adding weight to its edge
+    private static Bigrams readBigrams(String document, int weight) {
+        try {
+            return readBigrams(new Tokenizer(document, Normalizer.CORPUS), null, weight);
+        } catch (IOException e) {
+            throw new AssertionError("Tokenizer does not throw IOException", e);
+        }
     }
 
     // Check the representation invariant
     private void checkRep() {
+        DeltaGraph graph = snapshot.graph;
         for (String vertex : graph.vertices()) {
             assert vertex != null : "Graph contains null vertex";
-            for (String target : graph.targets(vertex).keySet()) {
-                assert graph.targets(vertex).get(target) > 0 : "Edge weight must be positive";
+            for (int weight : graph.targets(vertex).values()) {
+                assert weight > 0 : "Edge weight must be positive";
             }
         }
     }
@@ -72,50 +589,340 @@ public class GraphPoet {
      * @return poem
      */
     public String poem(String input) {
-        StringBuilder poem = new StringBuilder();
-        String[] words = input.split("\\s+");
+        return BridgeWords.poem(input, new Bridges());
+    }
+
+    /**
+     * Generate a poem from a stream of input, writing it as it goes. Only the
+     * word being read and the one before it are kept, so memory use does
+     * not depend on the length of the input, and each word of the poem is
+     * written as soon as the whitespace after it has been read. output is
+     * flushed whenever the input has been read up to what is available so
+     * far, and at the end; neither input nor output is closed.
+     *
+     * <p>Writes the same text as {@link #poem(String)} of the whole input,
+     * except that an input with no words writes nothing.
+     *
+     * @param input text from which to create the poem, read to the end
+     * @param output where to write the poem
+     * @throws IOException if input cannot be read or output cannot be written
+     */
+    public void poem(Reader input, Writer output) throws IOException {
+        PoemWriter poem = new PoemWriter(output);
+        char[] buffer = new char[STREAM_BUFFER_CHARS];
+        for (int n = input.read(buffer); n >= 0; n = input.read(buffer)) {
+            for (int i = 0; i < n; i++) {
+                poem.append(buffer[i]);
+            }
+            // the input may block before its next characters, so let the
+            // poem so far out first
+            output.flush();
+        }
+        poem.finish();
+        output.flush();
+    }
+
+    /**
+     * Generate a poem from a UTF-8 channel, writing it as it goes, as
+     * {@link #poem(Reader, Writer)} does.
+     *
+     * @param input UTF-8 text from which to create the poem, read to the end
+     * @param output where to write the poem
+     * @throws IOException if input cannot be read or output cannot be written
+     */
+    public void poem(ReadableByteChannel input, Writer output) throws IOException {
+        poem(Channels.newReader(input, StandardCharsets.UTF_8), output);
+    }
+
+    /**
+     * Mutable.
+     * Finds the bridge words between consecutive words of a poem,
+     * remembering only the last word.
+     */
+    private class Bridges implements BridgeWords {
+
+        // the snapshot is chosen once, so one poem reads one frozen graph;
+        // labels are only made once an update has changed the graph
+        private final Snapshot snapshot = GraphPoet.this.snapshot;
+        private int lastId = -1;
+        private String lastLabel = null;
+
+        @Override public String next(WordSpan word) {
+            int id = snapshot.id(word);
+            String label = snapshot.graph.changed() ? label(word) : null;
+            if (label != null && lastLabel == null && lastId >= 0) {
+                // the graph changed since the last word was read
+                lastLabel = snapshot.base.label(lastId);
+            }
+            String bridgeWord = bridgeWord(snapshot, lastId, lastLabel, id, label);
+            lastId = id;
+            lastLabel = label;
+            return bridgeWord;
+        }
+    }
+
+    /**
+     * Mutable.
+     * Writes a poem to a Writer as the characters of its input arrive.
+     *
+     * <p>Like the String that poem(String) returns, the poem is trimmed:
+     * characters up to ' ' at its start are dropped, and each run of them
+     * is held back until a later character shows it is not at the end.
+     */
+    private class PoemWriter {
+
+        private final Writer out;
+        private final Bridges bridges = new Bridges();
+        // the raw input word being read, and its normalized form
+        private final WordSpan raw = new WordSpan();
+        private final WordSpan word = new WordSpan();
+        // characters up to ' ' written since the last one above it
+        private final WordSpan held = new WordSpan();
+        private boolean firstWord = true;
+        private boolean started = false;
 
-        // Handle empty or single-word input
-        if (words.length == 0) return input;
-        if (words.length == 1) return input.trim();
+        PoemWriter(Writer out) {
+            this.out = out;
+        }
 
-        for (int i = 0; i < words.length - 1; i++) {
-            String w1 = cleanWord(words[i]);
-            String w2 = cleanWord(words[i + 1]);
+        /**
+         * Read the next character of input.
+         */
+        void append(char c) throws IOException {
+            if (!CorpusReader.isWhitespace(c)) {
+                raw.append(c);
+                Normalizer.INPUT.append(c, word);
+            } else if (raw.length() > 0) {
+                endWord();
+            }
+        }
 
-            poem.append(words[i]).append(" "); // Append original word
+        /**
+         * Finish the poem at the end of the input.
+         */
+        void finish() throws IOException {
+            if (raw.length() > 0) {
+                endWord();
+            }
+        }
 
-            String bridgeWord = findBridgeWord(w1, w2);
-            if (bridgeWord != null) {
-                poem.append(bridgeWord).append(" ");
+        // Write the word just read, after the bridge to it from the last one
+        private void endWord() throws IOException {
+            String bridgeWord = bridges.next(word);
+            if (!firstWord) {
+                write(' ');
+                if (bridgeWord != null) {
+                    for (int i = 0; i < bridgeWord.length(); i++) {
+                        write(bridgeWord.charAt(i));
+                    }
+                    write(' ');
+                }
+            }
+            firstWord = false;
+            // write the raw word in one call, apart from characters up to
+            // ' ' at its ends
+            int start = 0;
+            int end = raw.length();
+            while (start < end && raw.charAt(start) <= ' ') {
+                write(raw.charAt(start++));
+            }
+            while (end > start && raw.charAt(end - 1) <= ' ') {
+                end--;
             }
+            if (start < end) {
+                write(raw.charAt(start));
+                raw.writeTo(out, start + 1, end);
+            }
+            for (int i = end; i < raw.length(); i++) {
+                write(raw.charAt(i));
+            }
+            raw.clear();
+            word.clear();
         }
 
-        poem.append(words[words.length - 1]); // Add the last word
-        return poem.toString().trim();
+        private void write(char c) throws IOException {
+            if (c <= ' ') {
+                if (started) {
+                    held.append(c);
+                }
+                return;
+            }
+            if (held.length() > 0) {
+                held.writeTo(out, 0, held.length());
+                held.clear();
+            }
+            started = true;
+            out.write(c);
+        }
     }
 
-    // Find the bridge word with maximum weight
-    private String findBridgeWord(String w1, String w2) {
-        Map<String, Integer> targetsW1 = graph.targets(w1);
-        String bridgeWord = null;
-        int maxWeight = 0;
+    /**
+     * Generate the poems of many inputs, in parallel on the common
+     * ForkJoinPool.
+     *
+     * @param inputs strings from which to create the poems
+     * @return the poems of inputs, in the same order
+     */
+    public List<String> poems(List<String> inputs) {
+        return poems(inputs, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Generate the poems of many inputs, in parallel. The inputs are split
+     * into runs of consecutive inputs, about four per worker of pool, that
+     * the workers steal from each other; each poem is written as by
+     * {@link #poem(String)}, reading this poet's graph without locks. An
+     * update applied meanwhile may be seen by some poems and not others.
+     *
+     * @param inputs strings from which to create the poems
+     * @param pool pool that writes the poems; its parallelism is the most
+     *             poems written at once
+     * @return the poems of inputs, in the same order
+     */
+    public List<String> poems(List<String> inputs, ForkJoinPool pool) {
+        String[] inputArray = inputs.toArray(new String[0]);
+        String[] poems = new String[inputArray.length];
+        if (inputArray.length > 0) {
+            int run = Math.max(1, inputArray.length / (4 * pool.getParallelism()));
+            pool.invoke(new Write(inputArray, poems, run, 0, inputArray.length));
+        }
+        return List.of(poems);
+    }
+
+    /**
+     * Mutable.
+     * Writes the poems of inputs [from, to) into poems, splitting the range
+     * between subtasks until it is at most run inputs long.
+     */
+    private class Write extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String[] inputs;
+        private final String[] poems;
+        private final int run;
+        private final int from;
+        private final int to;
 
-        for (String candidate : targetsW1.keySet()) {
-            Map<String, Integer> targetsCandidate = graph.targets(candidate);
-            if (targetsCandidate.containsKey(w2)) {
-                int weight = targetsW1.get(candidate) + targetsCandidate.get(w2);
-                if (weight > maxWeight) {
+        Write(String[] inputs, String[] poems, int run, int from, int to) {
+            this.inputs = inputs;
+            this.poems = poems;
+            this.run = run;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override protected void compute() {
+            if (to - from > run) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Write(inputs, poems, run, from, middle), new Write(inputs, poems, run, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                poems[i] = poem(inputs[i]);
+            }
+        }
+    }
+
+    // Get a normalized word as a label of the graph; null if it is empty
+    private static String label(WordSpan word) {
+        return word.length() == 0 ? null : word.toString();
+    }
+
+    // Find the bridge word with maximum weight between two words of a
+    // snapshot's graph, or null if there is none or either word is empty.
+    // w1 and w2 are their ids in the frozen graph, or -1 if they are not in
+    // it; l1 and l2 are their labels, or null if the graph has not changed.
+    private String bridgeWord(Snapshot snapshot, int w1, String l1, int w2, String l2) {
+        if (cache == null) {
+            return findBridgeWord(snapshot, w1, l1, w2, l2);
+        }
+        String first = l1 != null || w1 < 0 ? l1 : snapshot.base.label(w1);
+        String second = l2 != null || w2 < 0 ? l2 : snapshot.base.label(w2);
+        if (first == null || second == null) {
+            return null;
+        }
+        String cached = cache.get(first, second);
+        if (cached != null) {
+            return cached.isEmpty() ? null : cached;
+        }
+        // read the generation before reading the graph, so that a bridge
+        // found in the graph from before an update is not cached after it
+        long generation = cache.generation();
+        String bridgeWord = findBridgeWord(snapshot, w1, first, w2, second);
+        cache.put(first, second, bridgeWord, generation);
+        return bridgeWord;
+    }
+
+    // Find the bridge word with maximum weight between two words, by id in
+    // the frozen graph while no edge out of the first or into the second has
+    // changed, since the bridges are then the same as in the frozen graph,
+    // and otherwise by label in the changed graph
+    private static String findBridgeWord(Snapshot snapshot, int w1, String l1, int w2, String l2) {
+        DeltaGraph graph = snapshot.graph;
+        if (l1 != null && l2 != null && (graph.changedOut(l1) || graph.changedIn(l2))) {
+            boolean fromW1 = graph.outDegree(l1) <= graph.inDegree(l2);
+            BridgeSearch search = new BridgeSearch(graph, l1, l2, fromW1);
+            if (fromW1) {
+                graph.forEachTarget(l1, search);
+            } else {
+                graph.forEachSource(l2, search);
+            }
+            return search.bridgeWord;
+        }
+        // a word that is not in the frozen graph has no unchanged edges
+        if (w1 < 0 || w2 < 0) {
+            return null;
+        }
+        BridgeIndex index = snapshot.index;
+        if (index != null && index.covers(w1)) {
+            int bridge = index.bridge(w1, w2);
+            return bridge < 0 ? null : snapshot.base.label(bridge);
+        }
+        long best = BridgeMerge.best(snapshot.base, null, w1, snapshot.base, null, w2);
+        return best == BridgeMerge.NONE ? null : snapshot.base.label(BridgeMerge.bridge(best));
+    }
+
+    /**
+     * Mutable.
+     * Visitor over the edges out of w1, or into w2, in a changed graph that
+     * keeps the best bridge word between them seen so far.
+     */
+    private static class BridgeSearch implements ObjIntConsumer<String> {
+
+        private final WeightedGraph<String> graph;
+        private final String w1;
+        private final String w2;
+        private final boolean fromW1;
+        private String bridgeWord = null;
+        private long maxWeight = 0;
+
+        BridgeSearch(WeightedGraph<String> graph, String w1, String w2, boolean fromW1) {
+            this.graph = graph;
+            this.w1 = w1;
+            this.w2 = w2;
+            this.fromW1 = fromW1;
+        }
+
+        // candidate is the target of an edge out of w1 if fromW1, and
+        // otherwise the source of an edge into w2
+        @Override public void accept(String candidate, int visitedWeight) {
+            int otherWeight = fromW1 ? graph.weight(candidate, w2) : graph.weight(w1, candidate);
+            if (otherWeight > 0) {
+                long weight = (long) visitedWeight + otherWeight;
+                // ties go to the alphabetically first word, as in the frozen
+                // graph, where bridges are visited in alphabetical order
+                if (weight > maxWeight
+                        || (weight == maxWeight && candidate.compareTo(bridgeWord) < 0)) {
                     maxWeight = weight;
                     bridgeWord = candidate;
                 }
             }
         }
-        return bridgeWord;
     }
 
     @Override
     public String toString() {
-        return "GraphPoet [graph=" + graph + "]";
+        return "GraphPoet [graph=" + snapshot.graph + "]";
     }
 }
@@ -0,0 +1,120 @@
+package poet;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Mutable.
+ * A histogram of latencies in nanoseconds, for reporting percentiles.
+ *
+ * <p>Latencies are counted in log-linear buckets: each power of two is
+ * split into 16 buckets of equal width, so a bucket's values are within
+ * 1/16 of each other and a percentile is reported within 6.25% of the true
+ * value. Recording is one atomic increment and does not allocate, and the
+ * histogram uses the same fixed memory whatever it has recorded.
+ *
+ * <p>Safe to share between threads. Percentiles read while latencies are
+ * recorded may count some of those latencies and not others.
+ */
+class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(bucket(Long.MAX_VALUE) + 1);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    // Abstraction function:
+    //   AF(counts, max) = a multiset of latencies holding counts[b] latencies
+    //                     in the range of bucket b, the largest being max
+    // Representation invariant:
+    //   counts[b] >= 0 for every b; max is 0 if every count is 0
+    // Safety from rep exposure:
+    //   all fields are private and final, and never returned
+    // Thread safety argument:
+    //   counts and max are thread-safe, and only changed by atomic operations
+
+    // Get the bucket of a nonnegative latency
+    private static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    // Get the largest latency in a bucket
+    private static long highest(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        // wraps to Long.MAX_VALUE for the last bucket
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos the latency in nanoseconds; negative latencies, as from
+     *              a clock that moved back, are recorded as 0
+     */
+    void record(long nanos) {
+        long latency = Math.max(0, nanos);
+        counts.incrementAndGet(bucket(latency));
+        max.accumulate(latency);
+    }
+
+    /**
+     * @return number of latencies recorded
+     */
+    long count() {
+        long count = 0;
+        for (int b = 0; b < counts.length(); b++) {
+            count += counts.get(b);
+        }
+        return count;
+    }
+
+    /**
+     * @return largest latency recorded, in nanoseconds, or 0 if there is none
+     */
+    long max() {
+        return max.get();
+    }
+
+    /**
+     * Get a percentile of the latencies.
+     *
+     * @param quantile fraction of the latencies, in [0, 1]; 0.99 for the 99th
+     *                 percentile
+     * @return a latency, in nanoseconds, no less than the given fraction of
+     *         the latencies recorded and at most 6.25% more than the least
+     *         such latency, and no more than max(); 0 if there are none
+     */
+    long percentile(double quantile) {
+        if (!(quantile >= 0 && quantile <= 1)) {
+            throw new IllegalArgumentException("quantile not in [0, 1]: " + quantile);
+        }
+        long[] snapshot = new long[counts.length()];
+        long count = 0;
+        for (int b = 0; b < snapshot.length; b++) {
+            snapshot[b] = counts.get(b);
+            count += snapshot[b];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int b = 0; b < snapshot.length; b++) {
+            seen += snapshot[b];
+            if (seen >= rank) {
+                return Math.min(highest(b), max());
+            }
+        }
+        throw new AssertionError("rank " + rank + " beyond count " + count);
+    }
+}
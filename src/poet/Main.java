@@ -5,6 +5,9 @@ package poet;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Example program using GraphPoet.
@@ -14,15 +17,46 @@ import java.io.IOException;
 public class Main {
     
     /**
-     * Generate example poetry.
+     * Generate example poetry, or serve poems over HTTP.
      * 
-     * @param args unused
-     * @throws IOException if a poet corpus file cannot be found or read
+     * <p>With no arguments, prints an example poem. With arguments
+     * PORT CORPUS..., serves the poems of each corpus on
+     * http://localhost:PORT/ with a {@link PoemServer} until the process is
+     * stopped. Each CORPUS is a text file, or a model file saved by
+     * {@link GraphPoet#save(File)} if its name ends in ".model", and is served
+     * under its file name without extension, which must not be empty or the
+     * name of another CORPUS. PORT 0 picks any free port.
+     * 
+     * @param args nothing, or a port and corpus files
+     * @throws IOException if a poet corpus file cannot be found or read, or
+     *                     the port cannot be bound
      */
     public static void main(String[] args) throws IOException {
-        final GraphPoet nimoy = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
-        final String input = "Test the system.";
-        System.out.println(input + "\n>>>\n" + nimoy.poem(input));
+        if (args.length == 0) {
+            final GraphPoet nimoy = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
+            final String input = "Test the system.";
+            System.out.println(input + "\n>>>\n" + nimoy.poem(input));
+            return;
+        }
+        if (args.length < 2) {
+            System.err.println("usage: java poet.Main [PORT CORPUS...]");
+            System.exit(2);
+        }
+        final int port = Integer.parseInt(args[0]);
+        final Map<String, GraphPoet> poets = new LinkedHashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            final File corpus = new File(args[i]);
+            final String name = corpus.getName().replaceFirst("\\.[^.]*$", "");
+            if (name.isEmpty() || poets.containsKey(name)) {
+                System.err.println("corpus names must be distinct and not empty: " + args[i]);
+                System.exit(2);
+            }
+            poets.put(name, corpus.getName().endsWith(".model") ? GraphPoet.load(corpus) : new GraphPoet(corpus));
+        }
+        final PoemServer server = new PoemServer(poets, port, ForkJoinPool.commonPool());
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+        System.out.println("serving " + poets.keySet() + " on http://localhost:" + server.port() + "/");
     }
     
 }
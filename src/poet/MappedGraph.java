@@ -0,0 +1,390 @@
+package poet;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+
+import graph.IntAdjacencies;
+import graph.IntAdjacency;
+import graph.WeightedGraph;
+
+/**
+ * Immutable.
+ * A read-only Graph of words answered directly from a mapped model file.
+ *
+ * <p>Nothing is decoded up front: word lookups probe the file's hash table
+ * and compare the words' bytes in place, and sources() and targets() are
+ * views over its adjacency rows. Words are decoded when they are asked
+ * for, and the most recent few thousand kept, so the heap a graph uses
+ * does not grow with the vocabulary. Mutators
+ * throw UnsupportedOperationException. Safe to share between threads.
+ * See {@link ModelFile} for the file layout.
+ *
+ * <p>Offsets and ids are checked as they are read, since the file may not
+ * have been verified: one that points outside its section throws
+ * UncheckedIOException instead of reading the wrong section, and a hash
+ * table with no empty slot is probed at most once per slot.
+ */
+class MappedGraph implements WeightedGraph<String>, IntAdjacency<String> {
+
+    private static final int CACHED_WORDS = 1 << 12;
+
+    private final ByteBuffer buffer;
+    private final int vertexCount;
+    private final int edgeCount;
+    private final int tableSize;
+    private final int wordBytes;
+    private final int vocabularyAt;
+    private final int tableAt;
+    private final int outStartAt;
+    private final int outTargetsAt;
+    private final int outWeightsAt;
+    private final int inStartAt;
+    private final int inSourcesAt;
+    private final int inWeightsAt;
+    private final int wordsAt;
+    private final Word[] words = new Word[CACHED_WORDS];
+
+    // Abstraction function:
+    //   AF(buffer) = the graph whose vertices and edges are stored in buffer
+    //                in the ModelFile layout; the *At fields are byte offsets
+    //                of the sections, derived from the header
+    //
+    // Representation invariant:
+    //   buffer is little-endian and holds a model file whose header and
+    //   length were checked by ModelFile.open(), and the *At fields,
+    //   vertexCount, edgeCount, tableSize and wordBytes match its header;
+    //   words[i] is null or a word whose id is i modulo CACHED_WORDS
+    //
+    // Safety from rep exposure:
+    //   all fields are private and final; buffer is read-only and never
+    //   returned; sources(), targets() and vertices() are read-only views
+    //   that only return Strings and Integers.
+    //
+    // Thread safety argument:
+    //   buffer is only read with absolute gets, which do not touch its
+    //   position, and every field is final;
+    //   words is a cache written without synchronization: a racing reader
+    //   sees either null or an older Word, and decodes the word again, or
+    //   a Word, which is immutable with final fields and so safely
+    //   published even through a race.
+
+    /**
+     * Make a graph over a mapped model file.
+     *
+     * @param buffer little-endian buffer holding a whole model file, whose
+     *               header and length were already checked by
+     *               ModelFile.open()
+     */
+    MappedGraph(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.vertexCount = buffer.getInt(8);
+        this.edgeCount = buffer.getInt(12);
+        this.tableSize = buffer.getInt(16);
+        this.wordBytes = buffer.getInt(20);
+        this.vocabularyAt = 4 * ModelFile.HEADER_INTS;
+        this.tableAt = vocabularyAt + 4 * (vertexCount + 1);
+        this.outStartAt = tableAt + 4 * tableSize;
+        this.outTargetsAt = outStartAt + 4 * (vertexCount + 1);
+        this.outWeightsAt = outTargetsAt + 4 * edgeCount;
+        this.inStartAt = outWeightsAt + 4 * edgeCount;
+        this.inSourcesAt = inStartAt + 4 * (vertexCount + 1);
+        this.inWeightsAt = inSourcesAt + 4 * edgeCount;
+        this.wordsAt = inWeightsAt + 4 * edgeCount;
+        checkRep();
+    }
+
+    // Check that the rep invariant is true
+    private void checkRep() {
+        assert buffer.getInt(0) == ModelFile.MAGIC;
+        assert Integer.bitCount(tableSize) == 1;
+    }
+
+    private int intAt(int section, int index) {
+        return buffer.getInt(section + 4 * index);
+    }
+
+    // Read an int of a section that must be in [0, limit]
+    private int checkedAt(int section, int index, int limit) {
+        int value = intAt(section, index);
+        if (value < 0 || value > limit) {
+            throw corrupt("value " + value + " at byte " + (section + 4 * index) + " is not in [0, " + limit + "]");
+        }
+        return value;
+    }
+
+    // Get the offset of the first edge of a row, from a section of row offsets
+    private int rowStart(int startsAt, int id) {
+        return checkedAt(startsAt, id, edgeCount);
+    }
+
+    // Get the length of a row, from a section of row offsets
+    private int rowLength(int startsAt, int id) {
+        int length = rowStart(startsAt, id + 1) - rowStart(startsAt, id);
+        if (length < 0) {
+            throw corrupt("row " + id + " at byte " + (startsAt + 4 * id) + " ends before it starts");
+        }
+        return length;
+    }
+
+    private static UncheckedIOException corrupt(String problem) {
+        return new UncheckedIOException(new IOException("model file is corrupt: " + problem));
+    }
+
+    @Override public int id(String word) {
+        return id((CharSequence) word);
+    }
+
+    /**
+     * Get the id of a word without making a String of it.
+     *
+     * @param word characters of a word, whose hashCode() is the String hash
+     *             of its characters
+     * @return id of the word, or -1 if it is not in the graph
+     */
+    int id(CharSequence word) {
+        int slot = ModelFile.slot(word.hashCode(), tableSize);
+        // a corrupt table may have no empty slot to end the probe
+        for (int probes = 0; probes < tableSize; probes++, slot = (slot + 1) & (tableSize - 1)) {
+            int entry = checkedAt(tableAt, slot, vertexCount);
+            if (entry == 0) {
+                return -1;
+            }
+            if (matches(entry - 1, word)) {
+                return entry - 1;
+            }
+        }
+        return -1;
+    }
+
+    // Get the byte offset of the start of a word in the word bytes
+    private int wordStart(int id) {
+        return checkedAt(vocabularyAt, id, wordBytes);
+    }
+
+    // Get the byte offset of the end of a word in the word bytes
+    private int wordEnd(int id) {
+        int end = checkedAt(vocabularyAt, id + 1, wordBytes);
+        if (end < wordStart(id)) {
+            throw corrupt("word " + id + " ends before it starts");
+        }
+        return end;
+    }
+
+    // Check whether the word with an id has the same characters as word,
+    // comparing its UTF-8 bytes in the file without decoding them
+    private boolean matches(int id, CharSequence word) {
+        int at = wordsAt + wordStart(id);
+        int end = wordsAt + wordEnd(id);
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            int codePoint = c;
+            if (Character.isHighSurrogate(c) && i + 1 < word.length() && Character.isLowSurrogate(word.charAt(i + 1))) {
+                codePoint = Character.toCodePoint(c, word.charAt(++i));
+            } else if (Character.isSurrogate(c)) {
+                // decoded words never hold an unpaired surrogate
+                return false;
+            }
+            int length = codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+            if (end - at < length) {
+                return false;
+            }
+            // the lead byte holds the top bits of the code point, after as
+            // many one bits as the encoding has bytes (none for ASCII)
+            int lead = length == 1 ? codePoint : (0xF00 >> length) & 0xFF | codePoint >> (6 * (length - 1));
+            if ((buffer.get(at++) & 0xFF) != lead) {
+                return false;
+            }
+            for (int shift = 6 * (length - 2); shift >= 0; shift -= 6) {
+                if ((buffer.get(at++) & 0xFF) != (0x80 | (codePoint >> shift & 0x3F))) {
+                    return false;
+                }
+            }
+        }
+        return at == end;
+    }
+
+    @Override public String label(int id) {
+        int slot = id & (CACHED_WORDS - 1);
+        Word cached = words[slot];
+        if (cached != null && cached.id == id) {
+            return cached.text;
+        }
+        int from = wordStart(id);
+        byte[] bytes = new byte[wordEnd(id) - from];
+        buffer.get(wordsAt + from, bytes);
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        words[slot] = new Word(id, text);
+        return text;
+    }
+
+    /**
+     * Immutable.
+     * A decoded word and its id, as kept in the cache of recent words.
+     */
+    private static final class Word {
+        private final int id;
+        private final String text;
+
+        Word(int id, String text) {
+            this.id = id;
+            this.text = text;
+        }
+    }
+
+    @Override public int vertexCount() {
+        return vertexCount;
+    }
+
+    @Override public int outDegree(int source) {
+        return rowLength(outStartAt, source);
+    }
+
+    @Override public int target(int source, int i) {
+        int j = rowStart(outStartAt, source) + IntAdjacencies.checkIndex(i, outDegree(source));
+        return checkedAt(outTargetsAt, j, vertexCount - 1);
+    }
+
+    @Override public int targetWeight(int source, int i) {
+        return intAt(outWeightsAt, rowStart(outStartAt, source) + IntAdjacencies.checkIndex(i, outDegree(source)));
+    }
+
+    @Override public int inDegree(int target) {
+        return rowLength(inStartAt, target);
+    }
+
+    @Override public int source(int target, int i) {
+        int j = rowStart(inStartAt, target) + IntAdjacencies.checkIndex(i, inDegree(target));
+        return checkedAt(inSourcesAt, j, vertexCount - 1);
+    }
+
+    @Override public int sourceWeight(int target, int i) {
+        return intAt(inWeightsAt, rowStart(inStartAt, target) + IntAdjacencies.checkIndex(i, inDegree(target)));
+    }
+
+    @Override public int weightById(int source, int target) {
+        int from = rowStart(outStartAt, source);
+        int j = find(from, from + outDegree(source), outTargetsAt, target);
+        return j < 0 ? 0 : intAt(outWeightsAt, j);
+    }
+
+    @Override public boolean add(String vertex) {
+        throw new UnsupportedOperationException("MappedGraph is immutable");
+    }
+
+    @Override public int set(String source, String target, int weight) {
+        throw new UnsupportedOperationException("MappedGraph is immutable");
+    }
+
+    @Override public int addWeight(String source, String target, int delta) {
+        throw new UnsupportedOperationException("MappedGraph is immutable");
+    }
+
+    @Override public boolean remove(String vertex) {
+        throw new UnsupportedOperationException("MappedGraph is immutable");
+    }
+
+    @Override public Set<String> vertices() {
+        return new AbstractSet<String>() {
+            @Override public int size() {
+                return vertexCount;
+            }
+
+            @Override public boolean contains(Object o) {
+                return o instanceof String && id((String) o) >= 0;
+            }
+
+            @Override public Iterator<String> iterator() {
+                return new Iterator<String>() {
+                    private int next = 0;
+
+                    @Override public boolean hasNext() {
+                        return next < vertexCount;
+                    }
+
+                    @Override public String next() {
+                        if (next >= vertexCount) {
+                            throw new NoSuchElementException();
+                        }
+                        return label(next++);
+                    }
+                };
+            }
+        };
+    }
+
+    @Override public Map<String, Integer> sources(String target) {
+        int id = id(target);
+        if (id < 0) {
+            return Collections.emptyMap();
+        }
+        return IntAdjacencies.sources(this, id);
+    }
+
+    @Override public Map<String, Integer> targets(String source) {
+        int id = id(source);
+        if (id < 0) {
+            return Collections.emptyMap();
+        }
+        return IntAdjacencies.targets(this, id);
+    }
+
+    @Override public int weight(String source, String target) {
+        int s = id(source);
+        int t = id(target);
+        return s < 0 || t < 0 ? 0 : weightById(s, t);
+    }
+
+    @Override public void forEachTarget(String source, ObjIntConsumer<? super String> visitor) {
+        int id = id(source);
+        if (id >= 0) {
+            int from = rowStart(outStartAt, id);
+            int to = from + outDegree(id);
+            for (int j = from; j < to; j++) {
+                visitor.accept(label(checkedAt(outTargetsAt, j, vertexCount - 1)), intAt(outWeightsAt, j));
+            }
+        }
+    }
+
+    @Override public void forEachSource(String target, ObjIntConsumer<? super String> visitor) {
+        int id = id(target);
+        if (id >= 0) {
+            int from = rowStart(inStartAt, id);
+            int to = from + inDegree(id);
+            for (int j = from; j < to; j++) {
+                visitor.accept(label(checkedAt(inSourcesAt, j, vertexCount - 1)), intAt(inWeightsAt, j));
+            }
+        }
+    }
+
+    // Binary search for id among the ints of a section in [from, to);
+    // returns its index, or -1 if it is not there
+    private int find(int from, int to, int section, int id) {
+        int low = from;
+        int high = to - 1;
+        while (id >= 0 && low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = intAt(section, mid);
+            if (value < id) {
+                low = mid + 1;
+            } else if (value > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    @Override public String toString() {
+        return IntAdjacencies.toString(this);
+    }
+}
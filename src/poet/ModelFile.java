@@ -0,0 +1,261 @@
+package poet;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import graph.FrozenGraph;
+import graph.Graph;
+
+/**
+ * Reads and writes the binary model file of a poet's affinity graph.
+ *
+ * <p>All values are little-endian 32-bit ints unless noted. A file is:
+ * <pre>
+ *   header      magic, version, vertex count n, edge count m,
+ *               hash table size h, vocabulary byte count b, 2 reserved ints
+ *   vocabulary  int[n + 1] byte offsets of each word in the word bytes
+ *   hash table  int[h] open-addressing table of (id + 1), 0 if empty,
+ *               indexed by the word's String.hashCode()
+ *   adjacency   int[n + 1] out-row offsets, int[m] targets, int[m] weights,
+ *               int[n + 1] in-row offsets, int[m] sources, int[m] weights
+ *   words       b bytes of UTF-8, padded with zeros to a multiple of 4
+ *   checksum    CRC32 of everything before it, as a long
+ * </pre>
+ * Word ids are in alphabetical order and every row is sorted by id.
+ */
+class ModelFile {
+
+    static final int MAGIC = 0x454F5047; // "GPOE" read as little-endian
+    static final int VERSION = 1;
+    static final int HEADER_INTS = 8;
+
+    private ModelFile() {
+        // not instantiable
+    }
+
+    /**
+     * Write a graph to a model file, replacing the file if it exists.
+     * The model is written to a temporary file in the same directory, forced
+     * to the storage device, and then moved over the file, so readers,
+     * including graphs that have the old file mapped, never see a partly
+     * written model, even after a crash.
+     *
+     * @param graph graph to write; not modified
+     * @param path file to write
+     * @throws IOException if the file cannot be written
+     */
+    static void write(Graph<String> graph, Path path) throws IOException {
+        FrozenGraph<String> frozen = FrozenGraph.of(graph);
+        int n = frozen.vertexCount();
+        byte[][] words = new byte[n][];
+        int wordBytes = 0;
+        int edges = 0;
+        for (int v = 0; v < n; v++) {
+            words[v] = frozen.label(v).getBytes(StandardCharsets.UTF_8);
+            wordBytes += words[v].length;
+            edges += frozen.outDegree(v);
+        }
+        int tableSize = Integer.highestOneBit(Math.max(1, 2 * n)) * 2;
+        int[] table = new int[tableSize];
+        for (int v = 0; v < n; v++) {
+            int slot = slot(frozen.label(v).hashCode(), tableSize);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & (tableSize - 1);
+            }
+            table[slot] = v + 1;
+        }
+
+        Path temporary = Files.createTempFile(path.toAbsolutePath().getParent(),
+                                              path.getFileName().toString(), ".tmp");
+        try {
+            write(frozen, words, wordBytes, edges, table, temporary);
+            try {
+                Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                // the file system cannot rename over a file; replace it as
+                // nearly atomically as it allows
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    // Write the sections of a model file, as laid out by write(Graph, Path)
+    private static void write(FrozenGraph<String> frozen, byte[][] words, int wordBytes, int edges,
+                              int[] table, Path path) throws IOException {
+        int n = frozen.vertexCount();
+        int tableSize = table.length;
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING);
+             OutputStream file = Channels.newOutputStream(channel);
+             CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), crc)) {
+            IntWriter out = new IntWriter(checked);
+            out.write(MAGIC);
+            out.write(VERSION);
+            out.write(n);
+            out.write(edges);
+            out.write(tableSize);
+            out.write(wordBytes);
+            out.write(0);
+            out.write(0);
+            int offset = 0;
+            for (int v = 0; v < n; v++) {
+                out.write(offset);
+                offset += words[v].length;
+            }
+            out.write(offset);
+            for (int slot : table) {
+                out.write(slot);
+            }
+            offset = 0;
+            for (int v = 0; v < n; v++) {
+                out.write(offset);
+                offset += frozen.outDegree(v);
+            }
+            out.write(offset);
+            for (int v = 0; v < n; v++) {
+                for (int i = 0; i < frozen.outDegree(v); i++) {
+                    out.write(frozen.target(v, i));
+                }
+            }
+            for (int v = 0; v < n; v++) {
+                for (int i = 0; i < frozen.outDegree(v); i++) {
+                    out.write(frozen.targetWeight(v, i));
+                }
+            }
+            offset = 0;
+            for (int v = 0; v < n; v++) {
+                out.write(offset);
+                offset += frozen.inDegree(v);
+            }
+            out.write(offset);
+            for (int v = 0; v < n; v++) {
+                for (int i = 0; i < frozen.inDegree(v); i++) {
+                    out.write(frozen.source(v, i));
+                }
+            }
+            for (int v = 0; v < n; v++) {
+                for (int i = 0; i < frozen.inDegree(v); i++) {
+                    out.write(frozen.sourceWeight(v, i));
+                }
+            }
+            out.flush();
+            for (byte[] word : words) {
+                checked.write(word);
+            }
+            checked.write(new byte[padding(wordBytes)]);
+            checked.flush();
+            ByteBuffer trailer = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            trailer.putLong(crc.getValue());
+            file.write(trailer.array());
+            // the data must be on disk before the file is renamed into
+            // place, or a crash could leave the new name with missing data
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Map a model file into memory. Only the header is read; the rest of the
+     * file is paged in as it is used. The header is checked against the
+     * file's length here, and the offsets and ids in the rest of the file as
+     * the graph reads them.
+     *
+     * @param path model file written by {@link #write(Graph, Path)}
+     * @param verify if true, also check the file's checksum, which reads the
+     *               whole file
+     * @return a read-only graph backed by the mapped file
+     * @throws IOException if the file cannot be read, or is not a valid model
+     *                     file of this version
+     */
+    static MappedGraph open(Path path, boolean verify) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large to be a poet model file");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < 4 * HEADER_INTS + Long.BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException(path + " is not a poet model file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException(path + " has unsupported model version " + buffer.getInt(4));
+        }
+        long n = buffer.getInt(8);
+        long m = buffer.getInt(12);
+        long tableSize = buffer.getInt(16);
+        long wordBytes = buffer.getInt(20);
+        long expected = 4 * (HEADER_INTS + (n + 1) + tableSize + 2 * ((n + 1) + 2 * m))
+                + wordBytes + padding(wordBytes) + Long.BYTES;
+        // the table must have an empty slot, or lookups of missing words
+        // could not stop
+        if (n < 0 || m < 0 || Long.bitCount(tableSize) != 1 || tableSize <= n || wordBytes < 0
+                || expected != buffer.capacity()) {
+            throw new IOException(path + " is truncated or corrupt");
+        }
+        if (verify) {
+            int payload = buffer.capacity() - Long.BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().position(0).limit(payload));
+            if (crc.getValue() != buffer.getLong(payload)) {
+                throw new IOException(path + " has a bad checksum");
+            }
+        }
+        return new MappedGraph(buffer);
+    }
+
+    /**
+     * @param hash hash code of a word
+     * @param tableSize power of two
+     * @return first hash table slot to probe for that word
+     */
+    static int slot(int hash, int tableSize) {
+        int spread = hash ^ (hash >>> 16);
+        return spread & (tableSize - 1);
+    }
+
+    private static int padding(long bytes) {
+        return (int) (-bytes & 3);
+    }
+
+    /**
+     * Buffers little-endian ints on the way to an output stream.
+     */
+    private static class IntWriter {
+        private final OutputStream out;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+        IntWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        void write(int value) throws IOException {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.putInt(value);
+        }
+
+        void flush() throws IOException {
+            out.write(buffer.array(), 0, buffer.position());
+            buffer.clear();
+        }
+    }
+}
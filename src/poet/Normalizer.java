@@ -0,0 +1,45 @@
+package poet;
+
+/**
+ * Turns the characters of a raw word into the characters of its normalized
+ * form, one character at a time, for a tokenizer to write into a WordSpan.
+ */
+@FunctionalInterface
+interface Normalizer {
+
+    /**
+     * Normalization of corpus words: the word is lowercased, then everything
+     * but ASCII letters and digits is removed. Lowercasing first keeps the
+     * two non-ASCII characters that lowercase to ASCII letters: U+0130 (I
+     * with dot above) becomes i, and U+212A (Kelvin sign) becomes k.
+     */
+    Normalizer CORPUS = (c, word) -> {
+        if (c < 0x80) {
+            Normalizer.INPUT.append(c, word);
+        } else if (c == '\u0130') {
+            word.append('i');
+        } else if (c == '\u212A') {
+            word.append('k');
+        }
+    };
+
+    /**
+     * Normalization of poem input words: everything but ASCII letters and
+     * digits is removed, then the word is lowercased.
+     */
+    Normalizer INPUT = (c, word) -> {
+        if (c >= 'A' && c <= 'Z') {
+            word.append((char) (c + ('a' - 'A')));
+        } else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+            word.append(c);
+        }
+    };
+
+    /**
+     * Append the normalized form of one character of a raw word.
+     *
+     * @param c next character of the raw word
+     * @param word normalized word so far, to append to
+     */
+    void append(char c, WordSpan word);
+}
@@ -0,0 +1,333 @@
+package poet;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Mutable.
+ * An HTTP server of poems from one or more named poets, on the loopback
+ * address only.
+ *
+ * <p>Each request is handled on a virtual thread of its own, using the
+ * JDK's com.sun.net.httpserver. Requests and responses are UTF-8 text:
+ * <pre>
+ *   GET  /poem?input=TEXT[&amp;corpus=NAME]  the poem of TEXT
+ *   POST /poem[?corpus=NAME]              the poem of the request body,
+ *                                         streamed as it is read
+ *   POST /poems[?corpus=NAME]             one poem per line of the request
+ *                                         body, in order, written in
+ *                                         parallel on a ForkJoinPool
+ *   GET  /health                          "ok" and the names of the poets
+ *   GET  /metrics                         request and error counts, and
+ *                                         latency percentiles, per endpoint
+ * </pre>
+ * corpus may be left out when there is only one poet. Errors in requests are
+ * reported with a 4xx status and a one-line message.
+ *
+ * <p>Latencies are measured from the start of handling a request until its
+ * response has been written, in microseconds, and reported as p50, p99, p999 and max,
+ * each within 6.25%.
+ */
+public class PoemServer {
+
+    private static final String[] ENDPOINTS = { "poem", "poems", "health", "metrics" };
+
+    private final Map<String, GraphPoet> poets;
+    private final ForkJoinPool pool;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Metrics> metrics = new LinkedHashMap<>();
+
+    // Abstraction function:
+    //   AF(poets, server, metrics) = a server, listening on server's address,
+    //       of the poems of poets, each by its name, where metrics.get(e)
+    //       holds the requests to endpoint /e so far
+    //
+    // Representation invariant:
+    //   poets is not empty, and its names are not empty;
+    //   metrics has exactly the keys in ENDPOINTS
+    //
+    // Safety from rep exposure:
+    //   all fields are private and final; poets and metrics are never
+    //   returned, and the caller's map of poets is copied; metrics are
+    //   reported as text.
+    //
+    // Thread safety argument:
+    //   poets and metrics are not changed after construction, and are only
+    //   read by handlers; GraphPoet, Metrics and the pool are thread-safe.
+
+    /**
+     * Make a server of poems, not yet started.
+     *
+     * @param poets poets to serve, by name; names must not be empty
+     * @param port port of the loopback address to listen on, or 0 for any
+     *             free port
+     * @param pool pool that writes the poems of batches
+     * @throws IOException if the port cannot be bound
+     * @throws IllegalArgumentException if there are no poets, or a name is
+     *                                  empty
+     */
+    public PoemServer(Map<String, GraphPoet> poets, int port, ForkJoinPool pool) throws IOException {
+        if (poets.isEmpty()) {
+            throw new IllegalArgumentException("no poets to serve");
+        }
+        if (poets.containsKey("")) {
+            throw new IllegalArgumentException("empty poet name");
+        }
+        this.poets = Collections.unmodifiableMap(new LinkedHashMap<>(poets));
+        this.pool = pool;
+        for (String endpoint : ENDPOINTS) {
+            metrics.put(endpoint, new Metrics());
+        }
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/poem", timed("poem", this::poem));
+        server.createContext("/poems", timed("poems", this::poems));
+        server.createContext("/health", timed("health", this::health));
+        server.createContext("/metrics", timed("metrics", this::metrics));
+        server.setExecutor(executor);
+        checkRep();
+    }
+
+    // Check that the rep invariant is true
+    private void checkRep() {
+        assert !poets.isEmpty();
+        assert !poets.containsKey("");
+        assert metrics.size() == ENDPOINTS.length;
+    }
+
+    /**
+     * Start serving requests, on threads of the server's own.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop serving requests, waiting at most a given time for requests in
+     * progress to finish.
+     *
+     * @param seconds most seconds to wait
+     */
+    public void stop(int seconds) {
+        server.stop(seconds);
+        executor.shutdown();
+    }
+
+    /**
+     * @return port the server listens on
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Thread-safe.
+     * Counts and latencies of the requests to one endpoint.
+     */
+    private static class Metrics {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+    }
+
+    /**
+     * A request handler that may report an error to the client.
+     */
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException, RequestException;
+    }
+
+    /**
+     * An error in a request, to report to the client with a status code.
+     */
+    private static class RequestException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    // Wrap a handler so that it counts and times its requests, and reports
+    // its errors to the client
+    private HttpHandler timed(String endpoint, Handler handler) {
+        Metrics endpointMetrics = metrics.get(endpoint);
+        return exchange -> {
+            long start = System.nanoTime();
+            try {
+                if (!exchange.getRequestURI().getPath().equals("/" + endpoint)) {
+                    throw new RequestException(404, "no such endpoint: " + exchange.getRequestURI().getPath());
+                }
+                handler.handle(exchange);
+            } catch (RequestException e) {
+                endpointMetrics.errors.increment();
+                send(exchange, e.status, e.getMessage() + "\n");
+            } catch (RuntimeException e) {
+                endpointMetrics.errors.increment();
+                // the response may have started, and then it is cut short
+                if (exchange.getResponseCode() < 0) {
+                    send(exchange, 500, "internal error: " + e + "\n");
+                }
+                throw e;
+            } catch (IOException e) {
+                endpointMetrics.errors.increment();
+                throw e;
+            } finally {
+                // counted before the response is closed, so that a client
+                // that has its response sees it counted
+                endpointMetrics.requests.increment();
+                endpointMetrics.latency.record(System.nanoTime() - start);
+                exchange.close();
+            }
+        };
+    }
+
+    private void poem(HttpExchange exchange) throws IOException, RequestException {
+        Map<String, String> query = query(exchange);
+        GraphPoet poet = poet(query);
+        switch (exchange.getRequestMethod()) {
+            case "GET" -> {
+                String input = query.get("input");
+                if (input == null) {
+                    throw new RequestException(400, "missing input");
+                }
+                send(exchange, 200, poet.poem(input));
+            }
+            case "POST" -> {
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                // length 0: the response is chunked, and sent as it is written
+                exchange.sendResponseHeaders(200, 0);
+                Writer output = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(),
+                                                                          StandardCharsets.UTF_8));
+                poet.poem(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8), output);
+            }
+            default -> throw new RequestException(405, "use GET or POST");
+        }
+    }
+
+    private void poems(HttpExchange exchange) throws IOException, RequestException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            throw new RequestException(405, "use POST");
+        }
+        GraphPoet poet = poet(query(exchange));
+        List<String> inputs = new ArrayList<>();
+        BufferedReader body = new BufferedReader(new InputStreamReader(exchange.getRequestBody(),
+                                                                       StandardCharsets.UTF_8));
+        for (String line = body.readLine(); line != null; line = body.readLine()) {
+            inputs.add(line);
+        }
+        StringBuilder response = new StringBuilder();
+        for (String poem : poet.poems(inputs, pool)) {
+            response.append(poem).append('\n');
+        }
+        send(exchange, 200, response.toString());
+    }
+
+    private void health(HttpExchange exchange) throws IOException, RequestException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            throw new RequestException(405, "use GET");
+        }
+        send(exchange, 200, "ok " + String.join(" ", poets.keySet()) + "\n");
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException, RequestException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            throw new RequestException(405, "use GET");
+        }
+        StringBuilder response = new StringBuilder();
+        for (Map.Entry<String, Metrics> entry : metrics.entrySet()) {
+            String name = entry.getKey();
+            Metrics endpoint = entry.getValue();
+            LatencyHistogram latency = endpoint.latency;
+            response.append(name).append("_requests ").append(endpoint.requests.sum()).append('\n')
+                    .append(name).append("_errors ").append(endpoint.errors.sum()).append('\n')
+                    .append(name).append("_latency_p50_us ").append(micros(latency.percentile(0.5))).append('\n')
+                    .append(name).append("_latency_p99_us ").append(micros(latency.percentile(0.99))).append('\n')
+                    .append(name).append("_latency_p999_us ").append(micros(latency.percentile(0.999))).append('\n')
+                    .append(name).append("_latency_max_us ").append(micros(latency.max())).append('\n');
+        }
+        send(exchange, 200, response.toString());
+    }
+
+    private static long micros(long nanos) {
+        return (nanos + 500) / 1000;
+    }
+
+    // Get the poet a request names, or the only poet if it names none
+    private GraphPoet poet(Map<String, String> query) throws RequestException {
+        String name = query.get("corpus");
+        if (name == null) {
+            if (poets.size() > 1) {
+                throw new RequestException(400, "missing corpus, one of: " + String.join(" ", poets.keySet()));
+            }
+            return poets.values().iterator().next();
+        }
+        GraphPoet poet = poets.get(name);
+        if (poet == null) {
+            throw new RequestException(404, "no such corpus: " + name);
+        }
+        return poet;
+    }
+
+    // Parse the query string of a request into its parameters; the last of
+    // repeated parameters wins
+    private static Map<String, String> query(HttpExchange exchange) throws RequestException {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        try {
+            for (String parameter : query.split("&")) {
+                int equals = parameter.indexOf('=');
+                String name = equals < 0 ? parameter : parameter.substring(0, equals);
+                String value = equals < 0 ? "" : parameter.substring(equals + 1);
+                parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                               URLDecoder.decode(value, StandardCharsets.UTF_8));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new RequestException(400, "bad query: " + e.getMessage());
+        }
+        return parameters;
+    }
+
+    private static void send(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PoemServer [port=" + port() + ", poets=" + poets.keySet() + "]";
+    }
+}
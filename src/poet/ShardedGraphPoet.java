@@ -0,0 +1,390 @@
+package poet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import graph.BulkLoader;
+import graph.FrozenGraph;
+import graph.Graph;
+import graph.IndexedEdgesGraph;
+
+/**
+ * Immutable.
+ * A graph-based poetry generator whose affinity graph is split into shards.
+ *
+ * <p>Each word belongs to one of N shards, chosen by its hash, and each shard
+ * is an independent graph that holds the edges out of its own words. To find
+ * the bridge from w1 to w2, the shard of w1 supplies the words w1 leads to,
+ * and every shard matches them against its own words that lead to w2, in
+ * parallel on a ForkJoinPool when there are enough edges to visit; the best
+ * candidates of the shards are then merged. Bridges are chosen as in
+ * {@link GraphPoet}, so poem() returns what GraphPoet.poem() returns for the
+ * same corpus.
+ *
+ * <p>Safe to share between threads.
+ */
+public class ShardedGraphPoet {
+
+    // distinct bigrams of one shard to collect before adding them to its graph
+    private static final int BATCH_EDGES = 1 << 18;
+
+    // bridge searches with fewer edges to visit than this are not worth
+    // splitting between tasks
+    private static final int MIN_PARALLEL_EDGES = 1 << 14;
+
+    private final FrozenGraph<String>[] shards;
+    private final int[][] ranks;
+    private final ForkJoinPool pool;
+    private final int minParallelEdges;
+
+    // Abstraction function:
+    //   AF(shards, ranks) = a poet whose affinity graph is the union of the graphs
+    //                in shards
+    //
+    // Representation invariant:
+    //   shards.length >= 1;
+    //   every edge of shards[s] is out of a word w with shard(w) == s;
+    //   every shard's ids are in alphabetical order of its words;
+    //   ranks[s][v] is the rank, in alphabetical order, of the word of id v
+    //     of shard s among the words of all the shards
+    //
+    // Safety from rep exposure:
+    //   all fields are private and final; shards are immutable FrozenGraphs,
+    //   and neither they nor ranks are returned or written after
+    //   construction.
+    //
+    // Thread safety argument:
+    //   shards are immutable and every field is final; each bridge search
+    //   works in its own tasks, which only read the shards.
+
+    /**
+     * Create a new poet with the graph from the corpus, in a number of shards,
+     * searching for bridges on the common ForkJoinPool.
+     *
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param shards number of shards, at least 1
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public ShardedGraphPoet(File corpus, int shards) throws IOException {
+        this(corpus, shards, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a new poet with the graph from the corpus, in a number of shards.
+     * The corpus is read as by {@link GraphPoet#GraphPoet(File)}, each bigram
+     * going to the shard of its first word; the shards are then frozen in
+     * parallel.
+     *
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param shards number of shards, at least 1
+     * @param pool pool that builds the shards and searches them for bridges
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public ShardedGraphPoet(File corpus, int shards, ForkJoinPool pool) throws IOException {
+        this(corpus, shards, pool, MIN_PARALLEL_EDGES);
+    }
+
+    // Create a poet that splits bridge searches between tasks once they have
+    // minParallelEdges edges to visit
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    ShardedGraphPoet(File corpus, int shards, ForkJoinPool pool, int minParallelEdges) throws IOException {
+        if (shards < 1) {
+            throw new IllegalArgumentException("need at least one shard: " + shards);
+        }
+        Graph<String>[] graphs = new Graph[shards];
+        for (int s = 0; s < shards; s++) {
+            graphs[s] = new IndexedEdgesGraph<>(true);
+        }
+        try (FileChannel channel = FileChannel.open(corpus.toPath())) {
+            readBigrams(new CorpusReader(channel, Normalizer.CORPUS), graphs);
+        }
+        this.shards = new FrozenGraph[shards];
+        pool.invoke(new Freeze(graphs, this.shards, 0, shards));
+        this.ranks = ranks(this.shards);
+        this.pool = pool;
+        this.minParallelEdges = minParallelEdges;
+        checkRep();
+    }
+
+    // Add the bigrams of words to the graph of the shard of their first word
+    private static void readBigrams(WordSource words, Graph<String>[] graphs) throws IOException {
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        BulkLoader<String>[] loaders = new BulkLoader[graphs.length];
+        for (int s = 0; s < graphs.length; s++) {
+            loaders[s] = new BulkLoader<>();
+        }
+        // words are interned, so only the first occurrence of each allocates,
+        // and the shards share one String per word
+        Vocabulary vocabulary = new Vocabulary();
+        WordSpan word = new WordSpan();
+        String w1 = null;
+        while (words.next(word)) {
+            String w2 = vocabulary.word(vocabulary.add(word));
+            if (w1 != null && !w1.isEmpty() && !w2.isEmpty()) {
+                BulkLoader<String> loader = loaders[shard(w1, graphs.length)];
+                loader.add(w1, w2, 1);
+                if (loader.size() >= BATCH_EDGES) {
+                    loader.applyTo(graphs[shard(w1, graphs.length)]);
+                }
+            }
+            w1 = w2;
+        }
+        for (int s = 0; s < graphs.length; s++) {
+            loaders[s].applyTo(graphs[s]);
+        }
+    }
+
+    // Rank the words of every shard among the words of all the shards, so
+    // that words from different shards compare as ints
+    private static int[][] ranks(FrozenGraph<String>[] shards) {
+        int total = 0;
+        for (FrozenGraph<String> shard : shards) {
+            total += shard.vertexCount();
+        }
+        String[] words = new String[total];
+        int count = 0;
+        for (FrozenGraph<String> shard : shards) {
+            for (int v = 0; v < shard.vertexCount(); v++) {
+                words[count++] = shard.label(v);
+            }
+        }
+        Arrays.sort(words);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || !words[i].equals(words[distinct - 1])) {
+                words[distinct++] = words[i];
+            }
+        }
+        int[][] ranks = new int[shards.length][];
+        for (int s = 0; s < shards.length; s++) {
+            // a shard's words are in alphabetical order too, so one pass
+            // through words ranks them all
+            ranks[s] = new int[shards[s].vertexCount()];
+            int rank = 0;
+            for (int v = 0; v < ranks[s].length; v++) {
+                while (!words[rank].equals(shards[s].label(v))) {
+                    rank++;
+                }
+                ranks[s][v] = rank;
+            }
+        }
+        return ranks;
+    }
+
+    // Get the shard of a word, out of a number of shards
+    private static int shard(String word, int shards) {
+        int hash = word.hashCode() * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), shards);
+    }
+
+    // Check that the rep invariant is true
+    private void checkRep() {
+        assert shards.length >= 1 && ranks.length == shards.length;
+        for (int s = 0; s < shards.length; s++) {
+            assert ranks[s].length == shards[s].vertexCount();
+            for (int v = 0; v < shards[s].vertexCount(); v++) {
+                assert shards[s].outDegree(v) == 0 || shard(shards[s].label(v), shards.length) == s
+                        : "edge out of a word of another shard";
+            }
+        }
+    }
+
+    /**
+     * @return number of shards
+     */
+    public int shards() {
+        return shards.length;
+    }
+
+    /**
+     * Generate a poem.
+     *
+     * @param input string from which to create the poem
+     * @return poem, the same as {@link GraphPoet#poem(String)} would make from
+     *         the same corpus
+     */
+    public String poem(String input) {
+        return BridgeWords.poem(input, new Bridges());
+    }
+
+    /**
+     * Mutable.
+     * Finds the bridge words between consecutive words of a poem,
+     * remembering only the last word.
+     */
+    private class Bridges implements BridgeWords {
+
+        private String last = null;
+
+        @Override public String next(WordSpan word) {
+            String label = label(word);
+            String bridgeWord = bridgeWord(last, label);
+            last = label;
+            return bridgeWord;
+        }
+    }
+
+    // Get a normalized word as a label; null if it is empty
+    private static String label(WordSpan word) {
+        return word.length() == 0 ? null : word.toString();
+    }
+
+    // Find the bridge word with maximum weight between two words, or null if
+    // there is none or either word is null
+    private String bridgeWord(String w1, String w2) {
+        if (w1 == null || w2 == null) {
+            return null;
+        }
+        int first = shard(w1, shards.length);
+        int source = shards[first].id(w1);
+        if (source < 0 || shards[first].outDegree(source) == 0) {
+            return null;
+        }
+        // the id of w2 in each shard, -1 where no word of the shard leads to it
+        int[] targets = new int[shards.length];
+        long edges = 0;
+        for (int s = 0; s < shards.length; s++) {
+            targets[s] = shards[s].id(w2);
+            if (targets[s] >= 0) {
+                edges += shards[first].outDegree(source) + shards[s].inDegree(targets[s]);
+            }
+        }
+        Candidate best = edges < minParallelEdges
+                ? bestBridge(first, source, targets, 0, shards.length)
+                : pool.invoke(new Search(first, source, targets, 0, shards.length));
+        return best.word;
+    }
+
+    // Find the best bridge from source in shard first into the shards
+    // [from, to), where targets[s] is the id of w2 in shard s, or -1
+    private Candidate bestBridge(int first, int source, int[] targets, int from, int to) {
+        Candidate best = Candidate.NONE;
+        for (int s = from; s < to; s++) {
+            if (targets[s] >= 0) {
+                best = best.or(bestBridge(first, source, s, targets[s]));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Immutable.
+     * The best bridge found so far, or none if word is null.
+     */
+    private static class Candidate {
+
+        private static final Candidate NONE = new Candidate(null, 0);
+
+        private final String word;
+        private final long weight;
+
+        Candidate(String word, long weight) {
+            this.word = word;
+            this.weight = weight;
+        }
+
+        // The better of two candidates: the heavier, ties going to the
+        // alphabetically first word
+        Candidate or(Candidate that) {
+            if (that.word == null) {
+                return this;
+            }
+            if (this.word == null || that.weight > this.weight
+                    || (that.weight == this.weight && that.word.compareTo(this.word) < 0)) {
+                return that;
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Mutable.
+     * Finds the best bridge from a word into the shards [from, to), splitting
+     * the shards between subtasks and merging their candidates.
+     */
+    private class Search extends RecursiveTask<Candidate> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int first;
+        private final int source;
+        private final int[] targets;
+        private final int from;
+        private final int to;
+
+        Search(int first, int source, int[] targets, int from, int to) {
+            this.first = first;
+            this.source = source;
+            this.targets = targets;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override protected Candidate compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                Search right = new Search(first, source, targets, middle, to);
+                right.fork();
+                Candidate left = new Search(first, source, targets, from, middle).compute();
+                return left.or(right.join());
+            }
+            return bestBridge(first, source, targets, from, to);
+        }
+    }
+
+    // Find the best bridge b from source in first to target in shard, where
+    // b is a word of shard. The targets of source come from every shard, so
+    // they are merged by their ranks among the words of all the shards.
+    private Candidate bestBridge(int first, int source, int shard, int target) {
+        long best = BridgeMerge.best(shards[first], ranks[first], source, shards[shard], ranks[shard], target);
+        return best == BridgeMerge.NONE ? Candidate.NONE
+                : new Candidate(shards[shard].label(BridgeMerge.bridge(best)), BridgeMerge.weight(best));
+    }
+
+    /**
+     * Mutable.
+     * Freezes the graphs of the shards [from, to), splitting the shards
+     * between subtasks.
+     */
+    private static class Freeze extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Graph<String>[] graphs;
+        private final transient FrozenGraph<String>[] frozen;
+        private final int from;
+        private final int to;
+
+        Freeze(Graph<String>[] graphs, FrozenGraph<String>[] frozen, int from, int to) {
+            this.graphs = graphs;
+            this.frozen = frozen;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Freeze(graphs, frozen, from, middle), new Freeze(graphs, frozen, middle, to));
+                return;
+            }
+            frozen[from] = FrozenGraph.of(graphs[from]);
+            // the unfrozen graph is garbage once its shard is frozen
+            graphs[from] = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("ShardedGraphPoet [shards=").append(shards.length);
+        for (int s = 0; s < shards.length; s++) {
+            result.append(", ").append(shards[s]);
+        }
+        return result.append("]").toString();
+    }
+}
@@ -0,0 +1,89 @@
+package poet;
+
+/**
+ * Mutable.
+ * Splits a CharSequence into words, normalizing each into a reusable
+ * WordSpan, and reports where each raw word lies in the text.
+ *
+ * <p>Words are separated as {@link CorpusReader} separates them, by the
+ * whitespace that the regex \s matches. The text is scanned once, and
+ * reading a word does not allocate.
+ *
+ * <p>Not safe for use by several threads at once.
+ */
+class Tokenizer implements WordSource {
+
+    private final CharSequence text;
+    private final Normalizer normalizer;
+    private int start = 0;
+    private int end = 0;
+
+    // Abstraction function:
+    //   AF(text, start, end) = the words of text[end..], the last word read
+    //                          being text[start, end)
+    // Representation invariant:
+    //   0 <= start <= end <= text.length()
+    // Safety from rep exposure:
+    //   text is never modified or returned
+
+    /**
+     * Make a tokenizer of a text.
+     *
+     * @param text text to split; must not change while it is read
+     * @param normalizer normalizer of the characters of each word
+     */
+    Tokenizer(CharSequence text, Normalizer normalizer) {
+        this.text = text;
+        this.normalizer = normalizer;
+        checkRep();
+    }
+
+    // Check that the rep invariant is true
+    private void checkRep() {
+        assert 0 <= start && start <= end && end <= text.length();
+    }
+
+    /**
+     * Read the next word.
+     *
+     * @param word span to hold the normalized word, which may be empty if no
+     *             character of the raw word is kept
+     * @return true if there was a word, false at the end of the text
+     */
+    @Override public boolean next(WordSpan word) {
+        word.clear();
+        int length = text.length();
+        int i = end;
+        while (i < length && CorpusReader.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        if (i == length) {
+            start = end = length;
+            return false;
+        }
+        start = i;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (CorpusReader.isWhitespace(c)) {
+                break;
+            }
+            normalizer.append(c, word);
+        }
+        end = i;
+        return true;
+    }
+
+    /**
+     * @return index in the text of the first character of the last raw word
+     */
+    int start() {
+        return start;
+    }
+
+    /**
+     * @return index in the text just after the last raw word
+     */
+    int end() {
+        return end;
+    }
+}
@@ -0,0 +1,113 @@
+package poet;
+
+import java.util.Arrays;
+
+import graph.IntAdjacency;
+
+/**
+ * Mutable.
+ * Numbers distinct words densely, in the order they are added, and finds a
+ * word's number from any CharSequence whose hashCode() is the String hash of
+ * its characters, such as a WordSpan, without allocating.
+ */
+class Vocabulary {
+
+    private String[] words = new String[16];
+    private int[] table = new int[32];
+    private int size = 0;
+
+    // Abstraction function:
+    //   AF(words, size) = the words words[0..size), word i having id i
+    // Representation invariant:
+    //   words[0..size) are distinct;
+    //   table.length is a power of two and more than 2 * size;
+    //   table holds id + 1 for every id, reachable by linear probing from
+    //     slot(words[id].hashCode()), and 0 in every other slot
+    // Safety from rep exposure:
+    //   arrays are private and never returned; words are immutable
+
+    /**
+     * Make a vocabulary of the labels of a graph, with the same ids.
+     *
+     * @param graph graph whose labels are distinct
+     * @return a vocabulary whose word i is graph.label(i)
+     */
+    static Vocabulary of(IntAdjacency<String> graph) {
+        Vocabulary vocabulary = new Vocabulary();
+        for (int id = 0; id < graph.vertexCount(); id++) {
+            vocabulary.add(graph.label(id));
+        }
+        return vocabulary;
+    }
+
+    /**
+     * @param word characters of a word
+     * @return id of the word with those characters, or -1 if there is none
+     */
+    int id(CharSequence word) {
+        for (int slot = slot(word.hashCode()); table[slot] != 0; slot = (slot + 1) & (table.length - 1)) {
+            String candidate = words[table[slot] - 1];
+            if (candidate.contentEquals(word)) {
+                return table[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Add a word if it is not already in the vocabulary.
+     *
+     * @param word characters of a word; copied if it is not a String
+     * @return id of the word
+     */
+    int add(CharSequence word) {
+        int id = id(word);
+        if (id >= 0) {
+            return id;
+        }
+        if (size == words.length) {
+            words = Arrays.copyOf(words, 2 * size);
+        }
+        words[size] = word.toString();
+        if (2 * (size + 1) >= table.length) {
+            rehash(2 * table.length);
+        }
+        insert(size);
+        return size++;
+    }
+
+    /**
+     * @param id id of a word, in [0, size())
+     * @return the word
+     */
+    String word(int id) {
+        return words[id];
+    }
+
+    /**
+     * @return number of words
+     */
+    int size() {
+        return size;
+    }
+
+    private int slot(int hash) {
+        int mixed = hash * 0x9E3779B9;
+        return (mixed ^ (mixed >>> 16)) & (table.length - 1);
+    }
+
+    private void insert(int id) {
+        int slot = slot(words[id].hashCode());
+        while (table[slot] != 0) {
+            slot = (slot + 1) & (table.length - 1);
+        }
+        table[slot] = id + 1;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        for (int id = 0; id < size; id++) {
+            insert(id);
+        }
+    }
+}
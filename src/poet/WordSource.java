@@ -0,0 +1,19 @@
+package poet;
+
+import java.io.IOException;
+
+/**
+ * A sequence of normalized words, read one at a time into a reusable span.
+ */
+interface WordSource {
+
+    /**
+     * Read the next word.
+     *
+     * @param word span to hold the normalized word, which may be empty if no
+     *             character of the raw word is kept
+     * @return true if there was a word, false at the end
+     * @throws IOException if the words cannot be read
+     */
+    boolean next(WordSpan word) throws IOException;
+}
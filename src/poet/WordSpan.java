@@ -0,0 +1,116 @@
+package poet;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Mutable.
+ * A reusable buffer holding one word, with the same hash code as a String of
+ * the same characters.
+ *
+ * <p>Tokenizers write each word into the same span, so reading words does
+ * not allocate; a String is only made when a word must be kept.
+ */
+class WordSpan implements CharSequence {
+
+    private char[] chars = new char[16];
+    private int length = 0;
+    private int hash = 0;
+
+    // Abstraction function:
+    //   AF(chars, length) = the word chars[0..length)
+    // Representation invariant:
+    //   0 <= length <= chars.length;
+    //   hash == the String hash code of chars[0..length)
+    // Safety from rep exposure:
+    //   chars is private and never returned; toString() copies it
+
+    /**
+     * Make the word empty.
+     */
+    void clear() {
+        length = 0;
+        hash = 0;
+    }
+
+    /**
+     * Add a character to the end of the word.
+     *
+     * @param c character to add
+     */
+    void append(char c) {
+        if (length == chars.length) {
+            chars = Arrays.copyOf(chars, 2 * length);
+        }
+        chars[length++] = c;
+        hash = 31 * hash + c;
+    }
+
+    @Override public int length() {
+        return length;
+    }
+
+    @Override public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return chars[index];
+    }
+
+    @Override public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    /**
+     * Write part of the word.
+     *
+     * @param out where to write it
+     * @param start index of the first character to write
+     * @param end index after the last character to write
+     * @throws IOException if out cannot be written
+     */
+    void writeTo(Writer out, int start, int end) throws IOException {
+        if (start < 0 || start > end || end > length) {
+            throw new IndexOutOfBoundsException("[" + start + ", " + end + ") of " + length);
+        }
+        out.write(chars, start, end - start);
+    }
+
+    /**
+     * @param word a string
+     * @return true if word has the same characters as this span
+     */
+    boolean contentEquals(String word) {
+        if (word.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) != chars[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the String hash code of the word
+     */
+    @Override public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Spans are compared by identity, since their contents change.
+     */
+    @Override public boolean equals(Object that) {
+        return this == that;
+    }
+
+    /**
+     * @return the word, as a new String
+     */
+    @Override public String toString() {
+        return new String(chars, 0, length);
+    }
+}
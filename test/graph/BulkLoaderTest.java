@@ -0,0 +1,153 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+/**
+ * Tests for BulkLoader and the addWeights() implementations it uses.
+ */
+public class BulkLoaderTest {
+
+    // Testing strategy:
+    // - batch: empty, duplicates of one edge, deltas that merge to zero,
+    //          negative deltas, random batches over existing edges
+    // - input: add(), parallel arrays, iterator of Deltas, another batch
+    // - graph: each mutable implementation, adapter over a plain Graph
+    // - result: same graph as applying every delta with addWeight();
+    //           batch emptied after applyTo(); negative result rejected
+
+    private static final List<Supplier<Graph<Integer>>> IMPLEMENTATIONS = List.of(
+            ConcreteEdgesGraph::new,
+            ConcreteVerticesGraph::new,
+            IndexedEdgesGraph::new,
+            ConcurrentGraph::new,
+            () -> new IntGraph<Integer>().asGraph());
+
+    @Test
+    public void testEmptyBatch() {
+        for (Supplier<Graph<Integer>> implementation : IMPLEMENTATIONS) {
+            Graph<Integer> graph = implementation.get();
+            new BulkLoader<Integer>().applyTo(graph);
+            assertTrue(graph.vertices().isEmpty());
+        }
+    }
+
+    @Test
+    public void testDuplicatesMerged() {
+        for (Supplier<Graph<Integer>> implementation : IMPLEMENTATIONS) {
+            Graph<Integer> graph = implementation.get();
+            BulkLoader<Integer> loader = new BulkLoader<>();
+            loader.add(1, 2, 1);
+            loader.add(1, 2, 2);
+            loader.add(1, 3, 1);
+            loader.add(3, 4, 1);
+            loader.add(3, 4, -1);
+            assertEquals(3, loader.size());
+            loader.applyTo(graph);
+            assertEquals(0, loader.size());
+            assertEquals(Set.of(1, 2, 3), graph.vertices());
+            assertEquals(Map.of(2, 3, 3, 1), graph.targets(1));
+        }
+    }
+
+    @Test
+    public void testArraysAndIterator() {
+        for (Supplier<Graph<Integer>> implementation : IMPLEMENTATIONS) {
+            Graph<Integer> graph = implementation.get();
+            graph.set(1, 2, 5);
+            BulkLoader<Integer> loader = new BulkLoader<>();
+            loader.addAll(new Integer[] { 1, 2 }, new Integer[] { 2, 1 }, new int[] { -5, 4 });
+            assertTrue(loader.canApplyTo(graph));
+            loader.addAll(List.of(new BulkLoader.Delta<>(2, 1, 1)).iterator());
+            BulkLoader<Integer> other = new BulkLoader<>();
+            other.add(2, 1, -1);
+            other.add(2, 1, 1);
+            other.add(3, 1, 2);
+            loader.addAll(other);
+            assertEquals(2, other.size());
+            loader.addAll(other);
+            loader.add(3, 1, -4);
+            loader.add(1, 2, -1);
+            assertFalse(loader.canApplyTo(graph));
+            loader.add(1, 2, 1);
+            assertTrue(loader.canApplyTo(graph));
+            loader.applyTo(graph);
+            assertTrue(graph.targets(1).isEmpty());
+            assertEquals(Map.of(1, 5), graph.targets(2));
+        }
+    }
+
+    @Test
+    public void testNegativeResultRejected() {
+        for (Supplier<Graph<Integer>> implementation : IMPLEMENTATIONS) {
+            Graph<Integer> graph = implementation.get();
+            graph.set(1, 2, 1);
+            BulkLoader<Integer> loader = new BulkLoader<>();
+            loader.add(1, 2, -2);
+            try {
+                loader.applyTo(graph);
+                fail("expected IllegalArgumentException from " + graph.getClass());
+            } catch (IllegalArgumentException e) {
+                assertEquals(0, loader.size());
+            }
+        }
+    }
+
+    @Test
+    public void testRandomBatchesMatchAddWeight() {
+        for (Supplier<Graph<Integer>> implementation : IMPLEMENTATIONS) {
+            Graph<Integer> graph = implementation.get();
+            WeightedGraph<Integer> expected = new IndexedEdgesGraph<>();
+            Random random = new Random(42);
+            for (int round = 0; round < 5; round++) {
+                BulkLoader<Integer> loader = new BulkLoader<>();
+                for (int i = 0; i < 300; i++) {
+                    int source = random.nextInt(20);
+                    int target = random.nextInt(20);
+                    int current = expected.targets(source).getOrDefault(target, 0);
+                    // never drive a weight below zero
+                    int delta = current > 0 && random.nextBoolean() ? -current : 1 + random.nextInt(3);
+                    expected.addWeight(source, target, delta);
+                    loader.add(source, target, delta);
+                }
+                loader.applyTo(graph);
+                for (Integer vertex : expected.vertices()) {
+                    assertEquals(graph.getClass() + " " + vertex,
+                            expected.targets(vertex), graph.targets(vertex));
+                    assertEquals(expected.sources(vertex), graph.sources(vertex));
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testArraysDifferentLengths() {
+        new BulkLoader<Integer>().addAll(new Integer[] { 1 }, new Integer[] { 2 }, new int[0]);
+    }
+
+    @Test
+    public void testIntGraphMergeKeepsRowsSorted() {
+        IntGraph<Integer> graph = new IntGraph<>();
+        for (int i = 0; i < 10; i++) {
+            graph.intern(i);
+        }
+        graph.set(0, 5, 1);
+        graph.set(0, 7, 1);
+        graph.addWeights(0, new int[] { 1, 5, 6, 9 }, new int[] { 2, -1, 3, 4 }, 4);
+        int[] targets = new int[graph.outDegree(0)];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = graph.target(0, i);
+        }
+        assertEquals(Arrays.toString(new int[] { 1, 6, 7, 9 }), Arrays.toString(targets));
+        assertEquals(0, graph.inDegree(5));
+        assertEquals(3, graph.weight(0, 6));
+    }
+}
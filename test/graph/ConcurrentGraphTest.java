@@ -0,0 +1,167 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+/**
+ * Tests for ConcurrentGraph.
+ * 
+ * This class runs the GraphInstanceTest tests against ConcurrentGraph, as
+ * well as single-threaded and multi-threaded tests for that implementation.
+ */
+public class ConcurrentGraphTest extends GraphInstanceTest {
+
+    /*
+     * Provide a ConcurrentGraph for tests in GraphInstanceTest.
+     */
+    @Override
+    public Graph<String> emptyInstance() {
+        return new ConcurrentGraph<>();
+    }
+
+    // Testing strategy for ConcurrentGraph:
+    // - stripes: 1 (every vertex shares a lock), many
+    // - single thread: set/remove agree on sources and targets
+    // - many threads: disjoint edge writers, mixed writers and removers,
+    //                 readers during writes; afterwards sources and targets
+    //                 of every vertex must mirror each other
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoStripes() {
+        new ConcurrentGraph<String>(0);
+    }
+
+    @Test
+    public void testSingleStripe() {
+        Graph<String> graph = new ConcurrentGraph<>(1);
+        graph.set("A", "B", 1);
+        graph.set("B", "A", 2);
+        assertEquals(Map.of("B", 1), graph.targets("A"));
+        assertEquals(Map.of("B", 2), graph.sources("A"));
+        assertTrue(graph.remove("A"));
+        assertEquals(Set.of("B"), graph.vertices());
+        assertTrue(graph.sources("B").isEmpty());
+    }
+
+    @Test
+    public void testDisjointWriters() throws InterruptedException {
+        Graph<Integer> graph = new ConcurrentGraph<>(4);
+        int threads = 8;
+        int edges = 2000;
+        runThreads(threads, t -> {
+            for (int i = 0; i < edges; i++) {
+                graph.set(t * edges + i, i % 100, i + 1);
+            }
+        });
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < edges; i++) {
+                assertEquals(Map.of(i % 100, i + 1), graph.targets(t * edges + i));
+            }
+        }
+        assertMirrored(graph);
+    }
+
+    @Test
+    public void testMixedWritersAndRemovers() throws InterruptedException {
+        Graph<Integer> graph = new ConcurrentGraph<>(8);
+        runThreads(16, t -> {
+            Random random = new Random(t);
+            for (int i = 0; i < 5000; i++) {
+                int source = random.nextInt(50);
+                int target = random.nextInt(50);
+                switch (random.nextInt(10)) {
+                case 0:
+                    graph.remove(source);
+                    break;
+                case 1:
+                    graph.set(source, target, 0);
+                    break;
+                case 2:
+                    graph.sources(target);
+                    graph.vertices();
+                    break;
+                default:
+                    graph.set(source, target, 1 + random.nextInt(5));
+                }
+            }
+        });
+        assertMirrored(graph);
+    }
+
+    @Test
+    public void testConcurrentAddWeight() throws InterruptedException {
+        ConcurrentGraph<Integer> graph = new ConcurrentGraph<>(4);
+        int threads = 16;
+        int increments = 2000;
+        runThreads(threads, t -> {
+            for (int i = 0; i < increments; i++) {
+                graph.addWeight(i % 10, (i + t) % 10, 1);
+            }
+        });
+        int total = 0;
+        for (Integer vertex : graph.vertices()) {
+            for (int weight : graph.targets(vertex).values()) {
+                total += weight;
+            }
+        }
+        assertEquals(threads * increments, total);
+        assertMirrored(graph);
+    }
+
+    // Check that every edge is recorded at both ends, with positive weight
+    private static void assertMirrored(Graph<Integer> graph) {
+        Set<Integer> vertices = graph.vertices();
+        for (Integer vertex : vertices) {
+            for (Map.Entry<Integer, Integer> edge : graph.targets(vertex).entrySet()) {
+                assertTrue(vertices.contains(edge.getKey()));
+                assertTrue(edge.getValue() > 0);
+                assertEquals(edge.getValue(), graph.sources(edge.getKey()).get(vertex));
+            }
+            for (Map.Entry<Integer, Integer> edge : graph.sources(vertex).entrySet()) {
+                assertEquals(edge.getValue(), graph.targets(edge.getKey()).get(vertex));
+            }
+        }
+    }
+
+    private interface Worker {
+        void run(int thread);
+    }
+
+    // Run worker on threads threads, all starting together, and rethrow the
+    // first failure
+    private static void runThreads(int threads, Worker worker) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> started = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread runner = new Thread(() -> {
+                try {
+                    start.await();
+                    worker.run(thread);
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            runner.start();
+            started.add(runner);
+        }
+        start.countDown();
+        for (Thread runner : started) {
+            runner.join();
+        }
+        if (!failures.isEmpty()) {
+            throw new AssertionError(failures.get(0));
+        }
+    }
+}
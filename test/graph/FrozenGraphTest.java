@@ -0,0 +1,120 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for FrozenGraph.
+ */
+public class FrozenGraphTest {
+
+    // Testing strategy for FrozenGraph:
+    // - of(): empty graph, graph with isolated vertices, with edges,
+    //         a FrozenGraph (returned as is); source graph later mutated
+    // - ids: natural label order
+    // - sources()/targets(): unknown vertex, views agree with source graph,
+    //                        views are read-only
+    // - int API: degrees, sorted rows, weightById(); Integer labels, where
+    //   weight() takes labels and weightById() ids
+    // - mutators throw UnsupportedOperationException
+
+    private static Graph<String> sample() {
+        Graph<String> graph = new IndexedEdgesGraph<>();
+        graph.set("c", "a", 1);
+        graph.set("c", "b", 2);
+        graph.set("a", "b", 3);
+        graph.set("b", "c", 4);
+        graph.add("d");
+        return graph;
+    }
+
+    @Test
+    public void testEmpty() {
+        FrozenGraph<String> frozen = FrozenGraph.of(new IndexedEdgesGraph<>());
+        assertEquals(0, frozen.vertexCount());
+        assertTrue(frozen.vertices().isEmpty());
+        assertTrue(frozen.targets("a").isEmpty());
+    }
+
+    @Test
+    public void testSameGraph() {
+        Graph<String> graph = sample();
+        FrozenGraph<String> frozen = FrozenGraph.of(graph);
+        assertEquals(graph.vertices(), frozen.vertices());
+        for (String vertex : graph.vertices()) {
+            assertEquals(graph.targets(vertex), frozen.targets(vertex));
+            assertEquals(graph.sources(vertex), frozen.sources(vertex));
+        }
+        assertTrue(frozen.sources("z").isEmpty());
+        assertSame(frozen, FrozenGraph.of(frozen));
+    }
+
+    @Test
+    public void testSnapshotIndependentOfSource() {
+        Graph<String> graph = sample();
+        FrozenGraph<String> frozen = FrozenGraph.of(graph);
+        graph.set("a", "d", 5);
+        graph.remove("c");
+        assertEquals(Set.of("a", "b", "c", "d"), frozen.vertices());
+        assertEquals(Map.of("b", 3), frozen.targets("a"));
+    }
+
+    @Test
+    public void testIntApi() {
+        FrozenGraph<String> frozen = FrozenGraph.of(sample());
+        assertEquals(List.of("a", "b", "c", "d"),
+                List.of(frozen.label(0), frozen.label(1), frozen.label(2), frozen.label(3)));
+        int c = frozen.id("c");
+        assertEquals(2, frozen.outDegree(c));
+        assertEquals(frozen.id("a"), frozen.target(c, 0));
+        assertEquals(frozen.id("b"), frozen.target(c, 1));
+        assertEquals(2, frozen.targetWeight(c, 1));
+        int b = frozen.id("b");
+        assertEquals(2, frozen.inDegree(b));
+        assertEquals(frozen.id("a"), frozen.source(b, 0));
+        assertEquals(3, frozen.sourceWeight(b, 0));
+        assertEquals(4, frozen.weightById(b, c));
+        assertEquals(0, frozen.weightById(c, c));
+        assertEquals(-1, frozen.id("z"));
+    }
+
+    @Test
+    public void testIntegerLabels() {
+        Graph<Integer> graph = new IndexedEdgesGraph<>();
+        graph.set(10, 20, 7);
+        graph.set(0, 1, 3);
+        FrozenGraph<Integer> frozen = FrozenGraph.of(graph);
+        assertEquals(7, frozen.weight(10, 20));
+        assertEquals(3, frozen.weight(0, 1));
+        assertEquals(7, frozen.weightById(frozen.id(10), frozen.id(20)));
+        // ids 2 and 3 are labels 10 and 20, but weight() takes labels
+        assertEquals(0, frozen.weight(2, 3));
+        assertEquals(7, frozen.weightById(2, 3));
+    }
+
+    @Test
+    public void testTargetsInIdOrder() {
+        FrozenGraph<String> frozen = FrozenGraph.of(sample());
+        assertEquals(List.of("a", "b"), List.copyOf(frozen.targets("c").keySet()));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testTargetsReadOnly() {
+        FrozenGraph.of(sample()).targets("c").put("d", 1);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testVerticesReadOnly() {
+        FrozenGraph.of(sample()).vertices().add("e");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSetUnsupported() {
+        FrozenGraph.of(sample()).set("a", "b", 1);
+    }
+}
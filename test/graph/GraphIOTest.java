@@ -0,0 +1,195 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Tests for GraphIO.
+ */
+public class GraphIOTest {
+
+    // Testing strategy:
+    // - graph: empty, isolated vertex, edges, self loop, labels with tabs,
+    //          newlines, backslashes, quotes and XML markup
+    // - writeEdgeList() + readEdgeList(): round trip, through a Writer and
+    //   through a channel; malformed input
+    // - writeDot(): every edge and isolated vertex appears, quotes escaped
+    // - writeGraphML(): output parses as XML, with every node and edge;
+    //   labels with a supplementary character; labels with a control
+    //   character or lone surrogate (rejected)
+    // - vertices with no outgoing edges: with incoming edges (written on
+    //   their own too, and read back once), isolated
+
+    private static Graph<String> sample() {
+        Graph<String> graph = new IndexedEdgesGraph<>();
+        graph.add("alone");
+        graph.set("a", "b", 3);
+        graph.set("b", "b", 1);
+        graph.set("tab\there", "new\nline", 2);
+        graph.set("back\\slash", "\"<q&a>\"", 5);
+        return graph;
+    }
+
+    private static void assertSameGraph(Graph<String> expected, Graph<String> actual) {
+        assertEquals(expected.vertices(), actual.vertices());
+        for (String vertex : expected.vertices()) {
+            assertEquals(expected.targets(vertex), actual.targets(vertex));
+        }
+    }
+
+    @Test
+    public void testEdgeListRoundTrip() throws IOException {
+        for (Graph<String> graph : List.of(sample(), new IndexedEdgesGraph<String>())) {
+            StringWriter out = new StringWriter();
+            GraphIO.writeEdgeList(graph, out);
+            Graph<String> read = GraphIO.readEdgeList(new StringReader(out.toString()), new ConcreteVerticesGraph<>());
+            assertSameGraph(graph, read);
+        }
+    }
+
+    @Test
+    public void testEdgeListLines() throws IOException {
+        Graph<String> graph = new ConcreteEdgesGraph<>();
+        graph.add("x");
+        graph.set("a", "b", 3);
+        StringWriter out = new StringWriter();
+        GraphIO.writeEdgeList(graph, out);
+        assertEquals(Set.of("a\tb\t3", "b", "x"), Set.of(out.toString().split("\n")));
+    }
+
+    @Test
+    public void testIsolatedVertices() throws IOException {
+        Graph<String> graph = new ConcreteEdgesGraph<>();
+        graph.set("a", "b", 3);
+        graph.set("c", "a", 1);
+        graph.add("x");
+        graph.add("y");
+        StringWriter edgeList = new StringWriter();
+        GraphIO.writeEdgeList(graph, edgeList);
+        assertEquals(Set.of("a\tb\t3", "c\ta\t1", "b", "x", "y"), Set.of(edgeList.toString().split("\n")));
+        assertSameGraph(graph, GraphIO.readEdgeList(new StringReader(edgeList.toString()),
+                                                    new IndexedEdgesGraph<>()));
+        StringWriter dot = new StringWriter();
+        GraphIO.writeDot(graph, dot);
+        assertTrue(dot.toString(), dot.toString().contains("  \"b\";\n"));
+        assertTrue(dot.toString(), dot.toString().contains("  \"x\";\n"));
+        assertFalse(dot.toString(), dot.toString().contains("  \"a\";\n"));
+        assertEquals(7, dot.toString().split("\n").length);
+    }
+
+    @Test
+    public void testEdgeListThroughChannel() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer out = GraphIO.writer(Channels.newChannel(bytes))) {
+            GraphIO.writeEdgeList(sample(), out);
+        }
+        Graph<String> read = GraphIO.readEdgeList(
+                Channels.newReader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())),
+                                   StandardCharsets.UTF_8),
+                new IndexedEdgesGraph<>());
+        assertSameGraph(sample(), read);
+    }
+
+    @Test
+    public void testReadEdgeListMalformed() {
+        for (String input : List.of("a\tb\n", "a\tb\tc\n", "a\tb\t0\n", "a\tb\t1\t2\n", "a\\x\n", "a\\\n")) {
+            try {
+                GraphIO.readEdgeList(new StringReader(input), new IndexedEdgesGraph<>());
+                fail("expected IOException for " + input);
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("line 1"));
+            }
+        }
+    }
+
+    @Test
+    public void testDot() throws IOException {
+        StringWriter out = new StringWriter();
+        GraphIO.writeDot(sample(), out);
+        String dot = out.toString();
+        assertTrue(dot, dot.startsWith("digraph G {\n"));
+        assertTrue(dot, dot.endsWith("}\n"));
+        assertTrue(dot, dot.contains("  \"a\" -> \"b\" [weight=3, label=3];\n"));
+        assertTrue(dot, dot.contains("  \"b\" -> \"b\" [weight=1, label=1];\n"));
+        assertTrue(dot, dot.contains("  \"back\\\\slash\" -> \"\\\"<q&a>\\\"\" [weight=5, label=5];\n"));
+        assertTrue(dot, dot.contains("  \"alone\";\n"));
+        assertTrue(dot, dot.contains("  \"new\\nline\";\n"));
+        assertEquals(9, dot.split("\n").length);
+    }
+
+    @Test
+    public void testGraphML() throws Exception {
+        StringWriter out = new StringWriter();
+        GraphIO.writeGraphML(sample(), out);
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new ByteArrayInputStream(out.toString().getBytes(StandardCharsets.UTF_8)));
+        NodeList nodes = document.getElementsByTagName("node");
+        assertEquals(sample().vertices().size(), nodes.getLength());
+        Graph<String> read = new IndexedEdgesGraph<>();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            read.add(((Element) nodes.item(i)).getAttribute("id"));
+        }
+        NodeList edges = document.getElementsByTagName("edge");
+        for (int i = 0; i < edges.getLength(); i++) {
+            Element edge = (Element) edges.item(i);
+            read.set(edge.getAttribute("source"), edge.getAttribute("target"),
+                     Integer.parseInt(edge.getTextContent()));
+        }
+        assertSameGraph(sample(), read);
+    }
+
+    @Test
+    public void testGraphMLSupplementaryCharacter() throws Exception {
+        Graph<String> graph = new IndexedEdgesGraph<>();
+        graph.set("\ud83d\ude00", "b", 2);
+        StringWriter out = new StringWriter();
+        GraphIO.writeGraphML(graph, out);
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new ByteArrayInputStream(out.toString().getBytes(StandardCharsets.UTF_8)));
+        assertEquals("\ud83d\ude00", ((Element) document.getElementsByTagName("edge").item(0)).getAttribute("source"));
+    }
+
+    @Test
+    public void testGraphMLRejectsInvalidCharacters() throws IOException {
+        for (String label : List.of("bell\u0007", "\u0000", "esc\u001b[0m", "lone\ud83d", "\ude00", "\uffff")) {
+            Graph<String> graph = new IndexedEdgesGraph<>();
+            graph.set("a", label, 1);
+            try {
+                GraphIO.writeGraphML(graph, new StringWriter());
+                fail("expected IllegalArgumentException for " + label);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("XML"));
+            }
+        }
+    }
+
+    @Test
+    public void testToStringLargeGraph() {
+        List<Graph<Integer>> graphs = List.of(new ConcreteEdgesGraph<>(), new ConcreteVerticesGraph<>());
+        for (Graph<Integer> graph : graphs) {
+            for (int i = 0; i < 2000; i++) {
+                graph.set(i, i + 1, 1);
+            }
+            assertTrue(graph.toString().contains("1999"));
+            assertEquals(Map.of(2000, 1), graph.targets(1999));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+/**
+ * Tests for the views mode of the mutable Graph implementations.
+ */
+public class GraphViewsTest {
+
+    // Testing strategy:
+    // - implementation: ConcreteEdgesGraph, ConcreteVerticesGraph,
+    //                   IndexedEdgesGraph, each made with views = true
+    // - vertices(), sources(), targets(): vertex with no edges, several
+    //   edges, unknown vertex
+    // - views: reflect later set() and remove(); reject every mutator;
+    //   follow their vertex through remove() and add() again, and an
+    //   unknown vertex once it is added
+    // - views = false still returns independent copies
+
+    private static final List<Supplier<Graph<String>>> IMPLEMENTATIONS = List.of(
+            () -> new ConcreteEdgesGraph<>(true),
+            () -> new ConcreteVerticesGraph<>(true),
+            () -> new IndexedEdgesGraph<>(true));
+
+    @Test
+    public void testViewsMatchGraph() {
+        for (Supplier<Graph<String>> implementation : IMPLEMENTATIONS) {
+            Graph<String> graph = implementation.get();
+            graph.add("d");
+            graph.set("a", "b", 1);
+            graph.set("a", "c", 2);
+            graph.set("c", "b", 3);
+            assertEquals(Set.of("a", "b", "c", "d"), graph.vertices());
+            assertEquals(Map.of("b", 1, "c", 2), graph.targets("a"));
+            assertEquals(Map.of("a", 1, "c", 3), graph.sources("b"));
+            assertEquals(Integer.valueOf(2), graph.targets("a").get("c"));
+            assertNull(graph.targets("a").get("d"));
+            assertTrue(graph.targets("d").isEmpty());
+            assertTrue(graph.sources("x").isEmpty());
+        }
+    }
+
+    @Test
+    public void testViewsAreLive() {
+        for (Supplier<Graph<String>> implementation : IMPLEMENTATIONS) {
+            Graph<String> graph = implementation.get();
+            graph.set("a", "b", 1);
+            Set<String> vertices = graph.vertices();
+            Map<String, Integer> targets = graph.targets("a");
+            Map<String, Integer> sources = graph.sources("b");
+            graph.set("a", "c", 4);
+            graph.set("a", "b", 2);
+            assertEquals(Set.of("a", "b", "c"), vertices);
+            assertEquals(Map.of("b", 2, "c", 4), targets);
+            assertEquals(Map.of("a", 2), sources);
+            graph.remove("c");
+            assertEquals(Set.of("a", "b"), vertices);
+            assertEquals(Map.of("b", 2), targets);
+        }
+    }
+
+    @Test
+    public void testViewsFollowVertex() {
+        for (Supplier<Graph<String>> implementation : IMPLEMENTATIONS) {
+            Graph<String> graph = implementation.get();
+            graph.set("a", "b", 1);
+            Map<String, Integer> targets = graph.targets("a");
+            Map<String, Integer> sources = graph.sources("b");
+            Map<String, Integer> unknown = graph.targets("x");
+            graph.remove("a");
+            assertEquals(Map.of(), targets);
+            assertEquals(Map.of(), sources);
+            graph.set("a", "c", 3);
+            graph.set("x", "b", 5);
+            assertEquals(implementation.get().getClass().getSimpleName(), Map.of("c", 3), targets);
+            assertEquals(Map.of("x", 5), sources);
+            assertEquals(Map.of("b", 5), unknown);
+            assertEquals(Integer.valueOf(5), unknown.get("b"));
+            assertTrue(unknown.containsKey("b"));
+            assertEquals(Set.of("b"), unknown.keySet());
+        }
+    }
+
+    @Test
+    public void testViewsAreUnmodifiable() {
+        for (Supplier<Graph<String>> implementation : IMPLEMENTATIONS) {
+            Graph<String> graph = implementation.get();
+            graph.set("a", "b", 1);
+            List<Runnable> mutators = List.of(
+                    () -> graph.vertices().add("x"),
+                    () -> graph.vertices().remove("a"),
+                    () -> graph.targets("a").put("x", 1),
+                    () -> graph.targets("a").remove("b"),
+                    () -> graph.sources("b").clear(),
+                    () -> graph.targets("a").keySet().remove("b"),
+                    () -> graph.targets("a").entrySet().iterator().next().setValue(5));
+            for (Runnable mutator : mutators) {
+                try {
+                    mutator.run();
+                    fail("expected UnsupportedOperationException from " + graph.getClass());
+                } catch (UnsupportedOperationException e) {
+                    // expected
+                }
+            }
+            assertEquals(Map.of("b", 1), graph.targets("a"));
+            assertEquals(Set.of("a", "b"), graph.vertices());
+        }
+    }
+
+    @Test
+    public void testCopiesByDefault() {
+        List<Graph<String>> graphs = List.of(
+                new ConcreteEdgesGraph<>(), new ConcreteVerticesGraph<>(), new IndexedEdgesGraph<>());
+        for (Graph<String> graph : graphs) {
+            graph.set("a", "b", 1);
+            Map<String, Integer> targets = graph.targets("a");
+            graph.set("a", "c", 1);
+            assertEquals(Map.of("b", 1), targets);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for IndexedEdgesGraph.
+ * 
+ * This class runs the GraphInstanceTest tests against IndexedEdgesGraph, as
+ * well as tests for that particular implementation.
+ */
+public class IndexedEdgesGraphTest extends GraphInstanceTest {
+
+    /*
+     * Provide an IndexedEdgesGraph for tests in GraphInstanceTest.
+     */
+    @Override
+    public Graph<String> emptyInstance() {
+        return new IndexedEdgesGraph<>();
+    }
+
+    // Testing strategy for IndexedEdgesGraph:
+    // - set(): new edge, update, remove, remove missing edge
+    // - remove(): vertex with incoming and outgoing edges
+    // - sources()/targets(): unknown vertex, several neighbours
+    // - returned maps are not views of the rep
+    // - set() with a negative weight
+
+    @Test
+    public void testSetUpdateAndRemove() {
+        Graph<String> graph = emptyInstance();
+        assertEquals(0, graph.set("A", "B", 5));
+        assertEquals(5, graph.set("A", "B", 7));
+        assertEquals(Map.of("B", 7), graph.targets("A"));
+        assertEquals(Map.of("A", 7), graph.sources("B"));
+        assertEquals(7, graph.set("A", "B", 0));
+        assertTrue(graph.targets("A").isEmpty());
+        assertTrue(graph.sources("B").isEmpty());
+        assertEquals(Set.of("A", "B"), graph.vertices());
+    }
+
+    @Test
+    public void testSetZeroMissingEdge() {
+        Graph<String> graph = emptyInstance();
+        assertEquals(0, graph.set("A", "B", 0));
+        assertTrue(graph.vertices().isEmpty());
+    }
+
+    @Test
+    public void testRemoveVertexWithEdges() {
+        Graph<String> graph = emptyInstance();
+        graph.set("A", "B", 1);
+        graph.set("B", "C", 2);
+        graph.set("C", "B", 3);
+        graph.set("A", "C", 4);
+        assertTrue(graph.remove("B"));
+        assertEquals(Set.of("A", "C"), graph.vertices());
+        assertEquals(Map.of("C", 4), graph.targets("A"));
+        assertEquals(Map.of("A", 4), graph.sources("C"));
+        assertTrue(graph.targets("C").isEmpty());
+        assertFalse(graph.remove("B"));
+    }
+
+    @Test
+    public void testSourcesTargetsSeveralNeighbours() {
+        Graph<String> graph = emptyInstance();
+        graph.set("A", "C", 1);
+        graph.set("B", "C", 2);
+        graph.set("C", "D", 3);
+        graph.set("C", "E", 4);
+        assertEquals(Map.of("A", 1, "B", 2), graph.sources("C"));
+        assertEquals(Map.of("D", 3, "E", 4), graph.targets("C"));
+        assertTrue(graph.targets("Z").isEmpty());
+        assertTrue(graph.sources("Z").isEmpty());
+    }
+
+    @Test
+    public void testNoRepExposure() {
+        Graph<String> graph = emptyInstance();
+        graph.set("A", "B", 1);
+        graph.targets("A").put("C", 2);
+        graph.vertices().add("D");
+        assertEquals(Map.of("B", 1), graph.targets("A"));
+        assertEquals(Set.of("A", "B"), graph.vertices());
+    }
+
+    @Test
+    public void testSetNegativeWeight() {
+        Graph<String> graph = emptyInstance();
+        graph.set("A", "B", 5);
+        try {
+            graph.set("A", "C", -1);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals(Set.of("A", "B"), graph.vertices());
+        assertEquals(Map.of("B", 5), graph.targets("A"));
+        assertEquals("A->B(weight = 5)\n", graph.toString());
+    }
+}
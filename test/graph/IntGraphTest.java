@@ -0,0 +1,159 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for IntGraph.
+ * 
+ * This class runs the GraphInstanceTest tests against IntGraph.asGraph(), as
+ * well as tests for the int-based API.
+ */
+public class IntGraphTest extends GraphInstanceTest {
+
+    /*
+     * Provide an IntGraph view for tests in GraphInstanceTest.
+     */
+    @Override
+    public Graph<String> emptyInstance() {
+        return new IntGraph<String>().asGraph();
+    }
+
+    // Testing strategy for IntGraph:
+    // - intern()/id()/label(): new label, existing label, missing label
+    // - set()/weight(): insert out of id order, update, remove
+    // - rows: degree 0, 1, many (forcing rows to move and compact); sorted
+    // - remove(): vertex with in and out edges, id reuse
+    // - asGraph(): sources/targets agree with the int API; rejected weights
+    //   add no vertices
+
+    @Test
+    public void testIntern() {
+        IntGraph<String> graph = new IntGraph<>();
+        assertEquals(-1, graph.id("A"));
+        int a = graph.intern("A");
+        assertEquals(a, graph.intern("A"));
+        assertEquals(a, graph.id("A"));
+        assertEquals("A", graph.label(a));
+        assertEquals(1, graph.vertexCount());
+    }
+
+    @Test
+    public void testSetSortedRows() {
+        IntGraph<String> graph = new IntGraph<>();
+        int a = graph.intern("A");
+        int b = graph.intern("B");
+        int c = graph.intern("C");
+        int d = graph.intern("D");
+        assertEquals(0, graph.set(a, d, 4));
+        assertEquals(0, graph.set(a, b, 2));
+        assertEquals(0, graph.set(a, c, 3));
+        assertEquals(3, graph.outDegree(a));
+        assertEquals(b, graph.target(a, 0));
+        assertEquals(c, graph.target(a, 1));
+        assertEquals(d, graph.target(a, 2));
+        assertEquals(3, graph.targetWeight(a, 1));
+        assertEquals(3, graph.set(a, c, 5));
+        assertEquals(5, graph.weight(a, c));
+        assertEquals(5, graph.set(a, c, 0));
+        assertEquals(0, graph.weight(a, c));
+        assertEquals(2, graph.outDegree(a));
+        assertEquals(1, graph.inDegree(d));
+        assertEquals(a, graph.source(d, 0));
+        assertEquals(4, graph.sourceWeight(d, 0));
+    }
+
+    @Test
+    public void testManyRows() {
+        IntGraph<Integer> graph = new IntGraph<>();
+        int n = 200;
+        for (int i = 0; i < n; i++) {
+            graph.intern(i);
+        }
+        for (int round = 1; round <= 3; round++) {
+            for (int s = 0; s < n; s++) {
+                for (int t = s % 7; t < n; t += 7) {
+                    graph.set(s, t, round);
+                }
+            }
+        }
+        for (int s = 0; s < n; s++) {
+            int expected = 0;
+            for (int t = s % 7; t < n; t += 7) {
+                assertEquals(3, graph.weight(s, t));
+                expected++;
+            }
+            assertEquals(expected, graph.outDegree(s));
+            for (int i = 1; i < graph.outDegree(s); i++) {
+                assertTrue(graph.target(s, i - 1) < graph.target(s, i));
+            }
+        }
+    }
+
+    @Test
+    public void testRemoveReusesId() {
+        IntGraph<String> graph = new IntGraph<>();
+        Graph<String> view = graph.asGraph();
+        view.set("A", "B", 1);
+        view.set("B", "C", 2);
+        view.set("C", "B", 3);
+        int b = graph.id("B");
+        assertTrue(graph.remove(b));
+        assertFalse(graph.remove(b));
+        assertEquals(Set.of("A", "C"), view.vertices());
+        assertTrue(view.targets("A").isEmpty());
+        assertTrue(view.sources("C").isEmpty());
+        assertEquals(b, graph.intern("D"));
+        assertEquals(0, graph.outDegree(b));
+        assertEquals(0, graph.inDegree(b));
+    }
+
+    @Test
+    public void testAsGraphAgreesWithIntApi() {
+        IntGraph<String> graph = new IntGraph<>();
+        Graph<String> view = graph.asGraph();
+        view.set("A", "B", 1);
+        view.set("C", "B", 2);
+        assertEquals(Map.of("A", 1, "C", 2), view.sources("B"));
+        assertEquals(2, graph.weight(graph.id("C"), graph.id("B")));
+        assertEquals(0, view.set("A", "Z", 0));
+        assertEquals(-1, graph.id("Z"));
+    }
+
+    @Test
+    public void testAsGraphRejectsBeforeInterning() {
+        IntGraph<String> graph = new IntGraph<>();
+        WeightedGraph<String> view = WeightedGraph.of(graph.asGraph());
+        view.set("A", "B", 2);
+        try {
+            view.set("A", "X", -1);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals(-1, graph.id("X"));
+        }
+        try {
+            view.addWeights(Map.of("Y", Map.of("Z", 3, "B", -1)));
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals(-1, graph.id("Y"));
+            assertEquals(-1, graph.id("Z"));
+        }
+        try {
+            view.addWeights(Map.of("A", Map.of("W", 1, "B", -3)));
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals(-1, graph.id("W"));
+        }
+        assertEquals(Set.of("A", "B"), view.vertices());
+        assertEquals(Map.of("B", 2), view.targets("A"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetUnknownId() {
+        new IntGraph<String>().set(0, 1, 1);
+    }
+}
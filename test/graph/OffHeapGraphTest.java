@@ -0,0 +1,103 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for OffHeapGraph.
+ */
+public class OffHeapGraphTest {
+
+    // Testing strategy for OffHeapGraph:
+    // - of(): empty graph, graph with isolated vertices and edges
+    // - sources()/targets(): agree with the source graph, unknown vertex,
+    //                        read-only
+    // - int API: degrees, sorted rows, weight() present and absent
+    // - close(): later reads fail, by label or id, including through views
+    //   got before close()
+
+    private static Graph<String> sample() {
+        Graph<String> graph = new IndexedEdgesGraph<>();
+        graph.set("c", "a", 1);
+        graph.set("c", "b", 2);
+        graph.set("a", "b", 3);
+        graph.set("b", "c", 4);
+        graph.add("d");
+        return graph;
+    }
+
+    @Test
+    public void testEmpty() {
+        try (OffHeapGraph<String> graph = OffHeapGraph.of(new IndexedEdgesGraph<>())) {
+            assertEquals(0, graph.vertexCount());
+            assertTrue(graph.targets("a").isEmpty());
+        }
+    }
+
+    @Test
+    public void testSameGraph() {
+        Graph<String> source = sample();
+        try (OffHeapGraph<String> graph = OffHeapGraph.of(source)) {
+            assertEquals(source.vertices(), graph.vertices());
+            for (String vertex : source.vertices()) {
+                assertEquals(source.targets(vertex), graph.targets(vertex));
+                assertEquals(source.sources(vertex), graph.sources(vertex));
+            }
+            assertTrue(graph.sources("z").isEmpty());
+        }
+    }
+
+    @Test
+    public void testIntApi() {
+        try (OffHeapGraph<String> graph = OffHeapGraph.of(sample())) {
+            int b = graph.id("b");
+            int c = graph.id("c");
+            assertEquals(2, graph.outDegree(c));
+            assertEquals(List.of("a", "b"), List.copyOf(graph.targets("c").keySet()));
+            assertEquals(2, graph.targetWeight(c, 1));
+            assertEquals(2, graph.inDegree(b));
+            assertEquals(3, graph.sourceWeight(b, 0));
+            assertEquals(4, graph.weightById(b, c));
+            assertEquals(0, graph.weightById(c, c));
+            assertEquals(Map.of("b", 3), graph.targets("a"));
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testTargetsReadOnly() {
+        try (OffHeapGraph<String> graph = OffHeapGraph.of(sample())) {
+            graph.targets("c").put("d", 1);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUseAfterClose() {
+        OffHeapGraph<String> graph = OffHeapGraph.of(sample());
+        graph.close();
+        graph.outDegree(0);
+    }
+
+    @Test
+    public void testEveryReadAfterClose() {
+        OffHeapGraph<String> graph = OffHeapGraph.of(sample());
+        Map<String, Integer> targets = graph.targets("a");
+        graph.close();
+        List<Runnable> reads = List.of(
+                () -> graph.id("a"), () -> graph.id("unknown"), () -> graph.label(0),
+                () -> graph.vertexCount(), () -> graph.vertices(), () -> graph.targets("unknown"),
+                () -> graph.sources("a"), () -> graph.weight("a", "b"), () -> graph.toString(),
+                () -> targets.size(), () -> targets.get("b"));
+        for (int i = 0; i < reads.size(); i++) {
+            try {
+                reads.get(i).run();
+                fail("expected IllegalStateException from read " + i);
+            } catch (IllegalStateException e) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * Tests for PageRank.
+ */
+public class PageRankTest {
+
+    // Testing strategy:
+    // - graph: empty, one vertex, cycle, star, weighted edges, dangling
+    //          vertices, isolated vertices, FrozenGraph or mutable graph
+    // - pool: one thread, several threads (same result)
+    // - parameters: defaults, invalid; iteration limit reached
+    // - top(): k = 0, k < vertices, k > vertices
+
+    private static final double EPSILON = 1e-6;
+
+    private static void assertRanksSumToOne(Map<?, Double> ranks) {
+        double sum = 0;
+        for (double rank : ranks.values()) {
+            sum += rank;
+        }
+        assertEquals(1.0, sum, EPSILON);
+    }
+
+    @Test
+    public void testEmpty() {
+        PageRank<String> pageRank = new PageRank<>(new IndexedEdgesGraph<>());
+        assertEquals(Map.of(), pageRank.ranks());
+        assertEquals(List.of(), pageRank.top(3));
+    }
+
+    @Test
+    public void testCycleIsUniform() {
+        Graph<String> graph = new IndexedEdgesGraph<>();
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 7);
+        graph.set("c", "a", 2);
+        Map<String, Double> ranks = new PageRank<>(graph).ranks();
+        for (double rank : ranks.values()) {
+            assertEquals(1.0 / 3, rank, EPSILON);
+        }
+    }
+
+    @Test
+    public void testWeightsAndDanglingVertices() {
+        Graph<String> graph = new ConcreteVerticesGraph<>();
+        graph.set("a", "b", 3);
+        graph.set("a", "c", 1);
+        graph.add("isolated");
+        Map<String, Double> ranks = new PageRank<>(graph).ranks();
+        assertRanksSumToOne(ranks);
+        // a and isolated only get jumps; b and c also get a's rank, split 3:1
+        assertTrue(ranks.get("b") > ranks.get("c"));
+        assertTrue(ranks.get("c") > ranks.get("a"));
+        assertEquals(ranks.get("a"), ranks.get("isolated"), EPSILON);
+        assertEquals(ranks.get("b") - ranks.get("a"), 3 * (ranks.get("c") - ranks.get("a")), EPSILON);
+    }
+
+    @Test
+    public void testMatchesSequentialReference() {
+        Random random = new Random(5);
+        Graph<Integer> graph = new IndexedEdgesGraph<>();
+        int n = 3000;
+        for (int v = 0; v < n; v++) {
+            graph.add(v);
+        }
+        for (int e = 0; e < 40000; e++) {
+            // skewed, so that some vertices have many more edges than others
+            int target = (int) (n * Math.pow(random.nextDouble(), 3));
+            graph.set(random.nextInt(n), target, 1 + random.nextInt(5));
+        }
+        Map<Integer, Double> expected = reference(graph, 0.85, 200);
+        for (ForkJoinPool pool : List.of(new ForkJoinPool(1), new ForkJoinPool(4))) {
+            for (Graph<Integer> version : List.of(graph, FrozenGraph.of(graph))) {
+                Map<Integer, Double> ranks = new PageRank<>(version, pool).ranks(0.85, 1e-12, 200);
+                assertRanksSumToOne(ranks);
+                for (int v = 0; v < n; v++) {
+                    assertEquals(expected.get(v), ranks.get(v), 1e-9);
+                }
+            }
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testIterationLimit() {
+        Graph<String> graph = new IndexedEdgesGraph<>();
+        graph.set("a", "b", 1);
+        graph.set("c", "b", 1);
+        graph.set("b", "b", 1);
+        Map<String, Double> one = new PageRank<>(graph).ranks(0.85, 1e-12, 1);
+        assertEquals(0.15 / 3, one.get("a"), EPSILON);
+        assertRanksSumToOne(one);
+    }
+
+    @Test
+    public void testTop() {
+        Graph<String> graph = new IndexedEdgesGraph<>();
+        graph.set("a", "hub", 1);
+        graph.set("b", "hub", 1);
+        graph.set("c", "hub", 1);
+        graph.set("hub", "a", 1);
+        PageRank<String> pageRank = new PageRank<>(graph);
+        assertEquals(List.of(), pageRank.top(0));
+        assertEquals(List.of("hub", "a"), pageRank.top(2));
+        assertEquals(4, pageRank.top(10).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadDamping() {
+        new PageRank<>(new IndexedEdgesGraph<String>()).ranks(1.0, 1e-9, 10);
+    }
+
+    // Plain power iteration through targets(), as a reference
+    private static Map<Integer, Double> reference(Graph<Integer> graph, double damping, int iterations) {
+        int n = graph.vertices().size();
+        double[] rank = new double[n];
+        Arrays.fill(rank, 1.0 / n);
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            double[] next = new double[n];
+            double dangling = 0;
+            for (int u = 0; u < n; u++) {
+                Map<Integer, Integer> targets = graph.targets(u);
+                long total = 0;
+                for (int weight : targets.values()) {
+                    total += weight;
+                }
+                if (total == 0) {
+                    dangling += rank[u];
+                }
+                for (Map.Entry<Integer, Integer> edge : targets.entrySet()) {
+                    next[edge.getKey()] += damping * rank[u] * edge.getValue() / total;
+                }
+            }
+            for (int v = 0; v < n; v++) {
+                next[v] += (1 - damping + damping * dangling) / n;
+            }
+            rank = next;
+        }
+        Map<Integer, Double> result = new HashMap<>();
+        for (int v = 0; v < n; v++) {
+            result.put(v, rank[v]);
+        }
+        return result;
+    }
+}
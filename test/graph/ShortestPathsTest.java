@@ -0,0 +1,147 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for ShortestPaths.
+ */
+public class ShortestPathsTest {
+
+    // Testing strategy:
+    // - graph: IntAdjacency (FrozenGraph, OffHeapGraph) or not (mutable graphs)
+    // - source, target: equal, missing, isolated, unreachable, reachable by
+    //                   one path or by several of different lengths
+    // - queries: first, many in a row on one ShortestPaths (scratch reuse)
+    // - distances(): source missing, some vertices unreachable
+    // - random graphs checked against Floyd-Warshall
+
+    private static List<Graph<String>> versions(Graph<String> graph) {
+        ConcreteVerticesGraph<String> vertices = new ConcreteVerticesGraph<>();
+        for (String vertex : graph.vertices()) {
+            vertices.add(vertex);
+            for (Map.Entry<String, Integer> edge : graph.targets(vertex).entrySet()) {
+                vertices.set(vertex, edge.getKey(), edge.getValue());
+            }
+        }
+        return List.of(graph, vertices, FrozenGraph.of(graph), OffHeapGraph.of(graph));
+    }
+
+    private static Graph<String> sample() {
+        Graph<String> graph = new IndexedEdgesGraph<>();
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 1);
+        graph.set("a", "c", 5);
+        graph.set("c", "d", 2);
+        graph.set("d", "a", 1);
+        graph.set("e", "a", 1);
+        graph.add("x");
+        return graph;
+    }
+
+    @Test
+    public void testPath() {
+        for (Graph<String> graph : versions(sample())) {
+            ShortestPaths<String> paths = new ShortestPaths<>(graph);
+            assertEquals(List.of("a", "b", "c", "d"), paths.path("a", "d"));
+            assertEquals(4, paths.distance("a", "d"));
+            assertEquals(List.of("c", "d", "a", "b"), paths.path("c", "b"));
+            assertEquals(List.of("a"), paths.path("a", "a"));
+            assertEquals(0, paths.distance("x", "x"));
+        }
+    }
+
+    @Test
+    public void testNoPath() {
+        for (Graph<String> graph : versions(sample())) {
+            ShortestPaths<String> paths = new ShortestPaths<>(graph);
+            assertEquals(Collections.emptyList(), paths.path("a", "e"));
+            assertEquals(-1, paths.distance("a", "x"));
+            assertEquals(-1, paths.distance("x", "a"));
+            assertEquals(Collections.emptyList(), paths.path("a", "missing"));
+            assertEquals(Collections.emptyList(), paths.path("missing", "a"));
+            assertEquals(Collections.emptyList(), paths.path("missing", "missing"));
+        }
+    }
+
+    @Test
+    public void testDistances() {
+        for (Graph<String> graph : versions(sample())) {
+            ShortestPaths<String> paths = new ShortestPaths<>(graph);
+            assertEquals(Map.of("a", 0L, "b", 1L, "c", 2L, "d", 4L), paths.distances("a"));
+            assertEquals(Map.of("x", 0L), paths.distances("x"));
+            assertEquals(Map.of(), paths.distances("missing"));
+        }
+    }
+
+    @Test
+    public void testRandomGraphsMatchFloydWarshall() {
+        Random random = new Random(13);
+        for (int round = 0; round < 10; round++) {
+            int n = 2 + random.nextInt(30);
+            Graph<String> graph = new IndexedEdgesGraph<>();
+            for (int v = 0; v < n; v++) {
+                graph.add("v" + v);
+            }
+            for (int e = random.nextInt(4 * n); e > 0; e--) {
+                graph.set("v" + random.nextInt(n), "v" + random.nextInt(n), 1 + random.nextInt(20));
+            }
+            Map<String, Map<String, Long>> expected = floydWarshall(graph);
+            for (Graph<String> version : versions(graph)) {
+                ShortestPaths<String> paths = new ShortestPaths<>(version);
+                for (int query = 0; query < 3 * n; query++) {
+                    String source = "v" + random.nextInt(n);
+                    String target = "v" + random.nextInt(n);
+                    Long distance = expected.get(source).get(target);
+                    assertEquals(distance == null ? -1 : distance, paths.distance(source, target));
+                    List<String> path = paths.path(source, target);
+                    assertEquals(distance == null, path.isEmpty());
+                    long length = 0;
+                    for (int i = 0; i + 1 < path.size(); i++) {
+                        length += graph.targets(path.get(i)).get(path.get(i + 1));
+                    }
+                    if (distance != null) {
+                        assertEquals(source, path.get(0));
+                        assertEquals(target, path.get(path.size() - 1));
+                        assertEquals((long) distance, length);
+                    }
+                    if (query % n == 0) {
+                        assertEquals(expected.get(source), paths.distances(source));
+                    }
+                }
+            }
+        }
+    }
+
+    // All-pairs shortest path lengths; missing entries are unreachable
+    private static Map<String, Map<String, Long>> floydWarshall(Graph<String> graph) {
+        Map<String, Map<String, Long>> distance = new HashMap<>();
+        for (String v : graph.vertices()) {
+            Map<String, Long> row = new HashMap<>();
+            row.put(v, 0L);
+            for (Map.Entry<String, Integer> edge : graph.targets(v).entrySet()) {
+                row.merge(edge.getKey(), (long) edge.getValue(), Math::min);
+            }
+            distance.put(v, row);
+        }
+        for (String k : graph.vertices()) {
+            for (String i : graph.vertices()) {
+                Long ik = distance.get(i).get(k);
+                if (ik == null) {
+                    continue;
+                }
+                for (Map.Entry<String, Long> kj : distance.get(k).entrySet()) {
+                    distance.get(i).merge(kj.getKey(), ik + kj.getValue(), Math::min);
+                }
+            }
+        }
+        return distance;
+    }
+}
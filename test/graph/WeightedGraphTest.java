@@ -0,0 +1,271 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+/**
+ * Tests for WeightedGraph operations.
+ * 
+ * Each test runs against every mutable implementation in the package, and
+ * against WeightedGraph.of() a plain Graph.
+ */
+public class WeightedGraphTest {
+
+    // Testing strategy for addWeight():
+    // - edge: missing, present
+    // - vertices: both missing, one missing, self loop
+    // - delta: positive, zero, negative to a positive result, negative to
+    //          zero (edge removed), negative below zero (rejected)
+    // - implementation: each mutable graph, adapter over a plain Graph
+
+    private static final List<Supplier<WeightedGraph<String>>> IMPLEMENTATIONS = List.of(
+            ConcreteEdgesGraph::new,
+            ConcreteVerticesGraph::new,
+            IndexedEdgesGraph::new,
+            ConcurrentGraph::new,
+            () -> WeightedGraph.of(new IntGraph<String>().asGraph()),
+            () -> WeightedGraph.of(new PlainGraph<>(new IndexedEdgesGraph<>())));
+
+    @Test
+    public void testOfReturnsSameGraph() {
+        WeightedGraph<String> graph = new IndexedEdgesGraph<>();
+        assertSame(graph, WeightedGraph.of(graph));
+    }
+
+    @Test
+    public void testAddWeightNewEdge() {
+        for (Supplier<WeightedGraph<String>> implementation : IMPLEMENTATIONS) {
+            WeightedGraph<String> graph = implementation.get();
+            assertEquals(3, graph.addWeight("A", "B", 3));
+            assertEquals(Set.of("A", "B"), graph.vertices());
+            assertEquals(Map.of("B", 3), graph.targets("A"));
+            assertEquals(Map.of("A", 3), graph.sources("B"));
+        }
+    }
+
+    @Test
+    public void testAddWeightExistingEdge() {
+        for (Supplier<WeightedGraph<String>> implementation : IMPLEMENTATIONS) {
+            WeightedGraph<String> graph = implementation.get();
+            graph.set("A", "B", 2);
+            assertEquals(7, graph.addWeight("A", "B", 5));
+            assertEquals(7, graph.addWeight("A", "B", 0));
+            assertEquals(4, graph.addWeight("A", "B", -3));
+            assertEquals(Map.of("A", 4), graph.sources("B"));
+        }
+    }
+
+    @Test
+    public void testAddWeightSelfLoop() {
+        for (Supplier<WeightedGraph<String>> implementation : IMPLEMENTATIONS) {
+            WeightedGraph<String> graph = implementation.get();
+            assertEquals(1, graph.addWeight("A", "A", 1));
+            assertEquals(2, graph.addWeight("A", "A", 1));
+            assertEquals(Set.of("A"), graph.vertices());
+            assertEquals(Map.of("A", 2), graph.targets("A"));
+        }
+    }
+
+    @Test
+    public void testAddWeightToZeroRemovesEdge() {
+        for (Supplier<WeightedGraph<String>> implementation : IMPLEMENTATIONS) {
+            WeightedGraph<String> graph = implementation.get();
+            graph.set("A", "B", 2);
+            assertEquals(0, graph.addWeight("A", "B", -2));
+            assertTrue(graph.targets("A").isEmpty());
+            assertTrue(graph.sources("B").isEmpty());
+            assertEquals(Set.of("A", "B"), graph.vertices());
+        }
+    }
+
+    @Test
+    public void testAddWeightZeroToMissingEdge() {
+        for (Supplier<WeightedGraph<String>> implementation : IMPLEMENTATIONS) {
+            WeightedGraph<String> graph = implementation.get();
+            assertEquals(0, graph.addWeight("A", "B", 0));
+            assertTrue(graph.vertices().isEmpty());
+        }
+    }
+
+    @Test
+    public void testAddWeightBelowZero() {
+        for (Supplier<WeightedGraph<String>> implementation : IMPLEMENTATIONS) {
+            WeightedGraph<String> graph = implementation.get();
+            graph.set("A", "B", 2);
+            try {
+                graph.addWeight("A", "B", -3);
+                fail("expected IllegalArgumentException from " + graph.getClass());
+            } catch (IllegalArgumentException e) {
+                assertEquals(Map.of("B", 2), graph.targets("A"));
+            }
+            try {
+                graph.addWeight("B", "C", -1);
+                fail("expected IllegalArgumentException from " + graph.getClass());
+            } catch (IllegalArgumentException e) {
+                assertEquals(Set.of("A", "B"), graph.vertices());
+            }
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAddWeightFrozen() {
+        FrozenGraph.of(new IndexedEdgesGraph<String>()).addWeight("A", "B", 1);
+    }
+
+    // Testing strategy for weight(), forEachTarget() and forEachSource():
+    // - vertex: missing, no edges, several edges, self loop
+    // - edge: missing, present
+    // - implementation: each mutable graph, adapter over a plain Graph,
+    //                   FrozenGraph and OffHeapGraph snapshots
+
+    // Fill graph with a small fixed set of edges, and return every graph that
+    // should then agree with it
+    private static List<WeightedGraph<String>> withEdges(WeightedGraph<String> graph) {
+        graph.add("D");
+        graph.set("A", "B", 1);
+        graph.set("A", "C", 200);
+        graph.set("B", "C", 3);
+        graph.set("C", "C", 4);
+        return List.of(graph, FrozenGraph.of(graph), OffHeapGraph.of(graph));
+    }
+
+    // Collect the edges a visitor sees into a map
+    private static Map<String, Integer> visit(
+            BiConsumer<String, ObjIntConsumer<String>> forEach,
+            String vertex) {
+        Map<String, Integer> seen = new HashMap<>();
+        forEach.accept(vertex, (neighbour, weight) -> assertNull(seen.put(neighbour, weight)));
+        return seen;
+    }
+
+    @Test
+    public void testWeight() {
+        for (Supplier<WeightedGraph<String>> implementation : IMPLEMENTATIONS) {
+            for (WeightedGraph<String> graph : withEdges(implementation.get())) {
+                assertEquals(1, graph.weight("A", "B"));
+                assertEquals(200, graph.weight("A", "C"));
+                assertEquals(4, graph.weight("C", "C"));
+                assertEquals(0, graph.weight("B", "A"));
+                assertEquals(0, graph.weight("A", "D"));
+                assertEquals(0, graph.weight("A", "X"));
+                assertEquals(0, graph.weight("X", "A"));
+            }
+        }
+    }
+
+    @Test
+    public void testForEachTarget() {
+        for (Supplier<WeightedGraph<String>> implementation : IMPLEMENTATIONS) {
+            for (WeightedGraph<String> graph : withEdges(implementation.get())) {
+                for (String vertex : List.of("A", "B", "C", "D", "X")) {
+                    assertEquals(graph.getClass() + " " + vertex,
+                            graph.targets(vertex), visit(graph::forEachTarget, vertex));
+                }
+                assertEquals(Map.of("B", 1, "C", 200), visit(graph::forEachTarget, "A"));
+            }
+        }
+    }
+
+    @Test
+    public void testForEachSource() {
+        for (Supplier<WeightedGraph<String>> implementation : IMPLEMENTATIONS) {
+            for (WeightedGraph<String> graph : withEdges(implementation.get())) {
+                for (String vertex : List.of("A", "B", "C", "D", "X")) {
+                    assertEquals(graph.getClass() + " " + vertex,
+                            graph.sources(vertex), visit(graph::forEachSource, vertex));
+                }
+                assertEquals(Map.of("A", 200, "B", 3, "C", 4), visit(graph::forEachSource, "C"));
+            }
+        }
+    }
+
+    // Testing strategy for remove():
+    // - vertex: with in- and out-neighbours, with an edge in both directions
+    //           to the same neighbour; removed, then added again; first,
+    //           middle and last added of many
+    // - implementation: each mutable graph, adapter over a plain Graph
+
+    @Test
+    public void testRemoveVertexWithNeighbours() {
+        for (Supplier<WeightedGraph<String>> implementation : IMPLEMENTATIONS) {
+            WeightedGraph<String> graph = implementation.get();
+            graph.set("A", "B", 1);
+            graph.set("B", "C", 2);
+            graph.set("C", "B", 3);
+            graph.set("A", "C", 4);
+            assertTrue(graph.remove("B"));
+            assertEquals(Set.of("A", "C"), graph.vertices());
+            assertEquals(Map.of("C", 4), graph.targets("A"));
+            assertEquals(Map.of("A", 4), graph.sources("C"));
+            assertEquals(Map.of(), graph.targets("C"));
+            assertFalse(graph.remove("B"));
+            assertTrue(graph.add("B"));
+            assertTrue(graph.sources("B").isEmpty());
+            assertEquals(0, graph.weight("A", "B"));
+        }
+    }
+
+    @Test
+    public void testRemoveManyVertices() {
+        for (Supplier<WeightedGraph<String>> implementation : IMPLEMENTATIONS) {
+            WeightedGraph<String> graph = implementation.get();
+            for (int i = 0; i < 10; i++) {
+                graph.set("v" + i, "v" + ((i + 1) % 10), i + 1);
+            }
+            for (int i : new int[] { 0, 5, 9, 3 }) {
+                assertTrue(graph.remove("v" + i));
+            }
+            assertEquals(Set.of("v1", "v2", "v4", "v6", "v7", "v8"), graph.vertices());
+            for (int i : new int[] { 1, 6, 7 }) {
+                assertEquals(Map.of("v" + (i + 1), i + 1), graph.targets("v" + i));
+            }
+            assertEquals(Map.of(), graph.targets("v2"));
+            assertEquals(Map.of(), graph.sources("v4"));
+            assertEquals(Map.of("v7", 8), graph.sources("v8"));
+        }
+    }
+
+    /**
+     * A Graph that only implements Graph, to test WeightedGraph.of().
+     */
+    private static class PlainGraph<L> implements Graph<L> {
+        private final Graph<L> graph;
+
+        PlainGraph(Graph<L> graph) {
+            this.graph = graph;
+        }
+
+        @Override public boolean add(L vertex) {
+            return graph.add(vertex);
+        }
+
+        @Override public int set(L source, L target, int weight) {
+            return graph.set(source, target, weight);
+        }
+
+        @Override public boolean remove(L vertex) {
+            return graph.remove(vertex);
+        }
+
+        @Override public Set<L> vertices() {
+            return graph.vertices();
+        }
+
+        @Override public Map<L, Integer> sources(L target) {
+            return graph.sources(target);
+        }
+
+        @Override public Map<L, Integer> targets(L source) {
+            return graph.targets(source);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class BridgeCacheTest {
+
+    // Testing strategy:
+    // - get: missing, cached bridge, cached absence, stale after invalidate()
+    // - put: current generation, generation from before invalidate()
+    // - eviction: least recently used entry goes first
+    // - maxEntries: 1, fewer than the segments, not a multiple of them, many
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testGetPut() {
+        BridgeCache cache = new BridgeCache(100);
+        assertNull(cache.get("a", "b"));
+        cache.put("a", "b", "x", cache.generation());
+        cache.put("a", "c", null, cache.generation());
+        assertEquals("x", cache.get("a", "b"));
+        assertEquals(BridgeCache.NO_BRIDGE, cache.get("a", "c"));
+        assertNull(cache.get("b", "a"));
+        CacheStats stats = cache.stats();
+        assertEquals(2, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(2, stats.size());
+    }
+
+    @Test
+    public void testInvalidate() {
+        BridgeCache cache = new BridgeCache(100);
+        long before = cache.generation();
+        cache.put("a", "b", "x", before);
+        cache.invalidate();
+        assertNull(cache.get("a", "b"));
+        cache.put("a", "b", "y", before);
+        assertNull(cache.get("a", "b"));
+        cache.put("a", "b", "z", cache.generation());
+        assertEquals("z", cache.get("a", "b"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        // 16 entries fit, one per segment, so one segment sees all the keys
+        BridgeCache cache = new BridgeCache(16);
+        long generation = cache.generation();
+        cache.put("a", "b", "x", generation);
+        cache.put("a", "b", "y", generation);
+        assertEquals(0, cache.stats().evictions());
+        for (int i = 0; i < 100; i++) {
+            cache.put("w" + i, "v", "x", generation);
+        }
+        CacheStats stats = cache.stats();
+        assertTrue(stats.evictions() > 0);
+        assertTrue(stats.size() <= 16);
+    }
+
+    @Test
+    public void testOneEntry() {
+        // one segment, so every put after the first evicts
+        BridgeCache cache = new BridgeCache(1);
+        long generation = cache.generation();
+        cache.put("a", "b", "x", generation);
+        cache.put("c", "d", "y", generation);
+        assertNull(cache.get("a", "b"));
+        assertEquals("y", cache.get("c", "d"));
+        CacheStats stats = cache.stats();
+        assertEquals(1, stats.evictions());
+        assertEquals(1, stats.size());
+    }
+
+    @Test
+    public void testSizeWithinMaxEntries() {
+        for (int maxEntries : new int[] { 1, 5, 16, 17, 33, 1000 }) {
+            BridgeCache cache = new BridgeCache(maxEntries);
+            long generation = cache.generation();
+            for (int i = 0; i < 5000; i++) {
+                cache.put("w" + i, "v" + (i % 7), "x", generation);
+            }
+            CacheStats stats = cache.stats();
+            assertEquals(maxEntries, stats.maxEntries());
+            assertTrue(maxEntries + ": " + stats.size(), stats.size() <= maxEntries);
+            // every segment fills up, so the capacities add up to maxEntries
+            assertEquals(maxEntries, stats.size());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositiveSize() {
+        new BridgeCache(0);
+    }
+}
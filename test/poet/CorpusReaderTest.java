@@ -0,0 +1,98 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class CorpusReaderTest {
+
+    // Testing strategy:
+    // - text: empty, only whitespace, leading/trailing whitespace, every \s
+    //   character, line breaks, non-ASCII
+    // - buffer: larger than the text, smaller than a word, boundary inside a
+    //   multi-byte character
+    // - invalid UTF-8
+    // - normalizer: words that normalize to nothing are still returned
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static List<String> words(byte[] text, int bufferSize) throws IOException {
+        CorpusReader reader = new CorpusReader(Channels.newChannel(new ByteArrayInputStream(text)),
+                                               (c, word) -> word.append(c), bufferSize);
+        List<String> words = new ArrayList<>();
+        WordSpan word = new WordSpan();
+        while (reader.next(word)) {
+            words.add(word.toString());
+        }
+        assertFalse(reader.next(word));
+        return words;
+    }
+
+    private static List<String> words(String text, int bufferSize) throws IOException {
+        return words(text.getBytes(StandardCharsets.UTF_8), bufferSize);
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        assertEquals(List.of(), words("", 16));
+        assertEquals(List.of(), words(" \t\r\n ", 16));
+    }
+
+    @Test
+    public void testWhitespace() throws IOException {
+        String text = "  a b\tc\nd\u000Be\ff\r\ng h  ";
+        List<String> expected = Arrays.asList(text.trim().split("\\s+"));
+        assertEquals(expected, words(text, 1 << 10));
+        assertEquals(expected, words(text, 4));
+    }
+
+    @Test
+    public void testLongWordsSmallBuffer() throws IOException {
+        assertEquals(List.of("abcdefghij", "klmnopqrstuvwxyz"), words("abcdefghij klmnopqrstuvwxyz", 4));
+    }
+
+    @Test
+    public void testMultiByteAcrossBuffers() throws IOException {
+        String text = "héllo wörld ünïcode 😀 end";
+        for (int size = 4; size < 12; size++) {
+            assertEquals(List.of("héllo", "wörld", "ünïcode", "😀", "end"), words(text, size));
+        }
+    }
+
+    @Test(expected = CharacterCodingException.class)
+    public void testInvalidUtf8() throws IOException {
+        words(new byte[] { 'a', ' ', (byte) 0xC3, ' ', 'b' }, 16);
+    }
+
+    @Test(expected = CharacterCodingException.class)
+    public void testTruncatedUtf8() throws IOException {
+        words(new byte[] { 'a', ' ', (byte) 0xC3 }, 16);
+    }
+
+    @Test
+    public void testNormalizedToNothing() throws IOException {
+        CorpusReader reader = new CorpusReader(
+                Channels.newChannel(new ByteArrayInputStream("A -- b!".getBytes(StandardCharsets.UTF_8))),
+                Normalizer.CORPUS);
+        WordSpan word = new WordSpan();
+        assertTrue(reader.next(word));
+        assertEquals("a", word.toString());
+        assertTrue(reader.next(word));
+        assertEquals(0, word.length());
+        assertTrue(reader.next(word));
+        assertEquals("b", word.toString());
+        assertFalse(reader.next(word));
+    }
+}
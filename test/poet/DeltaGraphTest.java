@@ -0,0 +1,100 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import graph.ConcurrentGraph;
+import graph.FrozenGraph;
+
+public class DeltaGraphTest {
+
+    // Testing strategy:
+    // - set: new edge between new words, changed weight, weight 0 removing
+    //   an edge of the base and of a layer, same weight, negative weight
+    // - changedOut/changedIn: word with no changed edges, with edges
+    //   changed out of or into it
+    // - reads: targets, sources, weight of edges from the base only, from
+    //   layers only, from both, and removed
+    // - seal and rebase: sealed graph unchanged by later changes, rebased
+    //   graph reads as before, rebase with a graph that was not sealed
+    // - freeze: unchanged graph, changed graph
+
+    private static FrozenGraph<String> base() {
+        ConcurrentGraph<String> graph = new ConcurrentGraph<>();
+        graph.set("a", "b", 2);
+        graph.set("b", "c", 3);
+        graph.set("a", "c", 1);
+        return FrozenGraph.of(graph);
+    }
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // Ensure assertions are enabled
+    }
+
+    @Test
+    public void testUnchanged() {
+        FrozenGraph<String> base = base();
+        DeltaGraph graph = new DeltaGraph(base);
+        assertFalse(graph.changed());
+        assertFalse(graph.changedOut("a"));
+        assertEquals(Map.of("b", 2, "c", 1), graph.targets("a"));
+        assertSame(base, graph.freeze());
+    }
+
+    @Test
+    public void testSet() {
+        DeltaGraph graph = new DeltaGraph(base());
+        assertEquals(2, graph.set("a", "b", 5));
+        assertEquals(0, graph.set("c", "d", 4));
+        assertEquals(1, graph.set("a", "c", 0));
+        assertEquals(5, graph.set("a", "b", 5));
+        assertEquals(3, graph.changes());
+
+        assertTrue(graph.changedOut("a"));
+        assertTrue(graph.changedIn("d"));
+        assertFalse(graph.changedIn("a"));
+        assertFalse(graph.changedOut("b"));
+
+        assertEquals(Set.of("a", "b", "c", "d"), graph.vertices());
+        assertEquals(Map.of("b", 5), graph.targets("a"));
+        assertEquals(Map.of("b", 3), graph.sources("c"));
+        assertEquals(Map.of("d", 4), graph.targets("c"));
+        assertEquals(0, graph.weight("a", "c"));
+        assertEquals(FrozenGraph.of(graph).toString(), graph.freeze().toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeWeight() {
+        new DeltaGraph(base()).set("a", "b", -1);
+    }
+
+    @Test
+    public void testSealAndRebase() {
+        DeltaGraph graph = new DeltaGraph(base());
+        graph.set("a", "d", 1);
+        DeltaGraph sealed = graph.seal();
+        graph.set("d", "c", 2);
+        graph.set("a", "d", 0);
+        assertEquals(Map.of("b", 2, "c", 1, "d", 1), sealed.targets("a"));
+        assertEquals(Map.of(), sealed.targets("d"));
+
+        DeltaGraph rebased = graph.rebase(sealed, sealed.freeze());
+        assertEquals(Map.of("b", 2, "c", 1), rebased.targets("a"));
+        assertEquals(Map.of("a", 1, "b", 3, "d", 2), rebased.sources("c"));
+        assertEquals(2, rebased.changes());
+        assertFalse(rebased.changedOut("b"));
+        assertTrue(rebased.changedOut("d"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRebaseNotSealed() {
+        DeltaGraph graph = new DeltaGraph(base());
+        DeltaGraph other = new DeltaGraph(base());
+        graph.rebase(other.seal(), base());
+    }
+}
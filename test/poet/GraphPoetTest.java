@@ -4,8 +4,26 @@ import static org.junit.Assert.*;
 
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import graph.FrozenGraph;
+import graph.Graph;
+import graph.IntGraph;
 
 public class GraphPoetTest {
 
@@ -13,6 +31,28 @@ public class GraphPoetTest {
     // - Corpus variations: small, single-word, large
     // - Input types: empty, no bridges, one bridge, multiple bridges, special characters
     // - Case sensitivity, punctuation handling, and edge cases
+    // - Bridge index: no budget, budget for some first words, budget for all;
+    //   built graph and loaded model; ties between bridges; budgets from 0
+    //   up to the whole index, never exceeded
+    // - Models: saved over a loaded model; corrupt offsets and a full hash
+    //   table in an unverified model; words of 1 to 4 UTF-8 bytes per
+    //   character, looked up and decoded more often than the word cache holds
+    // - Bridge search: both words' neighbour lists long, one much shorter
+    //   than the other on either side
+    // - Bridge cache: hits, misses, negative results, eviction; no cache
+    // - Corpus reading: bigrams across line breaks, broken by punctuation-only
+    //   words
+    // - Parallel reading: one range, ranges smaller than a word, ranges
+    //   of whitespace only; same graph as sequential reading
+    // - Updates: append text and file, retract appended and original text,
+    //   retract text not in the corpus; cache, index, save after updates;
+    //   over an index and a loaded model; before and after compaction, run
+    //   on demand and in the background
+    // - Batches: empty, fewer inputs than workers, many; pools of 1 and
+    //   several workers; same poems as poem(), in order
+    // - Streaming: from a Reader and a channel; no words, one word, many;
+    //   control characters at the ends of words and of the input; input
+    //   arriving a character at a time; unchanged and updated graph
 
     @Test(expected = AssertionError.class)
     public void testAssertionsEnabled() {
@@ -74,4 +114,495 @@ public class GraphPoetTest {
         String input = "Hello";
         assertEquals("Hello", poet.poem(input));
     }
+
+    @Test
+    public void testIntGraph() throws IOException {
+        File corpus = new File("test/poet/complex-corpus.txt");
+        GraphPoet poet = new GraphPoet(corpus, new IntGraph<String>().asGraph());
+        assertEquals("Hello beautiful world", poet.poem("Hello world"));
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/complex-corpus.txt"));
+        File model = File.createTempFile("poet", ".model");
+        model.deleteOnExit();
+        poet.save(model);
+        GraphPoet loaded = GraphPoet.load(model, true);
+        assertEquals("Hello beautiful world", loaded.poem("Hello world"));
+        assertEquals(poet.poem("the world of sun"), loaded.poem("the world of sun"));
+        assertEquals(poet.toString(), loaded.toString());
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadNotAModel() throws IOException {
+        GraphPoet.load(new File("test/poet/complex-corpus.txt"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadBadChecksum() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/complex-corpus.txt"));
+        File model = File.createTempFile("poet", ".model");
+        model.deleteOnExit();
+        poet.save(model);
+        try (RandomAccessFile file = new RandomAccessFile(model, "rw")) {
+            file.seek(file.length() - 12);
+            file.write(file.read() ^ 1);
+        }
+        GraphPoet.load(model, true);
+    }
+
+    @Test
+    public void testSaveOverLoadedModel() throws IOException {
+        File model = File.createTempFile("poet", ".model");
+        model.deleteOnExit();
+        new GraphPoet(new File("test/poet/complex-corpus.txt")).save(model);
+        GraphPoet loaded = GraphPoet.load(model);
+        new GraphPoet(corpus("hello there world\n")).save(model);
+        assertEquals("Hello beautiful world", loaded.poem("Hello world"));
+        assertEquals("Hello there world", GraphPoet.load(model, true).poem("Hello world"));
+        // no temporary file is left behind
+        assertEquals(0, model.getParentFile().listFiles(
+                (dir, name) -> name.startsWith(model.getName()) && !name.equals(model.getName())).length);
+    }
+
+    @Test
+    public void testModelWords() throws IOException {
+        Graph<String> graph = new IntGraph<String>().asGraph();
+        String[] labels = { "plain", "caf\u00e9", "\u20ac5", "\ud83d\ude00smile", "" };
+        for (int i = 0; i < labels.length; i++) {
+            graph.set(labels[i], labels[(i + 1) % labels.length], i + 1);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            graph.set("w" + i, "plain", 1);
+        }
+        File model = File.createTempFile("poet", ".model");
+        model.deleteOnExit();
+        ModelFile.write(graph, model.toPath());
+        MappedGraph mapped = ModelFile.open(model.toPath(), true);
+        for (int round = 0; round < 2; round++) {
+            for (String label : graph.vertices()) {
+                int id = mapped.id(label);
+                assertTrue(label, id >= 0);
+                assertEquals(label, mapped.label(id));
+            }
+        }
+        for (String missing : new String[] { "plai", "plainer", "cafe", "caf\u00e8", "\ud83d", "\ud83dsmile", "w10000" }) {
+            assertEquals(missing, -1, mapped.id(missing));
+        }
+        assertEquals(Map.of("\u20ac5", 2), mapped.targets("caf\u00e9"));
+    }
+
+    // Save a poet of corpus text, and overwrite the int at a byte offset of
+    // its model file
+    private static File corruptModel(String text, long offset, int value) throws IOException {
+        File model = File.createTempFile("poet", ".model");
+        model.deleteOnExit();
+        new GraphPoet(corpus(text)).save(model);
+        try (RandomAccessFile file = new RandomAccessFile(model, "rw")) {
+            file.seek(offset);
+            file.writeInt(Integer.reverseBytes(value));
+        }
+        return model;
+    }
+
+    @Test
+    public void testLoadCorruptOffsets() throws IOException {
+        // header, then vocabulary offsets: word 1 starts far past the words
+        File model = corruptModel("hello there world\n", 4 * ModelFile.HEADER_INTS + 4, 1 << 20);
+        GraphPoet loaded = GraphPoet.load(model);
+        try {
+            loaded.poem("hello world");
+            fail("expected UncheckedIOException");
+        } catch (UncheckedIOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("corrupt"));
+        }
+        try {
+            GraphPoet.load(model, true);
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("checksum"));
+        }
+    }
+
+    @Test
+    public void testLoadFullHashTable() throws IOException {
+        // two words: fill every slot of the table with the first
+        File model = File.createTempFile("poet", ".model");
+        model.deleteOnExit();
+        new GraphPoet(corpus("hello world\n")).save(model);
+        long tableAt = 4 * (ModelFile.HEADER_INTS + 3);
+        try (RandomAccessFile file = new RandomAccessFile(model, "rw")) {
+            file.seek(16);
+            int tableSize = Integer.reverseBytes(file.readInt());
+            for (int slot = 0; slot < tableSize; slot++) {
+                file.seek(tableAt + 4 * slot);
+                file.writeInt(Integer.reverseBytes(1));
+            }
+        }
+        GraphPoet loaded = GraphPoet.load(model);
+        assertEquals("hello", loaded.poem("hello"));
+        assertEquals("unknown words", loaded.poem("unknown words"));
+    }
+
+    // Write a temporary corpus file
+    private static File corpus(String text) throws IOException {
+        File corpus = File.createTempFile("corpus", ".txt");
+        corpus.deleteOnExit();
+        Files.writeString(corpus.toPath(), text);
+        return corpus;
+    }
+
+    @Test
+    public void testBridgeIndexSamePoems() throws IOException {
+        File corpus = corpus("the cat sat on the mat and the dog sat on the cat\n"
+                             + "a dog and a cat ran on a mat to the dog house\n"
+                             + "on the mat sat the cat on the dog\n");
+        GraphPoet poet = new GraphPoet(corpus);
+        String input = "the sat the on a on cat the dog mat sat house a the";
+        String expected = poet.poem(input);
+        for (long maxBytes : new long[] { 0, BridgeIndex.BYTES_PER_SLOT * 16, Long.MAX_VALUE }) {
+            assertEquals("budget " + maxBytes, expected, poet.withBridgeIndex(maxBytes).poem(input));
+        }
+        assertEquals(poet.poem("Hello unknown world"),
+                     poet.withBridgeIndex(Long.MAX_VALUE).poem("Hello unknown world"));
+    }
+
+    @Test
+    public void testBridgeIndexWithinBudget() throws IOException {
+        Graph<String> graph = Graph.empty();
+        String[] words = Files.readString(new File("test/poet/complex-corpus.txt").toPath()).toLowerCase().split("\\s+");
+        for (int i = 0; i + 1 < words.length; i++) {
+            graph.set(words[i], words[i + 1], 1);
+        }
+        FrozenGraph<String> frozen = FrozenGraph.of(graph);
+        long all = BridgeIndex.build(frozen, Long.MAX_VALUE).bytes();
+        assertTrue(all > 0);
+        int previous = -1;
+        for (long maxBytes = 0; maxBytes <= all + 1; maxBytes += 1 + maxBytes / 4) {
+            BridgeIndex index = BridgeIndex.build(frozen, maxBytes);
+            assertTrue("budget " + maxBytes + ": " + index.bytes(), index.bytes() <= maxBytes);
+            assertTrue("budget " + maxBytes, index.size() >= previous);
+            previous = index.size();
+        }
+        assertEquals(BridgeIndex.build(frozen, Long.MAX_VALUE).size(), BridgeIndex.build(frozen, all).size());
+        assertEquals(0, BridgeIndex.build(frozen, 0).bytes());
+    }
+
+    @Test
+    public void testBridgeIndexTies() throws IOException {
+        GraphPoet poet = new GraphPoet(corpus("a y b\na x b\n")).withBridgeIndex(Long.MAX_VALUE);
+        assertEquals("a x b", poet.poem("a b"));
+    }
+
+    @Test
+    public void testBridgeIndexLoaded() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/complex-corpus.txt"));
+        File model = File.createTempFile("poet", ".model");
+        model.deleteOnExit();
+        poet.save(model);
+        GraphPoet indexed = GraphPoet.load(model).withBridgeIndex(Long.MAX_VALUE);
+        assertEquals("Hello beautiful world", indexed.poem("Hello world"));
+        assertEquals(poet.poem("the world of sun"), indexed.poem("the world of sun"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBridgeIndexNegativeBudget() throws IOException {
+        new GraphPoet(new File("test/poet/complex-corpus.txt")).withBridgeIndex(-1);
+    }
+
+    @Test
+    public void testBridgeHubWords() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 100; i < 300; i++) {
+            text.append("the w").append(i).append(" end\n");
+        }
+        text.append("the w250 end\nthe w250 end\n");
+        text.append("w177 stop\nstart w133\n");
+        GraphPoet poet = new GraphPoet(corpus(text.toString()));
+        assertEquals("the w250 end", poet.poem("the end"));
+        assertEquals("the w177 stop", poet.poem("the stop"));
+        assertEquals("start w133 end", poet.poem("start end"));
+        assertEquals("start stop", poet.poem("start stop"));
+    }
+
+    @Test
+    public void testBridgeCache() throws IOException {
+        GraphPoet plain = new GraphPoet(new File("test/poet/complex-corpus.txt"));
+        GraphPoet poet = plain.withBridgeCache(100);
+        assertEquals("Hello beautiful world", poet.poem("Hello world"));
+        assertEquals("Hello beautiful world", poet.poem("Hello world"));
+        assertEquals("sun world", poet.poem("sun world"));
+        assertEquals("sun world", poet.poem("sun world"));
+        CacheStats stats = poet.cacheStats();
+        assertEquals(2, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(0, stats.evictions());
+        assertEquals(2, stats.size());
+        assertEquals(0.5, stats.hitRate(), 0);
+        assertEquals(0, plain.cacheStats().hits() + plain.cacheStats().misses());
+    }
+
+    @Test
+    public void testBridgeCacheEviction() throws IOException {
+        GraphPoet plain = new GraphPoet(new File("test/poet/complex-corpus.txt"));
+        GraphPoet poet = plain.withBridgeCache(1);
+        String input = "the world of sun hello beautiful wonders the sun world";
+        assertEquals(plain.poem(input), poet.poem(input));
+        assertEquals(plain.poem(input), poet.poem(input));
+        CacheStats stats = poet.cacheStats();
+        assertTrue(stats.evictions() > 0);
+        assertTrue(stats.size() <= stats.maxEntries());
+        assertEquals(1, stats.maxEntries());
+    }
+
+    @Test
+    public void testBigramsAcrossLines() throws IOException {
+        GraphPoet poet = new GraphPoet(corpus("alpha beta\ngamma\r\ndelta -- epsilon\n"));
+        assertEquals("alpha beta gamma", poet.poem("alpha gamma"));
+        assertEquals("beta gamma delta", poet.poem("beta delta"));
+        assertEquals("delta epsilon", poet.poem("delta epsilon"));
+    }
+
+    @Test
+    public void testParallelSameAsSequential() throws IOException {
+        StringBuilder text = new StringBuilder("  \n\n");
+        for (int i = 0; i < 500; i++) {
+            text.append("w").append(i % 37).append(i % 5 == 0 ? ",\n" : " ");
+            text.append(i % 11 == 0 ? "-- " : "").append(i % 13 == 0 ? "\t\t   \r\n" : "");
+        }
+        File generated = corpus(text.toString());
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            for (File corpus : new File[] { generated, new File("test/poet/complex-corpus.txt"),
+                                            new File("test/poet/one-word-corpus.txt"), corpus("") }) {
+                String expected = new GraphPoet(corpus).toString();
+                for (long chunkBytes : new long[] { 1, 2, 5, 16, 100, 1 << 20 }) {
+                    assertEquals(corpus + " in " + chunkBytes, expected,
+                                 new GraphPoet(corpus, pool, chunkBytes).toString());
+                }
+                assertEquals(expected, new GraphPoet(corpus, pool).toString());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static final String DOCUMENT_A = "the cat sat on the mat and the dog sat on the cat";
+    private static final String DOCUMENT_B = "a dog and a cat ran on a mat to the dog house. The cat sat!";
+
+    // Assert that two poets write the same poem for every pair of words
+    private static void assertSamePoems(GraphPoet expected, GraphPoet actual) {
+        String[] words = (DOCUMENT_A + " " + DOCUMENT_B + " unknown").split(" ");
+        for (String w1 : words) {
+            for (String w2 : words) {
+                assertEquals(expected.poem(w1 + " " + w2), actual.poem(w1 + " " + w2));
+            }
+        }
+    }
+
+    @Test
+    public void testAppend() throws IOException {
+        GraphPoet poet = new GraphPoet(corpus(DOCUMENT_A));
+        poet.append(DOCUMENT_B);
+        // a document does not form a bigram with the end of the corpus
+        assertSamePoems(new GraphPoet(corpus(DOCUMENT_A + "\n--\n" + DOCUMENT_B)), poet);
+
+        GraphPoet fromFile = new GraphPoet(corpus(DOCUMENT_A));
+        fromFile.append(corpus(DOCUMENT_B));
+        assertSamePoems(poet, fromFile);
+
+        GraphPoet ties = new GraphPoet(corpus("a y b"));
+        ties.append("a x b");
+        assertEquals("a x b", ties.poem("a b"));
+    }
+
+    @Test
+    public void testRetract() throws IOException {
+        GraphPoet poet = new GraphPoet(corpus(DOCUMENT_A));
+        poet.append(DOCUMENT_B);
+        poet.retract(DOCUMENT_B);
+        assertSamePoems(new GraphPoet(corpus(DOCUMENT_A)), poet);
+
+        GraphPoet both = new GraphPoet(corpus(DOCUMENT_A + "\n--\n" + DOCUMENT_B));
+        both.retract(corpus(DOCUMENT_A));
+        assertSamePoems(new GraphPoet(corpus(DOCUMENT_B)), both);
+    }
+
+    @Test
+    public void testRetractNotInCorpus() throws IOException {
+        GraphPoet poet = new GraphPoet(corpus(DOCUMENT_A));
+        try {
+            poet.retract(DOCUMENT_A + " " + DOCUMENT_A);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertSamePoems(new GraphPoet(corpus(DOCUMENT_A)), poet);
+        }
+    }
+
+    @Test
+    public void testUpdateInvalidatesCache() throws IOException {
+        GraphPoet poet = new GraphPoet(corpus("a x b")).withBridgeCache(100);
+        assertEquals("a x b", poet.poem("a b"));
+        poet.append("a y b a y b");
+        assertEquals("a y b", poet.poem("a b"));
+        poet.retract("a y b a y b");
+        assertEquals("a x b", poet.poem("a b"));
+        assertEquals(3, poet.cacheStats().misses());
+    }
+
+    @Test
+    public void testDerivedPoetsAfterUpdate() throws IOException {
+        GraphPoet poet = new GraphPoet(corpus(DOCUMENT_A));
+        poet.append(DOCUMENT_B);
+        GraphPoet expected = new GraphPoet(corpus(DOCUMENT_A + "\n--\n" + DOCUMENT_B));
+        assertSamePoems(expected, poet.withBridgeIndex(Long.MAX_VALUE));
+        assertSamePoems(expected, poet.withBridgeCache(10));
+        File model = File.createTempFile("poet", ".model");
+        model.deleteOnExit();
+        poet.save(model);
+        assertSamePoems(expected, GraphPoet.load(model, true));
+        // updates to the original do not change derived poets
+        GraphPoet derived = poet.withBridgeCache(10);
+        poet.retract(DOCUMENT_B);
+        assertSamePoems(expected, derived);
+    }
+
+    @Test
+    public void testUpdatesOverIndexAndCompaction() throws IOException {
+        GraphPoet poet = new GraphPoet(corpus(DOCUMENT_A)).withBridgeIndex(Long.MAX_VALUE).withBridgeCache(10);
+        poet.append(DOCUMENT_B);
+        GraphPoet expected = new GraphPoet(corpus(DOCUMENT_A + "\n--\n" + DOCUMENT_B));
+        assertSamePoems(expected, poet);
+        poet.compact();
+        assertSamePoems(expected, poet);
+        poet.retract(DOCUMENT_B);
+        assertSamePoems(new GraphPoet(corpus(DOCUMENT_A)), poet);
+        poet.compact();
+        assertSamePoems(new GraphPoet(corpus(DOCUMENT_A)), poet);
+    }
+
+    @Test
+    public void testUpdateLoadedModel() throws IOException {
+        File model = File.createTempFile("poet", ".model");
+        model.deleteOnExit();
+        new GraphPoet(corpus(DOCUMENT_A)).save(model);
+        GraphPoet poet = GraphPoet.load(model, true);
+        poet.append(DOCUMENT_B);
+        GraphPoet expected = new GraphPoet(corpus(DOCUMENT_A + "\n--\n" + DOCUMENT_B));
+        assertSamePoems(expected, poet);
+        poet.compact();
+        assertSamePoems(expected, poet);
+        poet.retract(DOCUMENT_A);
+        assertSamePoems(new GraphPoet(corpus(DOCUMENT_B)), poet);
+    }
+
+    @Test
+    public void testBackgroundCompaction() throws IOException {
+        // enough new bigrams to start compacting them in the background
+        StringBuilder words = new StringBuilder();
+        for (int i = 0; i < 70_000; i++) {
+            words.append('w').append(i).append(' ');
+        }
+        GraphPoet poet = new GraphPoet(corpus(DOCUMENT_A));
+        poet.append(words.toString());
+        poet.append(DOCUMENT_B);
+        poet.retract(DOCUMENT_A);
+        GraphPoet expected = new GraphPoet(corpus(words + "\n--\n" + DOCUMENT_B));
+        assertSamePoems(expected, poet);
+        assertEquals("w1 w2 w3", poet.poem("w1 w3"));
+        poet.compact();
+        assertSamePoems(expected, poet);
+        assertEquals("w69997 w69998 w69999", poet.poem("w69997 w69999"));
+    }
+
+    @Test
+    public void testPoemsSameAsPoem() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/complex-corpus.txt"));
+        assertEquals(List.of(), poet.poems(List.of()));
+
+        List<String> inputs = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        String[] words = { "seek", "to", "explore", "new", "worlds", "and", "civilizations", "STRANGE" };
+        for (int i = 0; i < 500; i++) {
+            String input = words[i % words.length] + " " + words[(i * 7 + 3) % words.length]
+                           + (i % 3 == 0 ? "" : " " + words[(i * 5) % words.length]);
+            inputs.add(input);
+            expected.add(poet.poem(input));
+        }
+        ForkJoinPool[] pools = { new ForkJoinPool(1), new ForkJoinPool(4) };
+        try {
+            for (ForkJoinPool pool : pools) {
+                assertEquals(expected, poet.poems(inputs, pool));
+                assertEquals(expected.subList(0, 3), poet.poems(inputs.subList(0, 3), pool));
+            }
+        } finally {
+            for (ForkJoinPool pool : pools) {
+                pool.shutdown();
+            }
+        }
+        assertEquals(expected, poet.poems(inputs));
+        assertEquals(expected, poet.withBridgeCache(16).poems(inputs));
+    }
+
+    private static String streamedPoem(GraphPoet poet, Reader input) throws IOException {
+        StringWriter output = new StringWriter();
+        poet.poem(input, output);
+        return output.toString();
+    }
+
+    @Test
+    public void testStreamSameAsPoem() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/complex-corpus.txt"));
+        String[] inputs = {
+            "seek", "  Seek  ", "seek to explore new worlds", "\tseek\nto explore,\r\nnew   worlds!\n",
+            "\u0001 seek \u0002to\u0003 explore\u0004 \u0005", "\u0001\u0002 \u0003", "-- seek -- new --",
+            "Seek out strange new life and new civilizations, to boldly go",
+            "Hello, World! the Sun\u0006", "hello world of the sun \t",
+        };
+        for (String input : inputs) {
+            String expected = poet.poem(input);
+            assertEquals(input, expected, streamedPoem(poet, new StringReader(input)));
+            ReadableByteChannel channel = Channels.newChannel(
+                    new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+            StringWriter output = new StringWriter();
+            poet.poem(channel, output);
+            assertEquals(input, expected, output.toString());
+        }
+        for (String input : new String[] { "", "   ", "\n\t" }) {
+            assertEquals("", streamedPoem(poet, new StringReader(input)));
+        }
+
+        poet.append("explore the galaxy");
+        assertEquals(poet.poem("seek explore galaxy"), streamedPoem(poet, new StringReader("seek explore galaxy")));
+    }
+
+    @Test
+    public void testStreamWritesAsItReads() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/complex-corpus.txt"));
+        String input = "seek to explore new worlds and new civilizations hello world ";
+        StringWriter output = new StringWriter();
+        // a Reader that hands out one character per read, checking what has
+        // been written before the last ones
+        Reader slow = new Reader() {
+            private int next = 0;
+
+            @Override public int read(char[] buffer, int offset, int length) {
+                if (next == input.length()) {
+                    return -1;
+                }
+                if (next == input.indexOf(" and")) {
+                    assertTrue(output.toString(), output.toString().startsWith("seek"));
+                    assertTrue(output.toString(), output.toString().endsWith("new"));
+                }
+                buffer[offset] = input.charAt(next++);
+                return 1;
+            }
+
+            @Override public void close() {
+            }
+        };
+        poet.poem(slow, output);
+        assertEquals(poet.poem(input), output.toString());
+    }
 }
@@ -0,0 +1,70 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    // Testing strategy:
+    // - recorded: nothing, one latency, many; 0, small, huge, negative
+    // - percentile: 0, 0.5, 0.99, 1; outside [0, 1]
+    // - accuracy: within 6.25% above the true percentile, never above max
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.max());
+        assertEquals(0, histogram.percentile(0.5));
+    }
+
+    @Test
+    public void testOneLatency() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(12_345);
+        assertEquals(1, histogram.count());
+        assertEquals(12_345, histogram.max());
+        for (double quantile : new double[] { 0, 0.5, 0.999, 1 }) {
+            assertEquals(12_345, histogram.percentile(quantile));
+        }
+    }
+
+    @Test
+    public void testExtremes() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(0);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(3, histogram.count());
+        assertEquals(0, histogram.percentile(0.5));
+        assertEquals(Long.MAX_VALUE, histogram.percentile(1));
+        assertEquals(Long.MAX_VALUE, histogram.max());
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1, 2, ..., 100000 microseconds, in nanoseconds
+        for (long i = 100_000; i >= 1; i--) {
+            histogram.record(i * 1000);
+        }
+        assertEquals(100_000, histogram.count());
+        for (double quantile : new double[] { 0.01, 0.5, 0.9, 0.99, 0.999 }) {
+            long exact = Math.round(quantile * 100_000) * 1000;
+            long reported = histogram.percentile(quantile);
+            assertTrue(quantile + ": " + reported, reported >= exact && reported <= exact + exact / 16);
+        }
+        assertEquals(100_000_000, histogram.percentile(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadQuantile() {
+        new LatencyHistogram().percentile(1.5);
+    }
+}
@@ -0,0 +1,175 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+public class PoemServerTest {
+
+    // Testing strategy:
+    // - poem: GET with input, POST body; empty input; missing input
+    // - poems: no lines, many lines in order; wrong method
+    // - corpus: named, left out with one poet and with several, unknown;
+    //   no poets, empty name
+    // - health, metrics: counts after successful and failed requests
+    // - many concurrent requests
+    // - paths that are not endpoints
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    private static GraphPoet poet(String corpus) throws IOException {
+        return new GraphPoet(new File("test/poet/" + corpus));
+    }
+
+    private static PoemServer server(String... corpora) throws IOException {
+        Map<String, GraphPoet> poets = new LinkedHashMap<>();
+        for (String corpus : corpora) {
+            poets.put(corpus.replace(".txt", ""), poet(corpus));
+        }
+        PoemServer server = new PoemServer(poets, 0, ForkJoinPool.commonPool());
+        server.start();
+        return server;
+    }
+
+    private static HttpResponse<String> get(PoemServer server, String pathAndQuery)
+            throws IOException, InterruptedException {
+        return CLIENT.send(HttpRequest.newBuilder(uri(server, pathAndQuery)).build(),
+                           HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpResponse<String> post(PoemServer server, String pathAndQuery, String body)
+            throws IOException, InterruptedException {
+        return CLIENT.send(HttpRequest.newBuilder(uri(server, pathAndQuery))
+                                      .POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+                           HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static URI uri(PoemServer server, String pathAndQuery) {
+        return URI.create("http://localhost:" + server.port() + pathAndQuery);
+    }
+
+    private static String encode(String text) {
+        return URLEncoder.encode(text, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testPoem() throws Exception {
+        PoemServer server = server("complex-corpus.txt");
+        try {
+            GraphPoet poet = poet("complex-corpus.txt");
+            String input = "Hello, World! the sun";
+            HttpResponse<String> response = get(server, "/poem?input=" + encode(input));
+            assertEquals(200, response.statusCode());
+            assertEquals(poet.poem(input), response.body());
+            assertEquals(poet.poem(input), post(server, "/poem", input + "\n").body());
+            assertEquals(poet.poem(input),
+                         get(server, "/poem?corpus=complex-corpus&input=" + encode(input)).body());
+            assertEquals("", get(server, "/poem?input=").body());
+            assertEquals(400, get(server, "/poem").statusCode());
+            assertEquals(404, get(server, "/poem?corpus=nope&input=a").statusCode());
+            assertEquals(404, get(server, "/poemz?input=a").statusCode());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testPoems() throws Exception {
+        PoemServer server = server("complex-corpus.txt", "simple-corpus.txt");
+        try {
+            GraphPoet poet = poet("simple-corpus.txt");
+            List<String> inputs = List.of("Test system", "", "hello world", "Test the system.", "  a  b ");
+            StringBuilder expected = new StringBuilder();
+            for (String input : inputs) {
+                expected.append(poet.poem(input)).append('\n');
+            }
+            HttpResponse<String> response = post(server, "/poems?corpus=simple-corpus",
+                                                  String.join("\n", inputs) + "\n");
+            assertEquals(200, response.statusCode());
+            assertEquals(expected.toString(), response.body());
+            assertEquals("", post(server, "/poems?corpus=simple-corpus", "").body());
+            assertEquals(400, post(server, "/poems", "Test system\n").statusCode());
+            assertEquals(405, get(server, "/poems?corpus=simple-corpus").statusCode());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testHealthAndMetrics() throws Exception {
+        PoemServer server = server("complex-corpus.txt", "simple-corpus.txt");
+        try {
+            HttpResponse<String> health = get(server, "/health");
+            assertEquals(200, health.statusCode());
+            assertEquals("ok complex-corpus simple-corpus\n", health.body());
+
+            get(server, "/poem?corpus=simple-corpus&input=" + encode("Test system"));
+            get(server, "/poem?corpus=simple-corpus&input=" + encode("Test system"));
+            get(server, "/poem?input=a");
+            String metrics = get(server, "/metrics").body();
+            assertTrue(metrics, metrics.contains("poem_requests 3\n"));
+            assertTrue(metrics, metrics.contains("poem_errors 1\n"));
+            assertTrue(metrics, metrics.contains("health_requests 1\n"));
+            assertTrue(metrics, metrics.contains("poems_requests 0\n"));
+            for (String name : new String[] { "p50", "p99", "p999", "max" }) {
+                assertTrue(metrics, metrics.matches("(?s).*\npoem_latency_" + name + "_us [0-9]+\n.*"));
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testConcurrentRequests() throws Exception {
+        PoemServer server = server("complex-corpus.txt");
+        try {
+            GraphPoet poet = poet("complex-corpus.txt");
+            String[] words = { "hello", "world", "the", "sun", "of", "wonders", "beautiful" };
+            List<String> inputs = new ArrayList<>();
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String input = words[i % words.length] + " " + words[(i * 3 + 1) % words.length];
+                inputs.add(input);
+                responses.add(CLIENT.sendAsync(HttpRequest.newBuilder(uri(server, "/poem?input=" + encode(input)))
+                                                          .build(),
+                                               HttpResponse.BodyHandlers.ofString()));
+            }
+            for (int i = 0; i < inputs.size(); i++) {
+                assertEquals(poet.poem(inputs.get(i)), responses.get(i).get().body());
+            }
+            assertTrue(get(server, "/metrics").body().contains("poem_requests 200\n"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoPoets() throws IOException {
+        new PoemServer(Map.of(), 0, ForkJoinPool.commonPool());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyName() throws IOException {
+        new PoemServer(Map.of("", poet("small-corpus.txt")), 0, ForkJoinPool.commonPool());
+    }
+}
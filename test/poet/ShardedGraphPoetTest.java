@@ -0,0 +1,111 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ForkJoinPool;
+
+public class ShardedGraphPoetTest {
+
+    // Testing strategy:
+    // - Shards: 1, a few, more shards than words; fewer than 1
+    // - Bridge search: on the calling thread, split between tasks
+    // - Corpus: test corpora, one word, empty; a hub word with long neighbour
+    //   lists next to rare words
+    // - Bridges: none, one, ties between shards and within one shard
+    // - Same poems as GraphPoet for every combination
+
+    private static final String[] INPUTS = {
+        "", "   ", "hello", "Test system", "the end", "the stop", "start end", "start stop",
+        "the sat the on a on cat the dog mat sat house a the", "Hello, WORLD! hello world",
+        "a b", "seek to explore new worlds and new civilizations",
+    };
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // Ensure assertions are enabled
+    }
+
+    private static File corpus(String text) throws IOException {
+        File corpus = File.createTempFile("corpus", ".txt");
+        corpus.deleteOnExit();
+        Files.writeString(corpus.toPath(), text);
+        return corpus;
+    }
+
+    // A corpus where "the" and "end" have hundreds of neighbours, and "start"
+    // and "stop" a few
+    private static File hubCorpus() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            text.append("the w").append(i).append(" end\n");
+        }
+        text.append("the w250 end the w250 end\nstart w133 end start w177 the w177 stop\n");
+        return corpus(text.toString());
+    }
+
+    private static void assertSamePoems(File corpus, ShardedGraphPoet sharded) throws IOException {
+        GraphPoet poet = new GraphPoet(corpus);
+        for (String input : INPUTS) {
+            assertEquals(sharded.shards() + " shards: " + input, poet.poem(input), sharded.poem(input));
+        }
+    }
+
+    @Test
+    public void testSamePoemsAsGraphPoet() throws IOException {
+        File[] corpora = {
+            new File("test/poet/complex-corpus.txt"), new File("test/poet/simple-corpus.txt"),
+            new File("test/poet/mixed-case-corpus.txt"), new File("test/poet/punctuation-corpus.txt"),
+            new File("test/poet/one-word-corpus.txt"), corpus(""), hubCorpus(),
+            corpus("the cat sat on the mat and the dog sat on the cat\n"
+                   + "a dog and a cat ran on a mat to the dog house\n"),
+        };
+        for (File corpus : corpora) {
+            for (int shards : new int[] { 1, 2, 3, 8, 64 }) {
+                assertSamePoems(corpus, new ShardedGraphPoet(corpus, shards));
+            }
+        }
+    }
+
+    @Test
+    public void testParallelSearch() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            for (File corpus : new File[] { hubCorpus(), new File("test/poet/complex-corpus.txt") }) {
+                for (int shards : new int[] { 1, 2, 5 }) {
+                    assertSamePoems(corpus, new ShardedGraphPoet(corpus, shards, pool, 0));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testTies() throws IOException {
+        // bridges of equal weight, whatever shards they fall in
+        File corpus = corpus("a y b\na x b\na z b\na w c\n");
+        for (int shards : new int[] { 1, 2, 3, 4, 7 }) {
+            ShardedGraphPoet poet = new ShardedGraphPoet(corpus, shards);
+            assertEquals(shards + " shards", "a x b", poet.poem("a b"));
+            assertEquals(shards + " shards", "a w c", poet.poem("a c"));
+        }
+    }
+
+    @Test
+    public void testToString() throws IOException {
+        ShardedGraphPoet poet = new ShardedGraphPoet(new File("test/poet/small-corpus.txt"), 2);
+        assertEquals(2, poet.shards());
+        assertTrue(poet.toString().contains("hello"));
+        assertTrue(poet.toString().contains("world"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoShards() throws IOException {
+        new ShardedGraphPoet(new File("test/poet/small-corpus.txt"), 0);
+    }
+}
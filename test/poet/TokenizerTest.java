@@ -0,0 +1,89 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+public class TokenizerTest {
+
+    // Testing strategy:
+    // - text: empty, whitespace only, leading/trailing whitespace, every \s
+    //   character, control characters that are not \s
+    // - normalizer: CORPUS and INPUT, on ASCII, non-ASCII, characters that
+    //   lowercase to ASCII; compared with the regex and toLowerCase()
+    // - vocabulary: ids by span and by String, growth past its first table
+
+    @Test(expected = AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static List<String> raw(String text) {
+        Tokenizer tokenizer = new Tokenizer(text, Normalizer.INPUT);
+        List<String> words = new ArrayList<>();
+        while (tokenizer.next(new WordSpan())) {
+            words.add(text.substring(tokenizer.start(), tokenizer.end()));
+        }
+        return words;
+    }
+
+    @Test
+    public void testSplit() {
+        assertEquals(List.of(), raw(""));
+        assertEquals(List.of(), raw(" \t\n"));
+        String text = " a\u0001 b\tc\nd\u000Be\ff\r\ng  h ";
+        assertEquals(List.of(text.trim().split("\\s+")), raw(text));
+    }
+
+    private static String normalize(String word, Normalizer normalizer) {
+        Tokenizer tokenizer = new Tokenizer(word, normalizer);
+        WordSpan span = new WordSpan();
+        assertTrue(tokenizer.next(span));
+        assertEquals(span.toString().hashCode(), span.hashCode());
+        return span.toString();
+    }
+
+    @Test
+    public void testNormalizersMatchRegex() {
+        Random random = new Random(7);
+        String alphabet = "aZ09_-'.éÉİıKÅßΣ😀";
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder word = new StringBuilder("x");
+            for (int j = random.nextInt(6); j > 0; j--) {
+                word.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String w = word.toString();
+            assertEquals(w, w.toLowerCase(Locale.ROOT).replaceAll("[^a-zA-Z0-9]", ""),
+                         normalize(w, Normalizer.CORPUS));
+            assertEquals(w, w.replaceAll("[^a-zA-Z0-9]", "").toLowerCase(Locale.ROOT),
+                         normalize(w, Normalizer.INPUT));
+        }
+        assertEquals("ik", normalize("İK", Normalizer.CORPUS));
+        assertEquals("", normalize("İK", Normalizer.INPUT));
+    }
+
+    @Test
+    public void testVocabulary() {
+        Vocabulary vocabulary = new Vocabulary();
+        WordSpan span = new WordSpan();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, vocabulary.add("w" + i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            span.clear();
+            for (char c : ("w" + i).toCharArray()) {
+                span.append(c);
+            }
+            assertEquals(i, vocabulary.id(span));
+            assertEquals(i, vocabulary.add(span));
+            assertEquals("w" + i, vocabulary.word(i));
+        }
+        assertEquals(1000, vocabulary.size());
+        assertEquals(-1, vocabulary.id("w1000"));
+    }
+}